@@ -0,0 +1,99 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis;
+
+import org.yoga.jarvis.util.Assert;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * @Description: Abstract AsyncCacheHandler
+ * @Author: yoga
+ * @Date: 2026/10/18 14:12
+ */
+public abstract class AbstractAsyncCacheHandler<K, V> implements AsyncCacheHandler<K, V> {
+
+    /**
+     * the loads in flight, at most one load per key
+     */
+    private final ConcurrentMap<K, CompletableFuture<V>> loadings = new ConcurrentHashMap<>();
+
+    @Override
+    public CompletableFuture<Void> putAsync(K k, V v) {
+        Assert.notNull(k, "key must not be null!");
+        Assert.notNull(v, "value must not be null!");
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * load the value of key and put it into cache
+     * only one load per key runs at a time, the other callers get the same future
+     *
+     * @param k               key, not null
+     * @param mappingFunction function to load key and value asynchronously
+     * @return the future of value
+     */
+    protected CompletableFuture<V> loadAsync(K k, Function<? super K, ? extends CompletableFuture<? extends V>> mappingFunction) {
+        Assert.notNull(k, "key must not be null!");
+        CompletableFuture<V> loading = loadings.get(k);
+        if (loading != null) {
+            return loading;
+        }
+        CompletableFuture<V> newLoading = new CompletableFuture<>();
+        loading = loadings.putIfAbsent(k, newLoading);
+        if (loading != null) {
+            return loading;
+        }
+        try {
+            CompletableFuture<? extends V> source = mappingFunction.apply(k);
+            // a function returning no future loads no value
+            if (source == null) {
+                source = CompletableFuture.completedFuture(null);
+            }
+            source.thenCompose(v -> v == null ? CompletableFuture.<V>completedFuture(null) : putAsync(k, v).thenApply(ignore -> (V) v))
+                    .whenComplete((v, e) -> {
+                        loadings.remove(k, newLoading);
+                        if (e != null) {
+                            newLoading.completeExceptionally(e);
+                        } else {
+                            newLoading.complete(v);
+                        }
+                    });
+        } catch (Throwable e) {
+            // never leave a registered loading uncompleted, the later callers would wait forever
+            loadings.remove(k, newLoading);
+            newLoading.completeExceptionally(e);
+        }
+        return newLoading;
+    }
+
+    /**
+     * create a future completed exceptionally
+     *
+     * @param e   exception
+     * @param <T> generics
+     * @return failed future
+     */
+    protected static <T> CompletableFuture<T> failedFuture(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+}
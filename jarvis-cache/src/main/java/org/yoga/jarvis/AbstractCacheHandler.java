@@ -16,8 +16,35 @@
 
 package org.yoga.jarvis;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yoga.jarvis.bean.CacheConfigs;
+import org.yoga.jarvis.exception.JarvisException;
+import org.yoga.jarvis.factory.ThreadFactoryBuilder;
+import org.yoga.jarvis.stats.CacheStats;
+import org.yoga.jarvis.stats.StatsCounter;
+import org.yoga.jarvis.trace.TraceOp;
+import org.yoga.jarvis.trace.TraceRecorder;
 import org.yoga.jarvis.util.Assert;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 /**
  * @Description: Abstract CacheHandler
  * @Author: yoga
@@ -25,10 +52,567 @@ import org.yoga.jarvis.util.Assert;
  */
 public abstract class AbstractCacheHandler<K, V> implements CacheHandler<K, V> {
 
+	private static final Logger logger = LoggerFactory.getLogger(AbstractCacheHandler.class);
+
+	/**
+	 * the executor of refreshes, shared by all handlers
+	 * the refresh is skipped when the queue is full, the stale value is refreshed by a later read
+	 */
+	private static final ThreadPoolExecutor REFRESHER = new ThreadPoolExecutor(
+			Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors(),
+			60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1024),
+			new ThreadFactoryBuilder().setNameFormat("jarvis-cache-refresh-%d").setDaemon(true).build());
+
+	static {
+		REFRESHER.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * the sentinel of a cached absence, stored by the handlers in place of a value and never returned to callers
+	 */
+	private static final Object NULL_VALUE = new Object();
+
+	/**
+	 * the loads in flight, at most one load per key
+	 */
+	private final ConcurrentMap<K, CompletableFuture<V>> loadings = new ConcurrentHashMap<>();
+
+	/**
+	 * the keys being refreshed, at most one refresh per key
+	 */
+	private final Set<K> refreshings = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * statistics
+	 */
+	private final StatsCounter statsCounter = new StatsCounter();
+
+	/**
+	 * the age after which a read triggers an async refresh, ns, 0 if disabled
+	 */
+	private final long refreshAfterWriteNanos;
+
+	/**
+	 * the time to live of a cached absence, ns, 0 if absences are not cached
+	 */
+	private final long negativeTtlNanos;
+
+	/**
+	 * the recorder of accesses, null if tracing is off
+	 */
+	private volatile TraceRecorder traceRecorder;
+
+	protected AbstractCacheHandler() {
+		this(0, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param refreshAfterWrite the age after which a read returns the stale value and triggers an async refresh,
+	 *                          0 if disabled
+	 * @param unit              time unit of {@code refreshAfterWrite}
+	 */
+	protected AbstractCacheHandler(long refreshAfterWrite, TimeUnit unit) {
+		this(refreshAfterWrite, 0, unit);
+	}
+
+	/**
+	 * @param cacheConfigs the configs providing refreshAfterWrite and negativeTtl, in seconds
+	 */
+	protected AbstractCacheHandler(CacheConfigs<?, ?> cacheConfigs) {
+		this(notNull(cacheConfigs).getRefreshAfterWriteSeconds(), cacheConfigs.getNegativeTtlSeconds(), TimeUnit.SECONDS);
+	}
+
+	/**
+	 * @param refreshAfterWrite the age after which a read returns the stale value and triggers an async refresh,
+	 *                          0 if disabled
+	 * @param negativeTtl       the time to live of a cached absence, i.e. {@code mappingFunction} returned null,
+	 *                          0 if absences are not cached
+	 * @param unit              time unit of {@code refreshAfterWrite} and {@code negativeTtl}
+	 */
+	protected AbstractCacheHandler(long refreshAfterWrite, long negativeTtl, TimeUnit unit) {
+		Assert.isTrue(refreshAfterWrite >= 0, "refreshAfterWrite must not be less than 0!");
+		Assert.isTrue(negativeTtl >= 0, "negativeTtl must not be less than 0!");
+		// fail at construction rather than on every refresh
+		Assert.isTrue(refreshAfterWrite == 0 || overrides(getClass(), "replace", Object.class, Object.class, Object.class),
+				getClass().getSimpleName() + " does not support refresh-ahead, refreshAfterWrite must be 0!");
+		this.refreshAfterWriteNanos = unit.toNanos(refreshAfterWrite);
+		this.negativeTtlNanos = unit.toNanos(negativeTtl);
+	}
+
 	@Override
 	public void put(K k, V v) {
 		Assert.notNull(k, "key must not be null!");
 		Assert.notNull(v, "value must not be null!");
+		trace(TraceOp.WRITE, k);
+	}
+
+	@Override
+	public V getIfPresent(K k) {
+		V value = lookup(k);
+		return isNullValue(value) ? null : value;
+	}
+
+	/**
+	 * put with a time to live, capped by the expire interval of handler
+	 * the handlers which can not set the ttl per entry put it as usual, it lives a full expire interval, see
+	 * {@link #isTtlSupported()}
+	 *
+	 * @param k    key, not null
+	 * @param v    value, not null
+	 * @param ttl  time to live
+	 * @param unit time unit of {@code ttl}
+	 */
+	public void put(K k, V v, long ttl, TimeUnit unit) {
+		Assert.isTrue(ttl > 0, "ttl must be greater than 0!");
+		restore(k, v, unit.toNanos(ttl));
+	}
+
+	/**
+	 * whether {@link #put(Object, Object, long, TimeUnit)} sets the ttl of the entry, i.e. the handler overrides
+	 * {@link #restore(Object, Object, long)}
+	 *
+	 * @return true if supported
+	 */
+	public boolean isTtlSupported() {
+		return overrides(getClass(), "restore", Object.class, Object.class, long.class);
+	}
+
+	/**
+	 * get cache and record statistics, a cached absence is counted as a negative hit
+	 *
+	 * @param k key, not null
+	 * @return value, {@link #nullValue()} if the absence is cached, null if missed
+	 */
+	protected V lookup(K k) {
+		trace(TraceOp.READ, k);
+		V value = doGetIfPresent(k);
+		if (value == null) {
+			statsCounter.recordMisses(1);
+		} else if (isNullValue(value)) {
+			statsCounter.recordNegativeHits(1);
+		} else {
+			statsCounter.recordHits(1);
+		}
+		return value;
+	}
+
+	/**
+	 * get cache without recording statistics
+	 *
+	 * @param k key, not null
+	 * @return value, {@link #nullValue()} if the absence is cached, null if missed
+	 */
+	protected abstract V doGetIfPresent(K k);
+
+	/**
+	 * the sentinel of a cached absence
+	 *
+	 * @return sentinel
+	 */
+	@SuppressWarnings("unchecked")
+	protected final V nullValue() {
+		return (V) NULL_VALUE;
+	}
+
+	/**
+	 * whether the value is the sentinel of a cached absence
+	 *
+	 * @param value value
+	 * @return true if it is the sentinel
+	 */
+	protected static boolean isNullValue(Object value) {
+		return value == NULL_VALUE;
+	}
+
+	/**
+	 * whether the absences returned by loaders are cached
+	 *
+	 * @return true if enabled
+	 */
+	protected boolean isNegativeCachingEnabled() {
+		return negativeTtlNanos > 0;
+	}
+
+	/**
+	 * the time to live of a cached absence
+	 *
+	 * @return ttl, ns, 0 if absences are not cached
+	 */
+	protected long negativeTtlNanos() {
+		return negativeTtlNanos;
+	}
+
+	/**
+	 * cache the absence of key for {@link #negativeTtlNanos()}, only called when negative caching is enabled
+	 * the handlers which can not store the sentinel cache nothing
+	 *
+	 * @param k key, not null
+	 */
+	protected void putNullValue(K k) {
+	}
+
+	/**
+	 * cache the absence of keys, one by one by default
+	 *
+	 * @param keys keys, not null
+	 */
+	protected void putNullValues(Collection<? extends K> keys) {
+		keys.forEach(this::putNullValue);
+	}
+
+	/**
+	 * cache the absence of the keys not returned by the bulk loader, if negative caching is enabled
+	 *
+	 * @param absentKeys the keys passed to the bulk loader
+	 * @param loaded     loaded keys and values
+	 */
+	protected void cacheAbsences(Set<K> absentKeys, Map<K, V> loaded) {
+		if (!isNegativeCachingEnabled()) {
+			return;
+		}
+		List<K> nullKeys = absentKeys.stream().filter(k -> !loaded.containsKey(k)).collect(Collectors.toList());
+		if (!nullKeys.isEmpty()) {
+			putNullValues(nullKeys);
+		}
 	}
 
+	@Override
+	public CacheStats snapshot() {
+		return statsCounter.snapshot(size());
+	}
+
+	/**
+	 * statistics of this handler
+	 *
+	 * @return stats counter
+	 */
+	protected StatsCounter statsCounter() {
+		return statsCounter;
+	}
+
+	/**
+	 * record the accesses of this handler, see {@link TraceRecorder}
+	 * the recorder is not closed by this handler, it may be shared by several handlers
+	 *
+	 * @param traceRecorder recorder, null to stop tracing
+	 */
+	public void setTraceRecorder(TraceRecorder traceRecorder) {
+		this.traceRecorder = traceRecorder;
+	}
+
+	/**
+	 * record an access if tracing is on
+	 * the handlers overriding the public operations without calling {@link #lookup(Object)} or
+	 * {@link #put(Object, Object)} of this class record by themselves
+	 *
+	 * @param op operation
+	 * @param k  key, not null
+	 */
+	protected void trace(TraceOp op, K k) {
+		TraceRecorder recorder = traceRecorder;
+		if (recorder != null) {
+			recorder.record(op, k);
+		}
+	}
+
+	/**
+	 * record the accesses of keys if tracing is on
+	 *
+	 * @param op   operation
+	 * @param keys keys, not null
+	 */
+	protected void trace(TraceOp op, Collection<? extends K> keys) {
+		TraceRecorder recorder = traceRecorder;
+		if (recorder != null) {
+			keys.forEach(k -> recorder.record(op, k));
+		}
+	}
+
+	/**
+	 * visit the alive entries with their remaining time to live, used by {@link SnapshotCacheHandler}
+	 * statistics and access order are not touched, the handlers which do not know the ttl of entries visit nothing
+	 *
+	 * @param consumer consumer of key, value and remaining ttl in ns
+	 */
+	protected void forEachEntry(EntryConsumer<K, V> consumer) {
+	}
+
+	/**
+	 * put the entry with its remaining ttl, used by {@link SnapshotCacheHandler} and
+	 * {@link #put(Object, Object, long, TimeUnit)}
+	 * the handlers which can not set the ttl per entry put it as usual, it lives a full expire interval
+	 *
+	 * @param k        key, not null
+	 * @param v        value, not null
+	 * @param ttlNanos remaining ttl, ns
+	 */
+	protected void restore(K k, V v, long ttlNanos) {
+		put(k, v);
+	}
+
+	@Override
+	public Map<K, V> getAll(Collection<? extends K> keys, Function<? super Set<K>, ? extends Map<K, V>> bulkLoader) {
+		Assert.notNull(keys, "keys must not be null!");
+		Assert.notNull(bulkLoader, "bulkLoader must not be null!");
+		Map<K, V> result = new HashMap<>(keys.size());
+		Set<K> absentKeys = new LinkedHashSet<>();
+		for (K k : keys) {
+			V v = lookup(k);
+			if (v == null) {
+				absentKeys.add(k);
+			} else if (!isNullValue(v)) {
+				result.put(k, v);
+			}
+		}
+		if (!absentKeys.isEmpty()) {
+			Map<K, V> loaded = loadAll(absentKeys, bulkLoader);
+			putAll(loaded);
+			cacheAbsences(absentKeys, loaded);
+			result.putAll(loaded);
+		}
+		return result;
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> map) {
+		Assert.notNull(map, "map must not be null!");
+		map.forEach(this::put);
+	}
+
+	/**
+	 * load the absent keys by one call of {@code bulkLoader}
+	 * the null keys and values returned are dropped
+	 *
+	 * @param absentKeys absent keys
+	 * @param bulkLoader function to load keys and values
+	 * @return loaded keys and values, not null
+	 */
+	protected Map<K, V> loadAll(Set<K> absentKeys, Function<? super Set<K>, ? extends Map<K, V>> bulkLoader) {
+		long start = System.nanoTime();
+		Map<K, V> loaded;
+		try {
+			loaded = presentOf(bulkLoader.apply(absentKeys));
+		} catch (RuntimeException | Error e) {
+			statsCounter.recordLoadFailure(System.nanoTime() - start);
+			throw e;
+		}
+		if (loaded.isEmpty()) {
+			statsCounter.recordLoadFailure(System.nanoTime() - start);
+		} else {
+			statsCounter.recordLoadSuccess(System.nanoTime() - start);
+		}
+		return loaded;
+	}
+
+	/**
+	 * drop the null keys and values
+	 *
+	 * @param loaded loaded keys and values, nullable
+	 * @param <K>    generics of key
+	 * @param <V>    generics of value
+	 * @return loaded keys and values, not null
+	 */
+	protected static <K, V> Map<K, V> presentOf(Map<K, V> loaded) {
+		if (loaded == null || loaded.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		Map<K, V> present = new HashMap<>(loaded.size());
+		loaded.forEach((k, v) -> {
+			if (k != null && v != null) {
+				present.put(k, v);
+			}
+		});
+		return present;
+	}
+
+	/**
+	 * whether refresh-ahead is enabled
+	 *
+	 * @return true if enabled
+	 */
+	protected boolean isRefreshEnabled() {
+		return refreshAfterWriteNanos > 0;
+	}
+
+	/**
+	 * reload the value asynchronously if its age reaches refreshAfterWrite
+	 * the caller returns the stale value immediately, only one refresh per key runs at a time
+	 *
+	 * @param k               key
+	 * @param staleValue      the value read, the refreshed value only replaces it
+	 * @param ageNanos        the time since the value was written, ns
+	 * @param mappingFunction function to load key and value
+	 */
+	protected void refreshIfStale(K k, V staleValue, long ageNanos, Function<? super K, ? extends V> mappingFunction) {
+		if (refreshAfterWriteNanos <= 0 || ageNanos < refreshAfterWriteNanos || !refreshings.add(k)) {
+			return;
+		}
+		try {
+			REFRESHER.execute(() -> refresh(k, staleValue, mappingFunction));
+		} catch (RejectedExecutionException e) {
+			refreshings.remove(k);
+		}
+	}
+
+	/**
+	 * reload the value, it is written only if the key still maps to the stale value, so a remove or a put during
+	 * the reload wins. A key whose reload returns null no longer keeps the stale value
+	 *
+	 * @param k               key
+	 * @param staleValue      the value read when the refresh was triggered
+	 * @param mappingFunction function to load key and value
+	 */
+	private void refresh(K k, V staleValue, Function<? super K, ? extends V> mappingFunction) {
+		long start = System.nanoTime();
+		try {
+			V value = mappingFunction.apply(k);
+			if (value != null) {
+				statsCounter.recordLoadSuccess(System.nanoTime() - start);
+				if (replace(k, staleValue, value)) {
+					trace(TraceOp.WRITE, k);
+				}
+			} else {
+				statsCounter.recordLoadFailure(System.nanoTime() - start);
+				replace(k, staleValue, null);
+			}
+		} catch (RuntimeException e) {
+			statsCounter.recordLoadFailure(System.nanoTime() - start);
+			logger.warn("failed to refresh key: {}", k, e);
+		} finally {
+			refreshings.remove(k);
+		}
+	}
+
+	/**
+	 * replace the value of key only if it is still {@code oldValue}, used to write a refreshed value
+	 * the handlers enabling refresh-ahead must override it atomically, a refreshAfterWrite greater than 0 is rejected
+	 * at construction otherwise, so the default is never called by a refresh
+	 *
+	 * @param k        key
+	 * @param oldValue the expected value, compared by identity
+	 * @param newValue the new value, null to remove the key
+	 * @return true if replaced
+	 */
+	protected boolean replace(K k, V oldValue, V newValue) {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support refresh-ahead!");
+	}
+
+	/**
+	 * whether the handler class overrides a method of this class
+	 *
+	 * @param handlerClass   the class of handler
+	 * @param name           the name of method
+	 * @param parameterTypes the erased parameter types of method
+	 * @return true if overridden
+	 */
+	private static boolean overrides(Class<?> handlerClass, String name, Class<?>... parameterTypes) {
+		for (Class<?> c = handlerClass; c != AbstractCacheHandler.class; c = c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod(name, parameterTypes);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// try the superclass
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * load the value of key and put it into cache
+	 * only one load per key runs at a time, the other callers wait for the same result.
+	 * {@code mappingFunction} must not load the same key recursively
+	 *
+	 * @param k               key, not null
+	 * @param mappingFunction function to load key and value
+	 * @return value, null if {@code mappingFunction} returns null or the absence is cached
+	 */
+	protected V load(K k, Function<? super K, ? extends V> mappingFunction) {
+		Assert.notNull(k, "key must not be null!");
+		CompletableFuture<V> loading = loadings.get(k);
+		if (loading == null) {
+			CompletableFuture<V> newLoading = new CompletableFuture<>();
+			loading = loadings.putIfAbsent(k, newLoading);
+			if (loading == null) {
+				return doLoad(k, mappingFunction, newLoading);
+			}
+		}
+		try {
+			return loading.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new JarvisException(e.getCause());
+		}
+	}
+
+	/**
+	 * run the load owned by current thread
+	 *
+	 * @param k               key
+	 * @param mappingFunction function to load key and value
+	 * @param loading         the future of this load
+	 * @return value
+	 */
+	private V doLoad(K k, Function<? super K, ? extends V> mappingFunction, CompletableFuture<V> loading) {
+		try {
+			// double check, the previous load may have finished after the caller's miss
+			V value = doGetIfPresent(k);
+			if (isNullValue(value)) {
+				value = null;
+			} else if (value == null) {
+				long start = System.nanoTime();
+				try {
+					value = mappingFunction.apply(k);
+				} catch (RuntimeException | Error e) {
+					statsCounter.recordLoadFailure(System.nanoTime() - start);
+					throw e;
+				}
+				if (value != null) {
+					statsCounter.recordLoadSuccess(System.nanoTime() - start);
+					put(k, value);
+				} else {
+					statsCounter.recordLoadFailure(System.nanoTime() - start);
+					if (isNegativeCachingEnabled()) {
+						putNullValue(k);
+					}
+				}
+			}
+			loading.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			loading.completeExceptionally(e);
+			throw e;
+		} finally {
+			loadings.remove(k, loading);
+		}
+	}
+
+	/**
+	 * check the configs before the constructor reads them
+	 *
+	 * @param cacheConfigs cacheConfigs
+	 * @return cacheConfigs
+	 */
+	private static CacheConfigs<?, ?> notNull(CacheConfigs<?, ?> cacheConfigs) {
+		Assert.notNull(cacheConfigs, "cacheConfigs must not be null!");
+		return cacheConfigs;
+	}
+
+	/**
+	 * Consumer of entries with their remaining time to live
+	 *
+	 * @param <K> generics of key
+	 * @param <V> generics of value
+	 */
+	@FunctionalInterface
+	protected interface EntryConsumer<K, V> {
+
+		/**
+		 * @param k        key
+		 * @param v        value
+		 * @param ttlNanos remaining ttl, ns
+		 */
+		void accept(K k, V v, long ttlNanos);
+	}
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * @Description: Async Cache Handler, no method blocks the caller
+ * @Author: yoga
+ * @Date: 2026/10/18 14:05
+ */
+public interface AsyncCacheHandler<K, V> {
+
+    /**
+     * add cache
+     *
+     * @param k key, not null
+     * @param v value, not null
+     * @return the future completed when the value is stored
+     */
+    CompletableFuture<Void> putAsync(@Nonnull K k, @Nonnull V v);
+
+    /**
+     * get cache
+     * if absent, the value is loaded by {@code mappingFunction} and put into cache,
+     * concurrent callers of the same key share one load
+     *
+     * @param k               key, not null
+     * @param mappingFunction function to load key and value asynchronously
+     * @return the future of value
+     */
+    CompletableFuture<V> getAsync(@Nonnull K k, @Nonnull Function<? super K, ? extends CompletableFuture<? extends V>> mappingFunction);
+
+    /**
+     * get cache
+     *
+     * @param k key, not null
+     * @return the future of value, completed with null if absent
+     */
+    CompletableFuture<V> getIfPresentAsync(@Nonnull K k);
+
+    /**
+     * get caches of keys
+     * the absent keys are loaded by one call of {@code bulkLoader} and put into cache
+     *
+     * @param keys       keys, not null
+     * @param bulkLoader function to load the absent keys and values asynchronously
+     * @return the future of present and loaded values
+     */
+    CompletableFuture<Map<K, V>> getAllAsync(@Nonnull Collection<? extends K> keys,
+                                             @Nonnull Function<? super Set<K>, ? extends CompletableFuture<? extends Map<K, V>>> bulkLoader);
+
+    /**
+     * remove cache
+     *
+     * @param k key
+     * @return the future completed when the value is removed
+     */
+    CompletableFuture<Void> removeAsync(@Nonnull K k);
+}
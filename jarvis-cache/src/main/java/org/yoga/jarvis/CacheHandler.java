@@ -16,9 +16,13 @@
 
 package org.yoga.jarvis;
 
+import org.yoga.jarvis.stats.CacheStats;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -40,6 +44,8 @@ public interface CacheHandler<K, V> {
 
     /**
      * get cache
+     * if absent, the value is loaded by {@code mappingFunction} and put into cache,
+     * concurrent callers of the same key share one load
      *
      * @param k               key, not null
      * @param mappingFunction function to load key and value
@@ -56,6 +62,23 @@ public interface CacheHandler<K, V> {
     @Nullable
     V getIfPresent(@Nonnull K k);
 
+    /**
+     * get caches of keys
+     * the absent keys are loaded by one call of {@code bulkLoader} and put into cache
+     *
+     * @param keys       keys, not null
+     * @param bulkLoader function to load the absent keys and values
+     * @return present and loaded values
+     */
+    Map<K, V> getAll(@Nonnull Collection<? extends K> keys, @Nonnull Function<? super Set<K>, ? extends Map<K, V>> bulkLoader);
+
+    /**
+     * add caches
+     *
+     * @param map keys and values, not null
+     */
+    void putAll(@Nonnull Map<? extends K, ? extends V> map);
+
     /**
      * remove cache
      *
@@ -88,4 +111,11 @@ public interface CacheHandler<K, V> {
      * @return all cache keys
      */
     Set<K> keys();
+
+    /**
+     * snapshot of statistics, hit rate, loads, evictions and size
+     *
+     * @return stats
+     */
+    CacheStats snapshot();
 }
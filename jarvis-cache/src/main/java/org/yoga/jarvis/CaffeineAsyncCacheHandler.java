@@ -0,0 +1,83 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * @Description: Async Cache Handler implemented by caffeine
+ * @Author: yoga
+ * @Date: 2026/10/18 14:30
+ */
+public class CaffeineAsyncCacheHandler<K, V> extends AbstractAsyncCacheHandler<K, V> {
+
+    private final AsyncCache<K, V> cache;
+
+    public CaffeineAsyncCacheHandler(int initialCapacity, int maximumSize, long expireIntervalSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .initialCapacity(initialCapacity)
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireIntervalSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .buildAsync();
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(K k, V v) {
+        super.putAsync(k, v);
+        cache.put(k, CompletableFuture.completedFuture(v));
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<V> getAsync(K k, Function<? super K, ? extends CompletableFuture<? extends V>> mappingFunction) {
+        // caffeine keeps the loading future in cache, so concurrent callers share it
+        return cache.get(k, (key, executor) -> mappingFunction.apply(key).<V>thenApply(v -> v));
+    }
+
+    @Override
+    public CompletableFuture<V> getIfPresentAsync(K k) {
+        CompletableFuture<V> future = cache.getIfPresent(k);
+        return future == null ? CompletableFuture.completedFuture(null) : future;
+    }
+
+    @Override
+    public CompletableFuture<Map<K, V>> getAllAsync(Collection<? extends K> keys,
+                                                    Function<? super Set<K>, ? extends CompletableFuture<? extends Map<K, V>>> bulkLoader) {
+        return cache.getAll(keys, (absentKeys, executor) -> {
+            Set<K> keySet = new LinkedHashSet<>();
+            absentKeys.forEach(keySet::add);
+            return bulkLoader.apply(keySet).<Map<K, V>>thenApply(HashMap::new);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(K k) {
+        cache.synchronous().invalidate(k);
+        return CompletableFuture.completedFuture(null);
+    }
+}
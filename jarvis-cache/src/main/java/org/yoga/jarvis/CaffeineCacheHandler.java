@@ -18,10 +18,23 @@ package org.yoga.jarvis;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.github.benmanes.caffeine.cache.RemovalListener;
+import org.yoga.jarvis.bean.CacheConfigs;
 import org.yoga.jarvis.exception.JarvisException;
+import org.yoga.jarvis.removal.CacheRemovalListener;
+import org.yoga.jarvis.removal.RemovalCause;
+import org.yoga.jarvis.removal.RemovalDispatcher;
+import org.yoga.jarvis.stats.CacheStats;
+import org.yoga.jarvis.trace.TraceOp;
+import org.yoga.jarvis.util.Assert;
+import org.yoga.jarvis.weigher.Weigher;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -31,6 +44,9 @@ import java.util.stream.Collectors;
 
 /**
  * @Description: Caffeine Cache Handler
+ * <p>
+ * The entries expire by a variable {@link Expiry}: a write lives the expire interval, a cached absence lives
+ * negativeTtl, and a restored entry or one put with a ttl lives its own ttl.
  * @Author: yoga
  * @Date: 2022/6/1 18:13
  */
@@ -38,21 +54,54 @@ public class CaffeineCacheHandler<K, V> extends AbstractCacheHandler<K, V> {
 
 	private final Cache<K, V> cache;
 
+	/**
+	 * expire interval, ns
+	 */
+	private final long expireIntervalNanos;
+
 	public CaffeineCacheHandler(int initialCapacity, int maximumSize, long expireIntervalSeconds) {
-		this.cache = Caffeine.newBuilder()
+		this(CacheConfigs.of(initialCapacity, maximumSize, expireIntervalSeconds));
+	}
+
+	@SuppressWarnings("unchecked")
+	public CaffeineCacheHandler(CacheConfigs<K, V> cacheConfigs) {
+		super(cacheConfigs);
+		this.expireIntervalNanos = TimeUnit.SECONDS.toNanos(cacheConfigs.getExpireIntervalSeconds());
+		Caffeine<Object, Object> builder = Caffeine.newBuilder()
 				// Set the initial capacity of the cache container to {@code initialCapacity}
-				.initialCapacity(initialCapacity)
-				// Set the maximum cache capacity to 100
-				// After more than 100, the cache items will be removed according to the LRU algorithm
-				// that is rarely used recently.
-				.maximumSize(maximumSize)
-				// expire after setting write cache
-				.expireAfterWrite(expireIntervalSeconds, TimeUnit.SECONDS)
+				.initialCapacity(cacheConfigs.getInitialCapacity())
+				// expire after setting write cache, per entry
+				.expireAfter(new WriteExpiry())
 				// Set the hit rate of the cache to be counted
-				.recordStats()
-				// Set cache removal notifications
-				.removalListener((RemovalListener<K, V>) (k, v, removalCause) -> System.out.println(k + " has removed, val: "
-						+ v + ", reason: " + removalCause))
+				.recordStats();
+		if (cacheConfigs.getMaximumWeight() > 0) {
+			// bounded by the total weight instead of the number of entries, caffeine does not allow both
+			Weigher<? super K, ? super V> weigher = cacheConfigs.getWeigher();
+			Assert.notNull(weigher, "weigher must be set when maximumWeight is greater than 0!");
+			builder = builder.maximumWeight(cacheConfigs.getMaximumWeight())
+					// an absence weighs 1
+					.weigher((k, v) -> isNullValue(v) ? 1 : weigher.weigh((K) k, (V) v));
+		} else {
+			// Set the maximum cache capacity to {@code maximumSize}
+			// After more than {@code maximumSize}, the cache items will be removed according to the LRU algorithm
+			// that is rarely used recently.
+			builder = builder.maximumSize(cacheConfigs.getMaximumSize());
+		}
+		CacheRemovalListener<K, V> removalListener = cacheConfigs.getRemovalListener();
+		if (removalListener == null) {
+			this.cache = builder.build();
+			return;
+		}
+		// Set cache removal notifications, delivered asynchronously in batches
+		RemovalDispatcher<K, V> dispatcher = new RemovalDispatcher<>(removalListener,
+				cacheConfigs.getRemovalQueueCapacity(), cacheConfigs.getRemovalBatchSize());
+		// the removal of a cached absence is not notified
+		this.cache = builder
+				.removalListener((RemovalListener<K, V>) (k, v, removalCause) -> {
+					if (!isNullValue(v)) {
+						dispatcher.dispatch(k, v, RemovalCause.valueOf(removalCause.name()));
+					}
+				})
 				.build();
 	}
 
@@ -62,24 +111,162 @@ public class CaffeineCacheHandler<K, V> extends AbstractCacheHandler<K, V> {
 		cache.put(k, v);
 	}
 
+	@Override
+	protected void putNullValue(K k) {
+		cache.put(k, nullValue());
+	}
+
 	@Override
 	public V get(K k, Function<? super K, ? extends V> mappingFunction) {
-        return cache.get(k, mappingFunction);
-    }
+		trace(TraceOp.READ, k);
+		boolean[] loaded = new boolean[1];
+		V value = getOrLoad(k, mappingFunction, loaded);
+		if (isNullValue(value)) {
+			if (!loaded[0]) {
+				statsCounter().recordNegativeHits(1);
+			}
+			return null;
+		}
+		if (value != null && isRefreshEnabled()) {
+			V staleValue = value;
+			// the age of a restored entry counts from its original write
+			cache.policy().expireVariably().ifPresent(expiration -> expiration.getExpiresAfter(k, TimeUnit.NANOSECONDS)
+					.ifPresent(ttl -> refreshIfStale(k, staleValue, expireIntervalNanos - ttl, mappingFunction)));
+		}
+		return value;
+	}
+
+	/**
+	 * compared by equals, an equal value is as good as the stale one
+	 */
+	@Override
+	protected boolean replace(K k, V oldValue, V newValue) {
+		return newValue == null ? cache.asMap().remove(k, oldValue) : cache.asMap().replace(k, oldValue, newValue);
+	}
+
+	/**
+	 * get by caffeine, the absence is cached as the sentinel if negative caching is enabled
+	 *
+	 * @param k               key
+	 * @param mappingFunction function to load key and value
+	 * @param loaded          set to true if loaded by current thread
+	 * @return value, the sentinel if the absence is cached
+	 */
+	private V getOrLoad(K k, Function<? super K, ? extends V> mappingFunction, boolean[] loaded) {
+		return cache.get(k, key -> {
+			loaded[0] = true;
+			V value = timedLoad(key, mappingFunction);
+			return value == null && isNegativeCachingEnabled() ? nullValue() : value;
+		});
+	}
+
+	@Override
+	public Map<K, V> getAll(Collection<? extends K> keys, Function<? super Set<K>, ? extends Map<K, V>> bulkLoader) {
+		Assert.notNull(keys, "keys must not be null!");
+		Assert.notNull(bulkLoader, "bulkLoader must not be null!");
+		trace(TraceOp.READ, keys);
+		int[] loadedAbsences = new int[1];
+		Map<K, V> values = cache.getAll(keys, absentKeys -> {
+			Set<K> keySet = new LinkedHashSet<>();
+			absentKeys.forEach(keySet::add);
+			// the load is counted by caffeine, only the latency is recorded here
+			long start = System.nanoTime();
+			Map<K, V> loaded;
+			try {
+				loaded = presentOf(bulkLoader.apply(keySet));
+			} finally {
+				statsCounter().recordLoadLatency(System.nanoTime() - start);
+			}
+			if (!isNegativeCachingEnabled() || loaded.size() == keySet.size()) {
+				return loaded;
+			}
+			Map<K, V> withAbsences = new HashMap<>(loaded);
+			keySet.forEach(k -> withAbsences.putIfAbsent(k, nullValue()));
+			loadedAbsences[0] = withAbsences.size() - loaded.size();
+			return withAbsences;
+		});
+		Map<K, V> result = new HashMap<>(values.size());
+		values.forEach((k, v) -> {
+			if (!isNullValue(v)) {
+				result.put(k, v);
+			}
+		});
+		statsCounter().recordNegativeHits(values.size() - result.size() - loadedAbsences[0]);
+		return result;
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> map) {
+		Assert.notNull(map, "map must not be null!");
+		trace(TraceOp.WRITE, map.keySet());
+		cache.putAll(map);
+	}
 
 	@Override
 	public V getIfPresent(K k) {
-		return cache.getIfPresent(k);
+		trace(TraceOp.READ, k);
+		V value = cache.getIfPresent(k);
+		if (isNullValue(value)) {
+			statsCounter().recordNegativeHits(1);
+			return null;
+		}
+		return value;
+	}
+
+	@Override
+	protected V doGetIfPresent(K k) {
+		return cache.asMap().get(k);
+	}
+
+	/**
+	 * hits, misses, loads and evictions are counted by caffeine, the load latency and negative hits are recorded by
+	 * this handler. A negative hit is not a hit, as in {@link #lookup(Object)}, caffeine counts it as a hit so it is
+	 * subtracted
+	 */
+	@Override
+	public CacheStats snapshot() {
+		com.github.benmanes.caffeine.cache.stats.CacheStats stats = cache.stats();
+		CacheStats own = statsCounter().snapshot(0);
+		// the async refreshes are not seen by caffeine
+		long hitCount = Math.max(0, stats.hitCount() - own.getNegativeHitCount());
+		return new CacheStats(hitCount, stats.missCount(), own.getNegativeHitCount(),
+				stats.loadSuccessCount() + own.getLoadSuccessCount(), stats.loadFailureCount() + own.getLoadFailureCount(),
+				stats.totalLoadTime() + own.getTotalLoadTime(), stats.evictionCount(), size(), own.getLoadLatencyCounts());
+	}
+
+	@Override
+	protected void forEachEntry(EntryConsumer<K, V> consumer) {
+		cache.policy().expireVariably().ifPresent(expiration -> cache.asMap().forEach((k, v) -> {
+			if (!isNullValue(v)) {
+				expiration.getExpiresAfter(k, TimeUnit.NANOSECONDS).ifPresent(ttl -> {
+					if (ttl > 0) {
+						consumer.accept(k, v, ttl);
+					}
+				});
+			}
+		}));
+	}
+
+	/**
+	 * put with the remaining ttl, capped by the expire interval
+	 */
+	@Override
+	protected void restore(K k, V v, long ttlNanos) {
+		super.put(k, v);
+		long ttl = Math.min(ttlNanos, expireIntervalNanos);
+		cache.policy().expireVariably().ifPresent(expiration -> expiration.put(k, v, ttl, TimeUnit.NANOSECONDS));
 	}
 
 	@Override
 	public void remove(K k) {
+		trace(TraceOp.REMOVE, k);
 		cache.invalidate(k);
 	}
 
 	@Override
 	public void removeIf(Predicate<? super K> predicate) {
-		cache.invalidateAll(keys().stream().filter(predicate).collect(Collectors.toSet()));
+		// the cached absences are removed too
+		cache.invalidateAll(cache.asMap().keySet().stream().filter(predicate).collect(Collectors.toSet()));
 	}
 
 	@Override
@@ -87,14 +274,66 @@ public class CaffeineCacheHandler<K, V> extends AbstractCacheHandler<K, V> {
 		cache.invalidateAll();
 	}
 
+	/**
+	 * the cached absences are not counted
+	 */
 	@Override
 	public long size() {
 		cache.cleanUp();
-		return cache.estimatedSize();
+		if (!isNegativeCachingEnabled()) {
+			return cache.estimatedSize();
+		}
+		return cache.asMap().values().stream().filter(v -> !isNullValue(v)).count();
 	}
 
+	/**
+	 * the keys of cached absences are not included
+	 */
 	@Override
 	public Set<K> keys() {
-		return cache.asMap().keySet();
+		if (!isNegativeCachingEnabled()) {
+			return cache.asMap().keySet();
+		}
+		return cache.asMap().entrySet().stream()
+				.filter(entry -> !isNullValue(entry.getValue()))
+				.map(Map.Entry::getKey)
+				.collect(Collectors.toSet());
+	}
+
+	/**
+	 * a write lives the expire interval, a cached absence lives negativeTtl, a read does not extend it
+	 */
+	private final class WriteExpiry implements Expiry<Object, Object> {
+
+		@Override
+		public long expireAfterCreate(Object key, Object value, long currentTime) {
+			return isNullValue(value) ? Math.min(negativeTtlNanos(), expireIntervalNanos) : expireIntervalNanos;
+		}
+
+		@Override
+		public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+			return expireAfterCreate(key, value, currentTime);
+		}
+
+		@Override
+		public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+	}
+
+	/**
+	 * load by {@code mappingFunction} and record the latency
+	 *
+	 * @param k               key
+	 * @param mappingFunction function to load key and value
+	 * @return value
+	 */
+	private V timedLoad(K k, Function<? super K, ? extends V> mappingFunction) {
+		long start = System.nanoTime();
+		try {
+			return mappingFunction.apply(k);
+		} finally {
+			statsCounter().recordLoadLatency(System.nanoTime() - start);
+		}
 	}
 }
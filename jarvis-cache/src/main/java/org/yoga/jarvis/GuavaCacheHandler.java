@@ -18,9 +18,22 @@ package org.yoga.jarvis;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
 import com.google.common.cache.RemovalListener;
+import org.yoga.jarvis.bean.CacheConfigs;
 import org.yoga.jarvis.exception.JarvisException;
+import org.yoga.jarvis.removal.CacheRemovalListener;
+import org.yoga.jarvis.removal.RemovalCause;
+import org.yoga.jarvis.removal.RemovalDispatcher;
+import org.yoga.jarvis.stats.CacheStats;
+import org.yoga.jarvis.trace.TraceOp;
+import org.yoga.jarvis.util.Assert;
+import org.yoga.jarvis.weigher.Weigher;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -35,58 +48,277 @@ import java.util.stream.Collectors;
  */
 public class GuavaCacheHandler<K, V> extends AbstractCacheHandler<K, V> {
 
-	private final Cache<K, V> cache;
+	/**
+	 * the values are wrapped with their write time, guava has no api for the age of an entry
+	 */
+	private final Cache<K, TimedValue<V>> cache;
+
+	/**
+	 * expire interval, ns
+	 */
+	private final long expireIntervalNanos;
 
 	public GuavaCacheHandler(int initialCapacity, int maximumSize, long expireIntervalSeconds) {
-		this.cache = CacheBuilder.newBuilder()
+		this(CacheConfigs.of(initialCapacity, maximumSize, expireIntervalSeconds));
+	}
+
+	@SuppressWarnings("unchecked")
+	public GuavaCacheHandler(CacheConfigs<K, V> cacheConfigs) {
+		super(cacheConfigs);
+		this.expireIntervalNanos = TimeUnit.SECONDS.toNanos(cacheConfigs.getExpireIntervalSeconds());
+		CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
 				// Set the concurrency level is the same as the number of cpus
 				// the concurrency level refers to the number of threads
 				// that can write to the cache at the same time
 				.concurrencyLevel(Runtime.getRuntime().availableProcessors())
 				// Set the initial capacity of the cache container to {@code initialCapacity}
-				.initialCapacity(initialCapacity)
-				// Set the maximum cache capacity to 1000
-				// After more than 100, the cache items will be removed according to the LRU algorithm
-				// that is rarely used recently.
-				.maximumSize(maximumSize)
+				.initialCapacity(cacheConfigs.getInitialCapacity())
 				// expire after setting write cache
-				.expireAfterWrite(expireIntervalSeconds, TimeUnit.SECONDS)
+				.expireAfterWrite(cacheConfigs.getExpireIntervalSeconds(), TimeUnit.SECONDS)
 				// Set the hit rate of the cache to be counted
-				.recordStats()
-				// Set cache removal notifications
-				.removalListener((RemovalListener<K, V>) notification -> System.out.println(notification.getKey() +
-						" has removed, val: " + notification.getValue() + ", reason: " + notification.getCause()))
+				.recordStats();
+		if (cacheConfigs.getMaximumWeight() > 0) {
+			// bounded by the total weight instead of the number of entries, guava does not allow both
+			Weigher<? super K, ? super V> weigher = cacheConfigs.getWeigher();
+			Assert.notNull(weigher, "weigher must be set when maximumWeight is greater than 0!");
+			builder = builder.maximumWeight(cacheConfigs.getMaximumWeight())
+					// an absence weighs 1
+					.weigher((k, timedValue) -> isNullValue(((TimedValue<V>) timedValue).value)
+							? 1 : weigher.weigh((K) k, ((TimedValue<V>) timedValue).value));
+		} else {
+			// Set the maximum cache capacity to {@code maximumSize}
+			// After more than {@code maximumSize}, the cache items will be removed according to the LRU algorithm
+			// that is rarely used recently.
+			builder = builder.maximumSize(cacheConfigs.getMaximumSize());
+		}
+		CacheRemovalListener<K, V> removalListener = cacheConfigs.getRemovalListener();
+		if (removalListener == null) {
+			this.cache = builder.build();
+			return;
+		}
+		// Set cache removal notifications, delivered asynchronously in batches
+		RemovalDispatcher<K, V> dispatcher = new RemovalDispatcher<>(removalListener,
+				cacheConfigs.getRemovalQueueCapacity(), cacheConfigs.getRemovalBatchSize());
+		// the removal of a cached absence is not notified
+		this.cache = builder
+				.removalListener((RemovalListener<K, TimedValue<V>>) notification -> {
+					V value = TimedValue.unwrap(notification.getValue());
+					if (!isNullValue(value)) {
+						dispatcher.dispatch(notification.getKey(), value,
+								RemovalCause.valueOf(notification.getCause().name()));
+					}
+				})
 				.build();
 	}
 
 	@Override
 	public void put(K k, V v) {
 		super.put(k, v);
-		cache.put(k, v);
+		cache.put(k, new TimedValue<>(v));
+	}
+
+	@Override
+	protected void putNullValue(K k) {
+		cache.put(k, new TimedValue<>(nullValue()));
 	}
 
 	@Override
 	public V get(K k, Function<? super K, ? extends V> mappingFunction) {
-        try {
-            return cache.get(k, () -> mappingFunction.apply(k));
-        } catch (ExecutionException e) {
-            throw new JarvisException(e);
-        }
-    }
+		trace(TraceOp.READ, k);
+		boolean[] loaded = new boolean[1];
+		TimedValue<V> timedValue = getOrLoad(k, mappingFunction, loaded);
+		if (isExpired(timedValue)) {
+			// guava expires all entries after the same interval, an absence or a restored entry is dropped on read
+			cache.asMap().remove(k, timedValue);
+			timedValue = getOrLoad(k, mappingFunction, loaded);
+		}
+		if (timedValue == null) {
+			return null;
+		}
+		if (isNullValue(timedValue.value)) {
+			if (!loaded[0]) {
+				statsCounter().recordNegativeHits(1);
+			}
+			return null;
+		}
+		refreshIfStale(k, timedValue.value, System.nanoTime() - timedValue.writeNanos, mappingFunction);
+		return timedValue.value;
+	}
+
+	@Override
+	protected boolean replace(K k, V oldValue, V newValue) {
+		TimedValue<V> current = cache.asMap().get(k);
+		if (current == null || current.value != oldValue) {
+			return false;
+		}
+		// the wrappers are compared by identity, so it fails if the entry is written meanwhile
+		return newValue == null ? cache.asMap().remove(k, current)
+				: cache.asMap().replace(k, current, new TimedValue<>(newValue));
+	}
+
+	/**
+	 * get by guava, the absence is cached as the sentinel if negative caching is enabled
+	 *
+	 * @param k               key
+	 * @param mappingFunction function to load key and value
+	 * @param loaded          set to true if loaded by current thread
+	 * @return timed value, null if the absence is not cached
+	 */
+	private TimedValue<V> getOrLoad(K k, Function<? super K, ? extends V> mappingFunction, boolean[] loaded) {
+		try {
+			return cache.get(k, () -> {
+				loaded[0] = true;
+				V value = timedLoad(k, mappingFunction);
+				if (value == null && isNegativeCachingEnabled()) {
+					return new TimedValue<>(nullValue());
+				}
+				return TimedValue.wrap(value);
+			});
+		} catch (CacheLoader.InvalidCacheLoadException e) {
+			// guava rejects null, nothing is cached
+			return null;
+		} catch (ExecutionException e) {
+			throw new JarvisException(e);
+		}
+	}
+
+	/**
+	 * whether it is a cached absence older than negativeTtl, or an entry older than the expire interval, which is only
+	 * seen when it was restored with a back-dated write time before guava expires it
+	 *
+	 * @param timedValue timed value, nullable
+	 * @return true if expired
+	 */
+	private boolean isExpired(TimedValue<V> timedValue) {
+		if (timedValue == null) {
+			return false;
+		}
+		long age = System.nanoTime() - timedValue.writeNanos;
+		return age >= (isNullValue(timedValue.value) ? negativeTtlNanos() : expireIntervalNanos);
+	}
+
+	/**
+	 * drop the expired absence or restored entry
+	 *
+	 * @param k          key
+	 * @param timedValue timed value, nullable
+	 * @return timed value, null if missing or expired
+	 */
+	private TimedValue<V> alive(K k, TimedValue<V> timedValue) {
+		if (isExpired(timedValue)) {
+			cache.asMap().remove(k, timedValue);
+			return null;
+		}
+		return timedValue;
+	}
+
+	@Override
+	public Map<K, V> getAll(Collection<? extends K> keys, Function<? super Set<K>, ? extends Map<K, V>> bulkLoader) {
+		Assert.notNull(keys, "keys must not be null!");
+		Assert.notNull(bulkLoader, "bulkLoader must not be null!");
+		trace(TraceOp.READ, keys);
+		Map<K, V> result = new HashMap<>(keys.size());
+		Set<K> absentKeys = new LinkedHashSet<>(keys);
+		int[] negativeHits = new int[1];
+		cache.getAllPresent(keys).forEach((k, timedValue) -> {
+			TimedValue<V> alive = alive(k, timedValue);
+			if (alive == null) {
+				return;
+			}
+			absentKeys.remove(k);
+			if (isNullValue(alive.value)) {
+				negativeHits[0]++;
+			} else {
+				result.put(k, alive.value);
+			}
+		});
+		statsCounter().recordNegativeHits(negativeHits[0]);
+		if (!absentKeys.isEmpty()) {
+			Map<K, V> loaded = loadAll(absentKeys, bulkLoader);
+			putAll(loaded);
+			cacheAbsences(absentKeys, loaded);
+			result.putAll(loaded);
+		}
+		return result;
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> map) {
+		Assert.notNull(map, "map must not be null!");
+		trace(TraceOp.WRITE, map.keySet());
+		Map<K, TimedValue<V>> timedValues = new HashMap<>(map.size());
+		map.forEach((k, v) -> {
+			Assert.notNull(k, "key must not be null!");
+			Assert.notNull(v, "value must not be null!");
+			timedValues.put(k, new TimedValue<>(v));
+		});
+		cache.putAll(timedValues);
+	}
 
 	@Override
 	public V getIfPresent(K k) {
-		return cache.getIfPresent(k);
+		trace(TraceOp.READ, k);
+		V value = TimedValue.unwrap(alive(k, cache.getIfPresent(k)));
+		if (isNullValue(value)) {
+			statsCounter().recordNegativeHits(1);
+			return null;
+		}
+		return value;
+	}
+
+	@Override
+	protected V doGetIfPresent(K k) {
+		return TimedValue.unwrap(alive(k, cache.asMap().get(k)));
+	}
+
+	/**
+	 * hits, misses, loads and evictions are counted by guava, the load latency and negative hits are recorded by
+	 * this handler. A negative hit is not a hit, as in {@link #lookup(Object)}, guava counts it as a hit so it is
+	 * subtracted
+	 */
+	@Override
+	public CacheStats snapshot() {
+		com.google.common.cache.CacheStats stats = cache.stats();
+		CacheStats own = statsCounter().snapshot(0);
+		// the bulk loads of getAll are not seen by guava
+		long hitCount = Math.max(0, stats.hitCount() - own.getNegativeHitCount());
+		return new CacheStats(hitCount, stats.missCount(), own.getNegativeHitCount(),
+				stats.loadSuccessCount() + own.getLoadSuccessCount(), stats.loadExceptionCount() + own.getLoadFailureCount(),
+				stats.totalLoadTime() + own.getTotalLoadTime(), stats.evictionCount(), size(), own.getLoadLatencyCounts());
+	}
+
+	@Override
+	protected void forEachEntry(EntryConsumer<K, V> consumer) {
+		long now = System.nanoTime();
+		cache.asMap().forEach((k, timedValue) -> {
+			long ttl = expireIntervalNanos - (now - timedValue.writeNanos);
+			if (ttl > 0 && !isNullValue(timedValue.value)) {
+				consumer.accept(k, timedValue.value, ttl);
+			}
+		});
+	}
+
+	/**
+	 * guava can not set the ttl per entry, the write time is back-dated so that the entry is dropped on read after
+	 * the remaining ttl, and its age for refresh-ahead counts from the original write
+	 */
+	@Override
+	protected void restore(K k, V v, long ttlNanos) {
+		super.put(k, v);
+		long ttl = Math.min(ttlNanos, expireIntervalNanos);
+		cache.put(k, new TimedValue<>(v, System.nanoTime() - expireIntervalNanos + ttl));
 	}
 
 	@Override
 	public void remove(K k) {
+		trace(TraceOp.REMOVE, k);
 		cache.invalidate(k);
 	}
 
 	@Override
 	public void removeIf(Predicate<? super K> predicate) {
-		cache.invalidateAll(keys().stream().filter(predicate).collect(Collectors.toSet()));
+		// the cached absences are removed too
+		cache.invalidateAll(cache.asMap().keySet().stream().filter(predicate).collect(Collectors.toSet()));
 	}
 
 	@Override
@@ -94,14 +326,80 @@ public class GuavaCacheHandler<K, V> extends AbstractCacheHandler<K, V> {
 		cache.invalidateAll();
 	}
 
+	/**
+	 * the cached absences are not counted
+	 */
 	@Override
 	public long size() {
 		cache.cleanUp();
-		return cache.size();
+		if (!isNegativeCachingEnabled()) {
+			return cache.size();
+		}
+		return cache.asMap().values().stream().filter(timedValue -> !isNullValue(timedValue.value)).count();
 	}
 
+	/**
+	 * the keys of cached absences are not included
+	 */
 	@Override
 	public Set<K> keys() {
-		return cache.asMap().keySet();
+		if (!isNegativeCachingEnabled()) {
+			return cache.asMap().keySet();
+		}
+		return cache.asMap().entrySet().stream()
+				.filter(entry -> !isNullValue(entry.getValue().value))
+				.map(Map.Entry::getKey)
+				.collect(Collectors.toSet());
+	}
+
+	/**
+	 * load by {@code mappingFunction} and record the latency
+	 *
+	 * @param k               key
+	 * @param mappingFunction function to load key and value
+	 * @return value
+	 */
+	private V timedLoad(K k, Function<? super K, ? extends V> mappingFunction) {
+		long start = System.nanoTime();
+		try {
+			return mappingFunction.apply(k);
+		} finally {
+			statsCounter().recordLoadLatency(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Value with its write time
+	 *
+	 * @param <V> generics of value
+	 */
+	private static final class TimedValue<V> {
+
+		/**
+		 * value
+		 */
+		private final V value;
+
+		/**
+		 * write time, ns
+		 */
+		private final long writeNanos;
+
+		private TimedValue(V value) {
+			this(value, System.nanoTime());
+		}
+
+		private TimedValue(V value, long writeNanos) {
+			this.value = value;
+			this.writeNanos = writeNanos;
+		}
+
+		private static <V> TimedValue<V> wrap(V value) {
+			return value == null ? null : new TimedValue<>(value);
+		}
+
+		private static <V> V unwrap(TimedValue<V> timedValue) {
+			return timedValue == null ? null : timedValue.value;
+		}
 	}
 }
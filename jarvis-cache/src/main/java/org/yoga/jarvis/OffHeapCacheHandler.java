@@ -0,0 +1,664 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis;
+
+import org.yoga.jarvis.codec.CacheCodec;
+import org.yoga.jarvis.trace.TraceOp;
+import org.yoga.jarvis.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * @Description: Cache Handler storing values off heap
+ * <p>
+ * Values are encoded by the codec and stored in direct {@link ByteBuffer} pages. The cache is split into segments,
+ * each with its own lock, pages and an on-heap LRU index of keys. A page is carved into chunks of one size class
+ * (64 bytes to page size, powers of two), a value larger than a page spans several page-sized chunks.
+ * The total size of pages is bounded by {@code maximumBytes}, the least recently used entries of the segment are
+ * evicted when no chunk is available. A page whose chunks are all free goes back to the segment and may serve
+ * another size class.
+ * @Author: yoga
+ * @Date: 2026/10/18 18:05
+ */
+public class OffHeapCacheHandler<K, V> extends AbstractCacheHandler<K, V> implements AutoCloseable {
+
+    /**
+     * default page size, 1 MB
+     */
+    private static final int DEFAULT_PAGE_SIZE = 1 << 20;
+
+    /**
+     * the size of the smallest chunk
+     */
+    private static final int MIN_CHUNK_SIZE = 64;
+
+    /**
+     * the bytes read for a cached absence, compared by identity
+     */
+    private static final byte[] NULL_BYTES = new byte[0];
+
+    /**
+     * segments, the length is a power of 2
+     */
+    private final Segment<K>[] segments;
+
+    /**
+     * segment mask
+     */
+    private final int segmentMask;
+
+    /**
+     * page size
+     */
+    private final int pageSize;
+
+    /**
+     * expire interval, ns
+     */
+    private final long expireIntervalNanos;
+
+    /**
+     * value codec
+     */
+    private final CacheCodec<V> codec;
+
+    public OffHeapCacheHandler(long maximumBytes, long expireIntervalSeconds, CacheCodec<V> codec) {
+        this(defaultSegmentCount(maximumBytes), DEFAULT_PAGE_SIZE, maximumBytes, expireIntervalSeconds, codec);
+    }
+
+    /**
+     * @param segmentCount          the number of segments, a power of 2
+     * @param pageSize              page size in bytes, a power of 2 not less than 64
+     * @param maximumBytes          maximum of the total size of pages
+     * @param expireIntervalSeconds expire interval seconds
+     * @param codec                 value codec
+     */
+    public OffHeapCacheHandler(int segmentCount, int pageSize, long maximumBytes, long expireIntervalSeconds,
+                               CacheCodec<V> codec) {
+        this(segmentCount, pageSize, maximumBytes, expireIntervalSeconds, 0, codec);
+    }
+
+    /**
+     * the absences returned by loaders are cached for {@code negativeTtlSeconds}, they take an index entry only
+     *
+     * @param segmentCount          the number of segments, a power of 2
+     * @param pageSize              page size in bytes, a power of 2 not less than 64
+     * @param maximumBytes          maximum of the total size of pages
+     * @param expireIntervalSeconds expire interval seconds
+     * @param negativeTtlSeconds    the time to live of a cached absence, 0 if absences are not cached
+     * @param codec                 value codec
+     */
+    @SuppressWarnings("unchecked")
+    public OffHeapCacheHandler(int segmentCount, int pageSize, long maximumBytes, long expireIntervalSeconds,
+                               long negativeTtlSeconds, CacheCodec<V> codec) {
+        super(0, negativeTtlSeconds, TimeUnit.SECONDS);
+        Assert.isTrue(segmentCount > 0 && Integer.bitCount(segmentCount) == 1, "segmentCount must be a power of 2!");
+        Assert.isTrue(pageSize >= MIN_CHUNK_SIZE && Integer.bitCount(pageSize) == 1,
+                "pageSize must be a power of 2 not less than " + MIN_CHUNK_SIZE + "!");
+        Assert.isTrue(maximumBytes >= (long) segmentCount * pageSize,
+                "maximumBytes must not be less than segmentCount * pageSize!");
+        Assert.isTrue(expireIntervalSeconds > 0, "expireIntervalSeconds must be greater than 0!");
+        Assert.notNull(codec, "codec must not be null!");
+        this.pageSize = pageSize;
+        this.expireIntervalNanos = TimeUnit.SECONDS.toNanos(expireIntervalSeconds);
+        this.codec = codec;
+        int maxPagesPerSegment = (int) Math.min(Integer.MAX_VALUE, maximumBytes / pageSize / segmentCount);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(pageSize, maxPagesPerSegment);
+        }
+        this.segmentMask = segmentCount - 1;
+    }
+
+    @Override
+    public void put(K k, V v) {
+        super.put(k, v);
+        doPut(k, v, System.nanoTime() + expireIntervalNanos);
+    }
+
+    @Override
+    protected void restore(K k, V v, long ttlNanos) {
+        super.put(k, v);
+        doPut(k, v, System.nanoTime() + Math.min(ttlNanos, expireIntervalNanos));
+    }
+
+    @Override
+    protected void putNullValue(K k) {
+        Segment<K> segment = segmentFor(k);
+        segment.lock.lock();
+        try {
+            segment.putNull(k, System.nanoTime() + Math.min(negativeTtlNanos(), expireIntervalNanos));
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * the bytes of a segment are copied under its lock, then decoded and visited outside the lock
+     */
+    @Override
+    protected void forEachEntry(EntryConsumer<K, V> consumer) {
+        for (Segment<K> segment : segments) {
+            List<K> keys = new ArrayList<>();
+            List<byte[]> values = new ArrayList<>();
+            List<Long> expireAts = new ArrayList<>();
+            long now;
+            segment.lock.lock();
+            try {
+                now = System.nanoTime();
+                // iterating does not change the access order
+                segment.index.forEach((k, entry) -> {
+                    if (entry.expireAt - now > 0 && !entry.isNull()) {
+                        keys.add(k);
+                        values.add(segment.read(entry));
+                        expireAts.add(entry.expireAt);
+                    }
+                });
+            } finally {
+                segment.lock.unlock();
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                consumer.accept(keys.get(i), codec.decode(values.get(i)), expireAts.get(i) - now);
+            }
+        }
+    }
+
+    private void doPut(K k, V v, long expireAt) {
+        // encode outside the lock
+        byte[] bytes = codec.encode(v);
+        Segment<K> segment = segmentFor(k);
+        segment.lock.lock();
+        try {
+            int evicted = segment.put(k, bytes, expireAt);
+            for (int i = 0; i < evicted; i++) {
+                statsCounter().recordEviction();
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public V get(K k, Function<? super K, ? extends V> mappingFunction) {
+        V value = lookup(k);
+        if (isNullValue(value)) {
+            return null;
+        }
+        if (value != null) {
+            return value;
+        }
+        return load(k, mappingFunction);
+    }
+
+    @Override
+    protected V doGetIfPresent(K k) {
+        Segment<K> segment = segmentFor(k);
+        byte[] bytes;
+        segment.lock.lock();
+        try {
+            bytes = segment.get(k, System.nanoTime());
+        } finally {
+            segment.lock.unlock();
+        }
+        if (bytes == null) {
+            return null;
+        }
+        // decode outside the lock
+        return bytes == NULL_BYTES ? nullValue() : codec.decode(bytes);
+    }
+
+    @Override
+    public void remove(K k) {
+        trace(TraceOp.REMOVE, k);
+        Segment<K> segment = segmentFor(k);
+        segment.lock.lock();
+        try {
+            segment.remove(k);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public void removeIf(Predicate<? super K> predicate) {
+        for (Segment<K> segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.removeIf(predicate);
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        removeIf(k -> true);
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Segment<K> segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.index.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public Set<K> keys() {
+        Set<K> keys = new HashSet<>();
+        for (Segment<K> segment : segments) {
+            segment.lock.lock();
+            try {
+                keys.addAll(segment.index.keySet());
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * the total size of allocated pages
+     *
+     * @return bytes
+     */
+    public long allocatedBytes() {
+        long pages = 0;
+        for (Segment<K> segment : segments) {
+            segment.lock.lock();
+            try {
+                pages += segment.allocatedPages;
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return pages * pageSize;
+    }
+
+    /**
+     * release all entries and pages, the direct memory is freed when the pages are garbage-collected
+     */
+    @Override
+    public void close() {
+        for (Segment<K> segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.release();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    private Segment<K> segmentFor(K k) {
+        int h = k.hashCode();
+        return segments[(h ^ (h >>> 16)) & segmentMask];
+    }
+
+    /**
+     * about 2 segments per cpu, each segment has at least 4 pages
+     *
+     * @param maximumBytes maximum bytes
+     * @return segment count, a power of 2
+     */
+    private static int defaultSegmentCount(long maximumBytes) {
+        long maxSegments = Math.max(1, maximumBytes / DEFAULT_PAGE_SIZE / 4);
+        int segments = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2);
+        while (segments > maxSegments) {
+            segments >>>= 1;
+        }
+        return Math.max(1, segments);
+    }
+
+    /**
+     * Segment, all methods must be called with {@link #lock} held
+     *
+     * @param <K> generics of key
+     */
+    private static final class Segment<K> {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * key index in access order, the eldest is the least recently used
+         */
+        private final LinkedHashMap<K, Entry> index = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final int pageSize;
+
+        /**
+         * maximum of pages
+         */
+        private final int maxPages;
+
+        /**
+         * allocated pages, a page keeps its index for life
+         */
+        private Page[] pages = new Page[0];
+
+        /**
+         * the number of allocated pages
+         */
+        private int allocatedPages;
+
+        /**
+         * pages not assigned to a size class
+         */
+        private final ArrayDeque<Page> freePages = new ArrayDeque<>();
+
+        /**
+         * the pages having free chunks, per size class
+         */
+        private final LinkedHashSet<Page>[] partialPages;
+
+        @SuppressWarnings("unchecked")
+        private Segment(int pageSize, int maxPages) {
+            this.pageSize = pageSize;
+            this.maxPages = maxPages;
+            int classes = Integer.numberOfTrailingZeros(pageSize) - Integer.numberOfTrailingZeros(MIN_CHUNK_SIZE) + 1;
+            this.partialPages = new LinkedHashSet[classes];
+            for (int i = 0; i < classes; i++) {
+                partialPages[i] = new LinkedHashSet<>();
+            }
+        }
+
+        /**
+         * store bytes, evicting the least recently used entries if no chunk is available
+         * the value is not cached if it can not fit into the segment at all
+         *
+         * @return the number of evicted entries
+         */
+        private int put(K k, byte[] bytes, long expireAt) {
+            remove(k);
+            int sizeClass;
+            int chunkCount;
+            if (bytes.length > pageSize) {
+                sizeClass = partialPages.length - 1;
+                chunkCount = (bytes.length + pageSize - 1) / pageSize;
+            } else {
+                sizeClass = sizeClassOf(bytes.length);
+                chunkCount = 1;
+            }
+            if (chunkCount > maxPages) {
+                return 0;
+            }
+            long[] chunks = new long[chunkCount];
+            int evicted = 0;
+            for (int i = 0; i < chunkCount; i++) {
+                long chunk;
+                while ((chunk = allocate(sizeClass)) < 0) {
+                    if (index.isEmpty()) {
+                        // fragmented by the chunks of this value, give up
+                        for (int j = 0; j < i; j++) {
+                            free(chunks[j]);
+                        }
+                        return evicted;
+                    }
+                    Iterator<Entry> eldest = index.values().iterator();
+                    Entry entry = eldest.next();
+                    eldest.remove();
+                    freeAll(entry);
+                    evicted++;
+                }
+                chunks[i] = chunk;
+            }
+            write(chunks, bytes);
+            index.put(k, new Entry(chunks, bytes.length, expireAt));
+            return evicted;
+        }
+
+        /**
+         * store an absence, it takes no chunk
+         */
+        private void putNull(K k, long expireAt) {
+            remove(k);
+            index.put(k, new Entry(Entry.NO_CHUNKS, Entry.NULL_LENGTH, expireAt));
+        }
+
+        private byte[] get(K k, long now) {
+            Entry entry = index.get(k);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expireAt - now <= 0) {
+                index.remove(k);
+                freeAll(entry);
+                return null;
+            }
+            return entry.isNull() ? NULL_BYTES : read(entry);
+        }
+
+        private void remove(K k) {
+            Entry entry = index.remove(k);
+            if (entry != null) {
+                freeAll(entry);
+            }
+        }
+
+        private void removeIf(Predicate<? super K> predicate) {
+            Iterator<Map.Entry<K, Entry>> iterator = index.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<K, Entry> entry = iterator.next();
+                if (predicate.test(entry.getKey())) {
+                    iterator.remove();
+                    freeAll(entry.getValue());
+                }
+            }
+        }
+
+        private void release() {
+            index.clear();
+            freePages.clear();
+            for (LinkedHashSet<Page> partial : partialPages) {
+                partial.clear();
+            }
+            pages = new Page[0];
+            allocatedPages = 0;
+        }
+
+        private int sizeClassOf(int length) {
+            int chunkSize = Math.max(MIN_CHUNK_SIZE, Integer.highestOneBit(Math.max(1, length - 1)) << 1);
+            return Integer.numberOfTrailingZeros(chunkSize) - Integer.numberOfTrailingZeros(MIN_CHUNK_SIZE);
+        }
+
+        /**
+         * allocate a chunk of size class
+         *
+         * @return chunk address, page index in the high 32 bits and offset in the low 32 bits, -1 if none available
+         */
+        private long allocate(int sizeClass) {
+            LinkedHashSet<Page> partial = partialPages[sizeClass];
+            Page page;
+            if (partial.isEmpty()) {
+                page = freePages.poll();
+                if (page == null) {
+                    if (allocatedPages == maxPages) {
+                        return -1;
+                    }
+                    page = newPage();
+                }
+                page.assign(MIN_CHUNK_SIZE << sizeClass, sizeClass);
+                partial.add(page);
+            } else {
+                page = partial.iterator().next();
+            }
+            int offset = page.freeOffsets[--page.freeCount];
+            if (page.freeCount == 0) {
+                partial.remove(page);
+            }
+            return (long) page.index << 32 | offset;
+        }
+
+        private void free(long chunk) {
+            Page page = pages[(int) (chunk >>> 32)];
+            if (page.freeCount == 0) {
+                partialPages[page.sizeClass].add(page);
+            }
+            page.freeOffsets[page.freeCount++] = (int) chunk;
+            if (page.freeCount == page.freeOffsets.length) {
+                // the page is empty, give it back so that another size class may use it
+                partialPages[page.sizeClass].remove(page);
+                freePages.push(page);
+            }
+        }
+
+        private void freeAll(Entry entry) {
+            for (long chunk : entry.chunks) {
+                free(chunk);
+            }
+        }
+
+        private Page newPage() {
+            if (allocatedPages == pages.length) {
+                Page[] newPages = new Page[Math.min(maxPages, Math.max(4, pages.length * 2))];
+                System.arraycopy(pages, 0, newPages, 0, allocatedPages);
+                pages = newPages;
+            }
+            Page page = new Page(ByteBuffer.allocateDirect(pageSize), allocatedPages);
+            pages[allocatedPages++] = page;
+            return page;
+        }
+
+        private void write(long[] chunks, byte[] bytes) {
+            int written = 0;
+            for (long chunk : chunks) {
+                ByteBuffer buffer = pages[(int) (chunk >>> 32)].buffer;
+                int length = Math.min(pageSize, bytes.length - written);
+                buffer.position((int) chunk);
+                buffer.put(bytes, written, length);
+                written += length;
+            }
+        }
+
+        private byte[] read(Entry entry) {
+            byte[] bytes = new byte[entry.length];
+            int read = 0;
+            for (long chunk : entry.chunks) {
+                ByteBuffer buffer = pages[(int) (chunk >>> 32)].buffer;
+                int length = Math.min(pageSize, bytes.length - read);
+                buffer.position((int) chunk);
+                buffer.get(bytes, read, length);
+                read += length;
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Page of direct memory
+     */
+    private static final class Page {
+
+        private final ByteBuffer buffer;
+
+        /**
+         * the index in segment
+         */
+        private final int index;
+
+        /**
+         * the size class currently served
+         */
+        private int sizeClass;
+
+        /**
+         * the offsets of free chunks, the first {@link #freeCount} are valid
+         */
+        private int[] freeOffsets;
+
+        private int freeCount;
+
+        private Page(ByteBuffer buffer, int index) {
+            this.buffer = buffer;
+            this.index = index;
+        }
+
+        /**
+         * carve the page into free chunks of size class
+         */
+        private void assign(int chunkSize, int sizeClass) {
+            int chunkCount = buffer.capacity() / chunkSize;
+            this.sizeClass = sizeClass;
+            if (freeOffsets == null || freeOffsets.length != chunkCount) {
+                freeOffsets = new int[chunkCount];
+            }
+            // the lowest offset is allocated first
+            for (int i = 0; i < chunkCount; i++) {
+                freeOffsets[i] = (chunkCount - 1 - i) * chunkSize;
+            }
+            freeCount = chunkCount;
+        }
+    }
+
+    /**
+     * Index Entry
+     */
+    private static final class Entry {
+
+        private static final long[] NO_CHUNKS = new long[0];
+
+        /**
+         * the length of a cached absence
+         */
+        private static final int NULL_LENGTH = -1;
+
+        /**
+         * the addresses of chunks in write order
+         */
+        private final long[] chunks;
+
+        /**
+         * the length of bytes
+         */
+        private final int length;
+
+        /**
+         * expire time, ns
+         */
+        private final long expireAt;
+
+        private Entry(long[] chunks, int length, long expireAt) {
+            this.chunks = chunks;
+            this.length = length;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isNull() {
+            return length == NULL_LENGTH;
+        }
+    }
+}
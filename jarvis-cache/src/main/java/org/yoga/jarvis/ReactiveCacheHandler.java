@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * @Description: Reactive Cache Handler, adapts {@link AsyncCacheHandler} to reactor for webflux callers
+ * nothing is executed until the returned {@link Mono} is subscribed
+ * @Author: yoga
+ * @Date: 2026/10/18 15:20
+ */
+public class ReactiveCacheHandler<K, V> {
+
+    private final AsyncCacheHandler<K, V> asyncCacheHandler;
+
+    public ReactiveCacheHandler(AsyncCacheHandler<K, V> asyncCacheHandler) {
+        this.asyncCacheHandler = asyncCacheHandler;
+    }
+
+    /**
+     * add cache
+     *
+     * @param k key, not null
+     * @param v value, not null
+     * @return completed when the value is stored
+     */
+    public Mono<Void> put(K k, V v) {
+        return Mono.defer(() -> Mono.fromFuture(asyncCacheHandler.putAsync(k, v)));
+    }
+
+    /**
+     * get cache, load by {@code mappingFunction} if absent
+     *
+     * @param k               key, not null
+     * @param mappingFunction function to load key and value
+     * @return value, empty if absent and not loaded
+     */
+    public Mono<V> get(K k, Function<? super K, ? extends Mono<? extends V>> mappingFunction) {
+        return Mono.defer(() -> Mono.fromFuture(asyncCacheHandler.getAsync(k, key -> mappingFunction.apply(key).toFuture())));
+    }
+
+    /**
+     * get cache
+     *
+     * @param k key, not null
+     * @return value, empty if absent
+     */
+    public Mono<V> getIfPresent(K k) {
+        return Mono.defer(() -> Mono.fromFuture(asyncCacheHandler.getIfPresentAsync(k)));
+    }
+
+    /**
+     * get caches of keys, the absent keys are loaded by one call of {@code bulkLoader}
+     *
+     * @param keys       keys, not null
+     * @param bulkLoader function to load the absent keys and values
+     * @return present and loaded values
+     */
+    public Mono<Map<K, V>> getAll(Collection<? extends K> keys, Function<? super Set<K>, ? extends Mono<? extends Map<K, V>>> bulkLoader) {
+        return Mono.defer(() -> Mono.fromFuture(asyncCacheHandler.getAllAsync(keys, absentKeys -> bulkLoader.apply(absentKeys).toFuture())));
+    }
+
+    /**
+     * remove cache
+     *
+     * @param k key
+     * @return completed when the value is removed
+     */
+    public Mono<Void> remove(K k) {
+        return Mono.defer(() -> Mono.fromFuture(asyncCacheHandler.removeAsync(k)));
+    }
+}
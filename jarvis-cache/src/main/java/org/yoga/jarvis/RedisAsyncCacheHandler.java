@@ -0,0 +1,123 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis;
+
+import io.lettuce.core.KeyValue;
+import org.yoga.jarvis.codec.CacheCodec;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * @Description: Async Cache Handler implemented by redis
+ * it shares the connection, key and value format of {@link RedisCacheHandler}
+ * @Author: yoga
+ * @Date: 2026/10/18 14:48
+ */
+public class RedisAsyncCacheHandler<K, V> extends AbstractAsyncCacheHandler<K, V> {
+
+    /**
+     * the redis cache handler that owns the connection
+     */
+    private final RedisCacheHandler<K, V> redisCacheHandler;
+
+    public RedisAsyncCacheHandler(String host, int port, long expiredTime) {
+        this(new RedisCacheHandler<>(host, port, expiredTime));
+    }
+
+    public RedisAsyncCacheHandler(String host, int port, String namespace, long expiredTime) {
+        this(new RedisCacheHandler<>(host, port, namespace, expiredTime));
+    }
+
+    public RedisAsyncCacheHandler(String host, int port, String namespace, long expiredTime, CacheCodec<V> codec) {
+        this(new RedisCacheHandler<>(host, port, namespace, expiredTime, codec));
+    }
+
+    public RedisAsyncCacheHandler(RedisCacheHandler<K, V> redisCacheHandler) {
+        this.redisCacheHandler = redisCacheHandler;
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(K k, V v) {
+        super.putAsync(k, v);
+        return redisCacheHandler.asyncCommands().setex(redisCacheHandler.redisKey(k), redisCacheHandler.expiredTime(), redisCacheHandler.serialize(v))
+                .toCompletableFuture()
+                .thenApply(ok -> null);
+    }
+
+    @Override
+    public CompletableFuture<V> getAsync(K k, Function<? super K, ? extends CompletableFuture<? extends V>> mappingFunction) {
+        return getIfPresentAsync(k).thenCompose(v -> v != null ? CompletableFuture.completedFuture(v) : loadAsync(k, mappingFunction));
+    }
+
+    @Override
+    public CompletableFuture<V> getIfPresentAsync(K k) {
+        return redisCacheHandler.asyncCommands().get(redisCacheHandler.redisKey(k))
+                .toCompletableFuture()
+                .thenApply(redisCacheHandler::deserialize);
+    }
+
+    @Override
+    public CompletableFuture<Map<K, V>> getAllAsync(Collection<? extends K> keys,
+                                                    Function<? super Set<K>, ? extends CompletableFuture<? extends Map<K, V>>> bulkLoader) {
+        List<K> keyList = new ArrayList<>(new LinkedHashSet<>(keys));
+        if (keyList.isEmpty()) {
+            return CompletableFuture.completedFuture(new HashMap<>());
+        }
+        String[] redisKeys = keyList.stream().map(redisCacheHandler::redisKey).toArray(String[]::new);
+        return redisCacheHandler.asyncCommands().mget(redisKeys).toCompletableFuture().thenCompose(keyValues -> {
+            Map<K, V> result = new HashMap<>(keyList.size());
+            Set<K> absentKeys = new LinkedHashSet<>();
+            // the values of mget are in the order of keys
+            for (int i = 0; i < keyList.size(); i++) {
+                KeyValue<String, byte[]> keyValue = keyValues.get(i);
+                if (keyValue.hasValue()) {
+                    result.put(keyList.get(i), redisCacheHandler.deserialize(keyValue.getValue()));
+                } else {
+                    absentKeys.add(keyList.get(i));
+                }
+            }
+            if (absentKeys.isEmpty()) {
+                return CompletableFuture.completedFuture(result);
+            }
+            return bulkLoader.apply(absentKeys).thenCompose(loaded -> {
+                List<CompletableFuture<Void>> puts = new ArrayList<>(loaded.size());
+                loaded.forEach((k, v) -> {
+                    if (v != null) {
+                        result.put(k, v);
+                        puts.add(putAsync(k, v));
+                    }
+                });
+                return CompletableFuture.allOf(puts.toArray(new CompletableFuture[0])).thenApply(ignore -> result);
+            });
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(K k) {
+        return redisCacheHandler.asyncCommands().del(redisCacheHandler.redisKey(k))
+                .toCompletableFuture()
+                .thenApply(count -> null);
+    }
+}
@@ -16,14 +16,44 @@
 
 package org.yoga.jarvis;
 
-import io.lettuce.core.RedisClient;
+import com.google.common.collect.Iterators;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanIterator;
+import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
 import org.jetbrains.annotations.NotNull;
+import org.yoga.jarvis.bean.RedisConnectionConfigs;
+import org.yoga.jarvis.codec.CacheCodec;
+import org.yoga.jarvis.codec.StringCacheCodec;
+import org.yoga.jarvis.exception.JarvisException;
+import org.yoga.jarvis.factory.ThreadFactoryBuilder;
+import org.yoga.jarvis.redis.RedisConnectionProvider;
+import org.yoga.jarvis.trace.TraceOp;
+import org.yoga.jarvis.util.Assert;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 /**
  * @Description: Cache Handler implemented by redis
@@ -31,97 +61,496 @@ import java.util.stream.Collectors;
  * @Date: 2024/5/9 16:41
  */
 @SuppressWarnings("unchecked")
-public class RedisCacheHandler<K, V> extends AbstractCacheHandler<K, V> {
+public class RedisCacheHandler<K, V> extends AbstractCacheHandler<K, V> implements AutoCloseable {
 
     /**
-     * redis client
+     * default namespace
      */
-    private final RedisClient redisClient;
+    public static final String DEFAULT_NAMESPACE = "jarvis";
 
     /**
-     * commands
+     * the number of keys per SCAN and per UNLINK
      */
-    private final RedisCommands<String, String> commands;
+    private static final int BATCH_SIZE = 512;
+
+    /**
+     * the interval of recounting size, ms
+     */
+    private static final long SIZE_REFRESH_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * the separator between namespace and key, a namespace must not contain it, so no namespace is a prefix of
+     * another one and a SCAN of one namespace never matches the keys of a nested one
+     */
+    private static final char SEPARATOR = ':';
+
+    /**
+     * the thread counting sizes, shared by all handlers, so {@link #size()} never scans on the caller's thread
+     */
+    private static final ExecutorService SIZE_COUNTER = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("jarvis-redis-size-%d").setDaemon(true).build());
+
+    /**
+     * the bytes stored for a cached absence, reserved, a codec must not encode a value to them
+     */
+    private static final byte[] NULL_BYTES = "\0jarvis:null\0".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * connection provider
+     */
+    private final RedisConnectionProvider connectionProvider;
+
+    /**
+     * whether the connection provider is created and closed by this handler
+     */
+    private final boolean ownsConnectionProvider;
 
     /**
      * expiredTime, ms
      */
     private final long expiredTime;
 
+    /**
+     * the prefix of keys, the keys of this handler are {@code namespace:key}, it contains no {@link #SEPARATOR}
+     */
+    private final String namespace;
+
+    /**
+     * the codec of values
+     */
+    private final CacheCodec<V> codec;
+
+    /**
+     * the size counted by the last scan
+     */
+    private final AtomicLong estimatedSize = new AtomicLong();
+
+    /**
+     * the time of the last size scan, ms
+     */
+    private volatile long sizeScannedAt;
+
+    /**
+     * whether a thread is counting size
+     */
+    private final AtomicBoolean sizeScanning = new AtomicBoolean(false);
+
     public RedisCacheHandler(String host, int port, long expiredTime) {
-        this.redisClient = RedisClient.create("redis://" + host + ":" + port);
-        this.commands = redisClient.connect().sync();
+        this(host, port, DEFAULT_NAMESPACE, expiredTime);
+    }
+
+    public RedisCacheHandler(String host, int port, String namespace, long expiredTime) {
+        this(host, port, namespace, expiredTime, (CacheCodec<V>) StringCacheCodec.INSTANCE);
+    }
+
+    public RedisCacheHandler(String host, int port, String namespace, long expiredTime, CacheCodec<V> codec) {
+        this(host, port, namespace, expiredTime, codec, new RedisConnectionConfigs());
+    }
+
+    public RedisCacheHandler(String host, int port, String namespace, long expiredTime, CacheCodec<V> codec,
+                             RedisConnectionConfigs connectionConfigs) {
+        this(host, port, namespace, expiredTime, 0, codec, connectionConfigs);
+    }
+
+    /**
+     * @param host                host
+     * @param port                port
+     * @param namespace           the prefix of keys
+     * @param expiredTime         expiredTime
+     * @param negativeExpiredTime the expiredTime of a cached absence, 0 if absences are not cached
+     * @param codec               the codec of values
+     * @param connectionConfigs   connection configs
+     */
+    public RedisCacheHandler(String host, int port, String namespace, long expiredTime, long negativeExpiredTime,
+                             CacheCodec<V> codec, RedisConnectionConfigs connectionConfigs) {
+        this(new RedisConnectionProvider(host, port, connectionConfigs), true, namespace, expiredTime,
+                negativeExpiredTime, codec);
+    }
+
+    /**
+     * share the connections of provider, the provider is not closed by this handler
+     *
+     * @param connectionProvider connection provider
+     * @param namespace          the prefix of keys
+     * @param expiredTime        expiredTime
+     * @param codec              the codec of values
+     */
+    public RedisCacheHandler(RedisConnectionProvider connectionProvider, String namespace, long expiredTime,
+                             CacheCodec<V> codec) {
+        this(connectionProvider, namespace, expiredTime, 0, codec);
+    }
+
+    /**
+     * share the connections of provider, the provider is not closed by this handler
+     *
+     * @param connectionProvider  connection provider
+     * @param namespace           the prefix of keys
+     * @param expiredTime         expiredTime
+     * @param negativeExpiredTime the expiredTime of a cached absence, 0 if absences are not cached
+     * @param codec               the codec of values
+     */
+    public RedisCacheHandler(RedisConnectionProvider connectionProvider, String namespace, long expiredTime,
+                             long negativeExpiredTime, CacheCodec<V> codec) {
+        this(connectionProvider, false, namespace, expiredTime, negativeExpiredTime, codec);
+    }
+
+    private RedisCacheHandler(RedisConnectionProvider connectionProvider, boolean ownsConnectionProvider,
+                              String namespace, long expiredTime, long negativeExpiredTime, CacheCodec<V> codec) {
+        super(0, negativeExpiredTime, TimeUnit.SECONDS);
+        Assert.notNull(connectionProvider, "connectionProvider must not be null!");
+        Assert.notBlank(namespace, "namespace must not be blank!");
+        Assert.isTrue(namespace.indexOf(SEPARATOR) < 0, "namespace must not contain '" + SEPARATOR + "'!");
+        Assert.notNull(codec, "codec must not be null!");
+        this.connectionProvider = connectionProvider;
+        this.ownsConnectionProvider = ownsConnectionProvider;
+        this.namespace = namespace;
         this.expiredTime = expiredTime;
+        this.codec = codec;
     }
 
     @Override
     public void put(K k, V v) {
         super.put(k, v);
-        String serializedVal = serialize(v);
-        commands.setex(k.toString(), expiredTime, serializedVal);
+        commands().setex(redisKey(k), expiredTime, serialize(v));
+    }
+
+    @Override
+    protected void restore(K k, V v, long ttlNanos) {
+        super.put(k, v);
+        long ttl = Math.max(1, Math.min(TimeUnit.NANOSECONDS.toSeconds(ttlNanos), expiredTime));
+        commands().setex(redisKey(k), ttl, serialize(v));
+    }
+
+    @Override
+    protected void putNullValue(K k) {
+        commands().setex(redisKey(k), negativeExpiredTime(), NULL_BYTES);
+    }
+
+    /**
+     * pipelined like {@link #putAll(Map)}
+     */
+    @Override
+    protected void putNullValues(Collection<? extends K> keys) {
+        RedisAsyncCommands<String, byte[]> asyncCommands = asyncCommands();
+        long negativeExpiredTime = negativeExpiredTime();
+        RedisFuture<?>[] futures = new RedisFuture<?>[keys.size()];
+        int i = 0;
+        for (K k : keys) {
+            futures[i++] = asyncCommands.setex(redisKey(k), negativeExpiredTime, NULL_BYTES);
+        }
+        if (!LettuceFutures.awaitAll(connectionProvider.timeout(), futures)) {
+            throw new JarvisException("redis putNullValues timeout!");
+        }
     }
 
     @Override
     public V get(@NotNull K k, @NotNull Function<? super K, ? extends V> mappingFunction) {
-        String value = commands.get(k.toString());
-        if (value != null) {
-            return deserialize(value);
+        V value = lookup(k);
+        if (isNullValue(value)) {
+            return null;
         }
-        V newVal = mappingFunction.apply(k);
-        if (newVal != null) {
-            super.put(k, newVal);
-            String serializedVal = serialize(newVal);
-            commands.setex(k.toString(), expiredTime, serializedVal);
-            return newVal;
+        if (value != null) {
+            return value;
         }
-        return null;
+        return load(k, mappingFunction);
     }
 
     @Override
-    public V getIfPresent(K k) {
-        String value = commands.get(k.toString());
+    protected V doGetIfPresent(K k) {
+        byte[] value = commands().get(redisKey(k));
+        if (isNullBytes(value)) {
+            return nullValue();
+        }
         if (value != null) {
             return deserialize(value);
         }
         return null;
     }
 
+    @Override
+    public Map<K, V> getAll(@NotNull Collection<? extends K> keys,
+                            @NotNull Function<? super Set<K>, ? extends Map<K, V>> bulkLoader) {
+        Assert.notNull(keys, "keys must not be null!");
+        Assert.notNull(bulkLoader, "bulkLoader must not be null!");
+        trace(TraceOp.READ, keys);
+        List<K> distinctKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        Map<K, V> result = new HashMap<>(distinctKeys.size());
+        if (distinctKeys.isEmpty()) {
+            return result;
+        }
+        // one MGET for all keys, the values are in the order of keys
+        List<KeyValue<String, byte[]>> values = commands().mget(distinctKeys.stream().map(this::redisKey).toArray(String[]::new));
+        Set<K> absentKeys = new LinkedHashSet<>();
+        int negativeHits = 0;
+        for (int i = 0; i < distinctKeys.size(); i++) {
+            KeyValue<String, byte[]> value = values.get(i);
+            if (!value.hasValue()) {
+                absentKeys.add(distinctKeys.get(i));
+            } else if (isNullBytes(value.getValue())) {
+                negativeHits++;
+            } else {
+                result.put(distinctKeys.get(i), deserialize(value.getValue()));
+            }
+        }
+        statsCounter().recordHits(result.size());
+        statsCounter().recordNegativeHits(negativeHits);
+        statsCounter().recordMisses(absentKeys.size());
+        if (!absentKeys.isEmpty()) {
+            Map<K, V> loaded = loadAll(absentKeys, bulkLoader);
+            putAll(loaded);
+            cacheAbsences(absentKeys, loaded);
+            result.putAll(loaded);
+        }
+        return result;
+    }
+
+    @Override
+    public void putAll(@NotNull Map<? extends K, ? extends V> map) {
+        Assert.notNull(map, "map must not be null!");
+        trace(TraceOp.WRITE, map.keySet());
+        if (map.isEmpty()) {
+            return;
+        }
+        // pipelined, the commands are written without waiting for the replies of previous ones
+        RedisAsyncCommands<String, byte[]> asyncCommands = asyncCommands();
+        RedisFuture<?>[] futures = new RedisFuture<?>[map.size()];
+        int i = 0;
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            Assert.notNull(entry.getKey(), "key must not be null!");
+            Assert.notNull(entry.getValue(), "value must not be null!");
+            futures[i++] = asyncCommands.setex(redisKey(entry.getKey()), expiredTime, serialize(entry.getValue()));
+        }
+        if (!LettuceFutures.awaitAll(connectionProvider.timeout(), futures)) {
+            throw new JarvisException("redis putAll timeout!");
+        }
+    }
+
     @Override
     public void remove(K k) {
-        commands.del(k.toString());
+        trace(TraceOp.REMOVE, k);
+        commands().del(redisKey(k));
     }
 
     @Override
     public void removeIf(Predicate<? super K> predicate) {
-        commands.del(keys().stream().filter(predicate).map(Object::toString).toArray(String[]::new));
+        unlink(Iterators.filter(keyIterator(), predicate::test));
     }
 
+    /**
+     * remove the keys of this namespace only
+     */
     @Override
     public void clear() {
-        commands.flushall();
+        unlink(keyIterator());
+        estimatedSize.set(0);
     }
 
+    /**
+     * the number of keys counted by the last scan, 0 before the first scan completes
+     * a stale count triggers a recount in background at most once per {@link #SIZE_REFRESH_INTERVAL_MS}, the caller
+     * never waits for it. It is an estimate, entries may expire or be added by others between two scans
+     */
     @Override
     public long size() {
-        return commands.keys("*").size();
+        if (System.currentTimeMillis() - sizeScannedAt >= SIZE_REFRESH_INTERVAL_MS
+                && sizeScanning.compareAndSet(false, true)) {
+            try {
+                SIZE_COUNTER.execute(this::countSize);
+            } catch (RuntimeException e) {
+                sizeScanning.set(false);
+                throw e;
+            }
+        }
+        return estimatedSize.get();
+    }
+
+    /**
+     * count the keys of this namespace by SCAN, run by {@link #SIZE_COUNTER}
+     */
+    private void countSize() {
+        try {
+            long count = 0;
+            for (Iterator<String> it = scan(); it.hasNext(); it.next()) {
+                count++;
+            }
+            estimatedSize.set(count);
+        } finally {
+            // a failed scan is retried after the interval too
+            sizeScannedAt = System.currentTimeMillis();
+            sizeScanning.set(false);
+        }
     }
 
     @Override
     public Set<K> keys() {
-        return commands.keys("*").stream().map(key -> (K) key).collect(Collectors.toSet());
+        Set<K> keys = new HashSet<>();
+        keyIterator().forEachRemaining(keys::add);
+        return keys;
+    }
+
+    /**
+     * iterate the keys of this namespace by SCAN, the keys are fetched batch by batch while iterating
+     * a key may be returned more than once if the keyspace is rehashed during iteration
+     *
+     * @return key iterator
+     */
+    public Iterator<K> keyIterator() {
+        return Iterators.transform(scan(), redisKey -> (K) redisKey.substring(namespace.length() + 1));
+    }
+
+    /**
+     * SCAN the redis keys of this namespace
+     *
+     * @return redis key iterator
+     */
+    private Iterator<String> scan() {
+        return ScanIterator.scan(commands(), ScanArgs.Builder.matches(escapeGlob(namespace) + SEPARATOR + "*").limit(BATCH_SIZE));
+    }
+
+    /**
+     * escape the characters of redis glob-style patterns, so the text only matches itself
+     *
+     * @param text text
+     * @return pattern
+     */
+    private static String escapeGlob(String text) {
+        StringBuilder pattern = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+                pattern.append('\\');
+            }
+            pattern.append(c);
+        }
+        return pattern.toString();
+    }
+
+    /**
+     * UNLINK keys batch by batch, the memory is reclaimed by redis in background
+     *
+     * @param keys keys
+     */
+    private void unlink(Iterator<K> keys) {
+        Iterators.partition(keys, BATCH_SIZE)
+                .forEachRemaining(batch -> commands().unlink(batch.stream().map(this::redisKey).toArray(String[]::new)));
+    }
+
+    /**
+     * close the connection provider if it is created by this handler
+     */
+    @Override
+    public void close() {
+        if (ownsConnectionProvider) {
+            connectionProvider.close();
+        }
     }
 
-    private String serialize(V value) {
+    /**
+     * sync commands of a connection of provider
+     *
+     * @return sync commands
+     */
+    private RedisCommands<String, byte[]> commands() {
+        return connectionProvider.connection().sync();
+    }
+
+    /**
+     * async commands of a connection of provider
+     *
+     * @return async commands
+     */
+    RedisAsyncCommands<String, byte[]> asyncCommands() {
+        return connectionProvider.connection().async();
+    }
+
+    /**
+     * a new pub/sub connection of the client of this handler
+     *
+     * @return pub/sub connection
+     */
+    StatefulRedisPubSubConnection<String, String> connectPubSub() {
+        return connectionProvider.connectPubSub();
+    }
+
+    /**
+     * the timeout of commands
+     *
+     * @return timeout
+     */
+    Duration timeout() {
+        return connectionProvider.timeout();
+    }
+
+    /**
+     * namespace
+     *
+     * @return namespace
+     */
+    String namespace() {
+        return namespace;
+    }
+
+    /**
+     * the key stored in redis
+     *
+     * @param k key
+     * @return redis key
+     */
+    String redisKey(K k) {
+        return namespace + SEPARATOR + k;
+    }
+
+    /**
+     * expiredTime
+     *
+     * @return expiredTime
+     */
+    long expiredTime() {
+        return expiredTime;
+    }
+
+    /**
+     * the expiredTime of a cached absence, at least 1 and at most expiredTime
+     *
+     * @return expiredTime
+     */
+    long negativeExpiredTime() {
+        return Math.max(1, Math.min(TimeUnit.NANOSECONDS.toSeconds(negativeTtlNanos()), expiredTime));
+    }
+
+    /**
+     * whether the bytes are stored for a cached absence
+     *
+     * @param bytes bytes, nullable
+     * @return true if it is an absence
+     */
+    static boolean isNullBytes(byte[] bytes) {
+        return Arrays.equals(bytes, NULL_BYTES);
+    }
+
+    /**
+     * encode value by codec
+     *
+     * @param value value
+     * @return bytes, null if value is null
+     */
+    byte[] serialize(V value) {
         if (value == null) {
             return null;
         }
-        return value.toString();
+        return codec.encode(value);
     }
 
-    private V deserialize(String value) {
-        if (value == null) {
+    /**
+     * decode bytes by codec
+     *
+     * @param bytes bytes
+     * @return value, null if bytes is null or a cached absence
+     */
+    V deserialize(byte[] bytes) {
+        if (bytes == null || isNullBytes(bytes)) {
             return null;
         }
-        return (V) value;
+        return codec.decode(bytes);
     }
 }
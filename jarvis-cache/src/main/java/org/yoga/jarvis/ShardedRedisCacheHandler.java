@@ -0,0 +1,554 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
+import org.jetbrains.annotations.NotNull;
+import org.yoga.jarvis.bean.RedisConnectionConfigs;
+import org.yoga.jarvis.codec.CacheCodec;
+import org.yoga.jarvis.exception.JarvisException;
+import org.yoga.jarvis.factory.ThreadFactoryBuilder;
+import org.yoga.jarvis.trace.TraceOp;
+import org.yoga.jarvis.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * @Description: Cache Handler sharding keys over several redis nodes
+ * <p>
+ * Every node owns {@code virtualNodes} points of a consistent hash ring (murmur3), a key belongs to the node of the
+ * first point clockwise from its hash. Adding or removing a node only moves the keys between its points and their
+ * predecessors, about 1/N of keys, the moved keys miss once and the entries left on the old node expire by ttl.
+ * Until they expire, a remove also deletes the key on its owners in the rings replaced within the last
+ * {@code expiredTime}, so a stale copy does not come back if the key moves back. A removed node is closed after
+ * a grace period, the threads still holding the previous ring finish their commands on it.
+ * The bulk operations are pipelined per node, all nodes in parallel.
+ * @Author: yoga
+ * @Date: 2026/10/18 19:55
+ */
+@SuppressWarnings("unchecked")
+public class ShardedRedisCacheHandler<K, V> extends AbstractCacheHandler<K, V> implements AutoCloseable {
+
+    /**
+     * default number of points per node
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    /**
+     * the delay of closing a removed node, longer than the timeout of any command started on the previous ring, ms
+     */
+    private static final long RETIRE_DELAY_MS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * the closer of removed nodes, shared by all handlers
+     */
+    private static final ScheduledExecutorService RETIRER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("jarvis-redis-retire-%d").setDaemon(true).build());
+
+    /**
+     * the prefix of keys
+     */
+    private final String namespace;
+
+    /**
+     * expiredTime, s
+     */
+    private final long expiredTime;
+
+    /**
+     * the expiredTime of a cached absence, s, 0 if absences are not cached
+     */
+    private final long negativeExpiredTime;
+
+    /**
+     * the codec of values
+     */
+    private final CacheCodec<V> codec;
+
+    /**
+     * the number of points per node
+     */
+    private final int virtualNodes;
+
+    /**
+     * the connection configs of each node
+     */
+    private final RedisConnectionConfigs connectionConfigs;
+
+    /**
+     * nodes, key is endpoint host:port, guarded by this
+     */
+    private final Map<String, RedisCacheHandler<K, V>> nodes = new LinkedHashMap<>();
+
+    /**
+     * the removed nodes waiting to be closed, guarded by this
+     */
+    private final Set<RedisCacheHandler<K, V>> retiringNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * the ring, rebuilt when nodes change
+     */
+    private volatile Ring<K, V> ring;
+
+    /**
+     * the rings replaced within the last expiredTime, newest first, their owners may still hold copies of keys
+     */
+    private volatile List<Ring<K, V>> previousRings = Collections.emptyList();
+
+    /**
+     * @param endpoints   redis nodes, host:port
+     * @param expiredTime expiredTime, s
+     * @param codec       the codec of values
+     */
+    public ShardedRedisCacheHandler(Collection<String> endpoints, long expiredTime, CacheCodec<V> codec) {
+        this(endpoints, RedisCacheHandler.DEFAULT_NAMESPACE, expiredTime, codec, DEFAULT_VIRTUAL_NODES,
+                new RedisConnectionConfigs());
+    }
+
+    /**
+     * @param endpoints         redis nodes, host:port
+     * @param namespace         the prefix of keys
+     * @param expiredTime       expiredTime, s
+     * @param codec             the codec of values
+     * @param virtualNodes      the number of points per node
+     * @param connectionConfigs the connection configs of each node
+     */
+    public ShardedRedisCacheHandler(Collection<String> endpoints, String namespace, long expiredTime,
+                                    CacheCodec<V> codec, int virtualNodes, RedisConnectionConfigs connectionConfigs) {
+        this(endpoints, namespace, expiredTime, 0, codec, virtualNodes, connectionConfigs);
+    }
+
+    /**
+     * @param endpoints           redis nodes, host:port
+     * @param namespace           the prefix of keys
+     * @param expiredTime         expiredTime, s
+     * @param negativeExpiredTime the expiredTime of a cached absence, s, 0 if absences are not cached
+     * @param codec               the codec of values
+     * @param virtualNodes        the number of points per node
+     * @param connectionConfigs   the connection configs of each node
+     */
+    public ShardedRedisCacheHandler(Collection<String> endpoints, String namespace, long expiredTime,
+                                    long negativeExpiredTime, CacheCodec<V> codec, int virtualNodes,
+                                    RedisConnectionConfigs connectionConfigs) {
+        super(0, negativeExpiredTime, TimeUnit.SECONDS);
+        Assert.notNull(endpoints, "endpoints must not be null!");
+        Assert.isTrue(!endpoints.isEmpty(), "endpoints must not be empty!");
+        Assert.notBlank(namespace, "namespace must not be blank!");
+        Assert.notNull(codec, "codec must not be null!");
+        Assert.isTrue(virtualNodes > 0, "virtualNodes must be greater than 0!");
+        Assert.notNull(connectionConfigs, "connectionConfigs must not be null!");
+        this.namespace = namespace;
+        this.expiredTime = expiredTime;
+        this.negativeExpiredTime = negativeExpiredTime;
+        this.codec = codec;
+        this.virtualNodes = virtualNodes;
+        this.connectionConfigs = connectionConfigs;
+        for (String endpoint : endpoints) {
+            nodes.put(endpoint, connect(endpoint));
+        }
+        this.ring = new Ring<>(nodes, virtualNodes);
+    }
+
+    /**
+     * add a node, about 1/N of keys move to it
+     *
+     * @param endpoint host:port
+     */
+    public synchronized void addNode(String endpoint) {
+        if (nodes.containsKey(endpoint)) {
+            return;
+        }
+        nodes.put(endpoint, connect(endpoint));
+        replaceRing();
+    }
+
+    /**
+     * remove a node, its keys move to the other nodes and its connection is closed after a grace period
+     *
+     * @param endpoint host:port
+     */
+    public synchronized void removeNode(String endpoint) {
+        if (!nodes.containsKey(endpoint)) {
+            return;
+        }
+        Assert.isTrue(nodes.size() > 1, "the last node must not be removed!");
+        RedisCacheHandler<K, V> node = nodes.remove(endpoint);
+        replaceRing();
+        retiringNodes.add(node);
+        RETIRER.schedule(() -> retire(node), RETIRE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * close a removed node unless the handler is closed already
+     *
+     * @param node node
+     */
+    private synchronized void retire(RedisCacheHandler<K, V> node) {
+        if (retiringNodes.remove(node)) {
+            node.close();
+        }
+    }
+
+    /**
+     * rebuild the ring from nodes and keep the replaced one while its owners may hold live entries, guarded by this
+     */
+    private void replaceRing() {
+        long now = System.currentTimeMillis();
+        Ring<K, V> replaced = ring;
+        replaced.replacedAt = now;
+        List<Ring<K, V>> rings = new ArrayList<>();
+        rings.add(replaced);
+        previousRings.stream().filter(previous -> !isExpired(previous, now)).forEach(rings::add);
+        previousRings = Collections.unmodifiableList(rings);
+        ring = new Ring<>(nodes, virtualNodes);
+    }
+
+    /**
+     * whether all entries written while the ring was current have expired
+     *
+     * @param previous a replaced ring
+     * @param now      now, ms
+     * @return true if expired
+     */
+    private boolean isExpired(Ring<K, V> previous, long now) {
+        return now - previous.replacedAt >= TimeUnit.SECONDS.toMillis(Math.max(expiredTime, negativeExpiredTime));
+    }
+
+    /**
+     * the endpoints of nodes
+     *
+     * @return endpoints, host:port
+     */
+    public synchronized Set<String> endpoints() {
+        return new LinkedHashSet<>(nodes.keySet());
+    }
+
+    @Override
+    public void put(K k, V v) {
+        super.put(k, v);
+        nodeOf(k).put(k, v);
+    }
+
+    @Override
+    protected void restore(K k, V v, long ttlNanos) {
+        super.put(k, v);
+        nodeOf(k).restore(k, v, ttlNanos);
+    }
+
+    @Override
+    protected void putNullValue(K k) {
+        nodeOf(k).putNullValue(k);
+    }
+
+    @Override
+    protected void putNullValues(Collection<? extends K> keys) {
+        groupByNode(new ArrayList<>(keys)).forEach((node, nodeKeys) -> node.putNullValues(nodeKeys));
+    }
+
+    @Override
+    public V get(@NotNull K k, @NotNull Function<? super K, ? extends V> mappingFunction) {
+        V value = lookup(k);
+        if (isNullValue(value)) {
+            return null;
+        }
+        if (value != null) {
+            return value;
+        }
+        return load(k, mappingFunction);
+    }
+
+    @Override
+    protected V doGetIfPresent(K k) {
+        return nodeOf(k).doGetIfPresent(k);
+    }
+
+    @Override
+    public Map<K, V> getAll(@NotNull Collection<? extends K> keys,
+                            @NotNull Function<? super Set<K>, ? extends Map<K, V>> bulkLoader) {
+        Assert.notNull(keys, "keys must not be null!");
+        Assert.notNull(bulkLoader, "bulkLoader must not be null!");
+        trace(TraceOp.READ, keys);
+        Map<RedisCacheHandler<K, V>, List<K>> keysByNode = groupByNode(new LinkedHashSet<>(keys));
+        // one MGET per node, all in flight at once
+        Map<RedisCacheHandler<K, V>, RedisFuture<List<KeyValue<String, byte[]>>>> futures = new IdentityHashMap<>();
+        keysByNode.forEach((node, nodeKeys) -> futures.put(node,
+                node.asyncCommands().mget(nodeKeys.stream().map(node::redisKey).toArray(String[]::new))));
+        await(futures.values());
+        Map<K, V> result = new HashMap<>(keys.size());
+        Set<K> absentKeys = new LinkedHashSet<>();
+        int[] negativeHits = new int[1];
+        keysByNode.forEach((node, nodeKeys) -> {
+            List<KeyValue<String, byte[]>> values = join(futures.get(node));
+            for (int i = 0; i < nodeKeys.size(); i++) {
+                if (!values.get(i).hasValue()) {
+                    absentKeys.add(nodeKeys.get(i));
+                } else if (RedisCacheHandler.isNullBytes(values.get(i).getValue())) {
+                    negativeHits[0]++;
+                } else {
+                    result.put(nodeKeys.get(i), node.deserialize(values.get(i).getValue()));
+                }
+            }
+        });
+        statsCounter().recordHits(result.size());
+        statsCounter().recordNegativeHits(negativeHits[0]);
+        statsCounter().recordMisses(absentKeys.size());
+        if (!absentKeys.isEmpty()) {
+            Map<K, V> loaded = loadAll(absentKeys, bulkLoader);
+            putAll(loaded);
+            cacheAbsences(absentKeys, loaded);
+            result.putAll(loaded);
+        }
+        return result;
+    }
+
+    @Override
+    public void putAll(@NotNull Map<? extends K, ? extends V> map) {
+        Assert.notNull(map, "map must not be null!");
+        trace(TraceOp.WRITE, map.keySet());
+        List<RedisFuture<?>> futures = new ArrayList<>(map.size());
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            Assert.notNull(entry.getKey(), "key must not be null!");
+            Assert.notNull(entry.getValue(), "value must not be null!");
+            RedisCacheHandler<K, V> node = nodeOf(entry.getKey());
+            futures.add(node.asyncCommands().setex(node.redisKey(entry.getKey()), expiredTime,
+                    node.serialize(entry.getValue())));
+        }
+        await(futures);
+    }
+
+    /**
+     * delete on the owner and on the owners in the previous rings, which are still connected
+     */
+    @Override
+    public void remove(K k) {
+        trace(TraceOp.REMOVE, k);
+        long hash = hashOf(k);
+        Ring<K, V> current = ring;
+        RedisCacheHandler<K, V> owner = current.nodeOf(hash);
+        owner.remove(k);
+        List<Ring<K, V>> rings = previousRings;
+        if (rings.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Set<RedisCacheHandler<K, V>> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        removed.add(owner);
+        for (Ring<K, V> previous : rings) {
+            if (isExpired(previous, now)) {
+                break;
+            }
+            // the endpoint is resolved against the current ring, a removed node holds no reachable copy
+            RedisCacheHandler<K, V> node = current.byEndpoint.get(previous.endpointOf(hash));
+            if (node != null && removed.add(node)) {
+                node.remove(k);
+            }
+        }
+    }
+
+    @Override
+    public void removeIf(Predicate<? super K> predicate) {
+        ring.nodes.forEach(node -> node.removeIf(predicate));
+    }
+
+    /**
+     * remove the keys of this namespace on all nodes
+     */
+    @Override
+    public void clear() {
+        ring.nodes.forEach(RedisCacheHandler::clear);
+    }
+
+    /**
+     * the sum of the estimated sizes of nodes
+     */
+    @Override
+    public long size() {
+        return ring.nodes.stream().mapToLong(RedisCacheHandler::size).sum();
+    }
+
+    @Override
+    public Set<K> keys() {
+        Set<K> keys = new HashSet<>();
+        ring.nodes.forEach(node -> keys.addAll(node.keys()));
+        return keys;
+    }
+
+    /**
+     * close the connections of all nodes
+     */
+    @Override
+    public synchronized void close() {
+        nodes.values().forEach(RedisCacheHandler::close);
+        nodes.clear();
+        retiringNodes.forEach(RedisCacheHandler::close);
+        retiringNodes.clear();
+    }
+
+    /**
+     * the node owning key
+     *
+     * @param k key
+     * @return node
+     */
+    RedisCacheHandler<K, V> nodeOf(K k) {
+        return ring.nodeOf(hashOf(k));
+    }
+
+    /**
+     * the position of key on the ring
+     *
+     * @param k key
+     * @return hash
+     */
+    private long hashOf(K k) {
+        return HASH.hashString(namespace + ":" + k, StandardCharsets.UTF_8).asLong();
+    }
+
+    private Map<RedisCacheHandler<K, V>, List<K>> groupByNode(Collection<K> keys) {
+        Map<RedisCacheHandler<K, V>, List<K>> keysByNode = new IdentityHashMap<>();
+        for (K k : keys) {
+            Assert.notNull(k, "key must not be null!");
+            keysByNode.computeIfAbsent(nodeOf(k), node -> new ArrayList<>()).add(k);
+        }
+        return keysByNode;
+    }
+
+    private RedisCacheHandler<K, V> connect(String endpoint) {
+        int index = endpoint == null ? -1 : endpoint.lastIndexOf(':');
+        Assert.isTrue(index > 0, "endpoint must be host:port, endpoint: " + endpoint);
+        int port;
+        try {
+            port = Integer.parseInt(endpoint.substring(index + 1));
+        } catch (NumberFormatException e) {
+            throw new JarvisException("endpoint must be host:port, endpoint: " + endpoint, e);
+        }
+        return new RedisCacheHandler<>(endpoint.substring(0, index), port, namespace, expiredTime, negativeExpiredTime,
+                codec, connectionConfigs);
+    }
+
+    private void await(Collection<? extends RedisFuture<?>> futures) {
+        if (futures.isEmpty()) {
+            return;
+        }
+        // the nodes share the timeout of commands
+        if (!LettuceFutures.awaitAll(ring.nodes.get(0).timeout(), futures.toArray(new RedisFuture<?>[0]))) {
+            throw new JarvisException("redis sharded command timeout!");
+        }
+    }
+
+    private static <T> T join(RedisFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JarvisException(e);
+        } catch (ExecutionException e) {
+            throw new JarvisException(e.getCause());
+        }
+    }
+
+    /**
+     * Consistent Hash Ring, immutable
+     *
+     * @param <K> generics of key
+     * @param <V> generics of value
+     */
+    private static final class Ring<K, V> {
+
+        /**
+         * the hashes of points, sorted
+         */
+        private final long[] hashes;
+
+        /**
+         * the endpoint of each point
+         */
+        private final String[] owners;
+
+        /**
+         * nodes, key is endpoint
+         */
+        private final Map<String, RedisCacheHandler<K, V>> byEndpoint;
+
+        /**
+         * distinct nodes
+         */
+        private final List<RedisCacheHandler<K, V>> nodes;
+
+        /**
+         * the time this ring was replaced, ms, only set once before it is published as a previous ring
+         */
+        private long replacedAt;
+
+        private Ring(Map<String, RedisCacheHandler<K, V>> nodes, int virtualNodes) {
+            List<Map.Entry<Long, String>> points = new ArrayList<>(nodes.size() * virtualNodes);
+            nodes.keySet().forEach(endpoint -> {
+                for (int i = 0; i < virtualNodes; i++) {
+                    long hash = HASH.hashString(endpoint + "#" + i, StandardCharsets.UTF_8).asLong();
+                    points.add(new AbstractMap.SimpleImmutableEntry<>(hash, endpoint));
+                }
+            });
+            points.sort(Map.Entry.comparingByKey());
+            this.hashes = new long[points.size()];
+            this.owners = new String[points.size()];
+            for (int i = 0; i < points.size(); i++) {
+                hashes[i] = points.get(i).getKey();
+                owners[i] = points.get(i).getValue();
+            }
+            this.byEndpoint = Collections.unmodifiableMap(new HashMap<>(nodes));
+            this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes.values()));
+        }
+
+        private RedisCacheHandler<K, V> nodeOf(long hash) {
+            return byEndpoint.get(endpointOf(hash));
+        }
+
+        private String endpointOf(long hash) {
+            int index = Arrays.binarySearch(hashes, hash);
+            if (index < 0) {
+                // the first point clockwise
+                index = -index - 1;
+            }
+            return owners[index == hashes.length ? 0 : index];
+        }
+    }
+}
@@ -17,10 +17,19 @@
 package org.yoga.jarvis;
 
 import org.jetbrains.annotations.NotNull;
+import org.yoga.jarvis.admission.TinyLfuAdmission;
+import org.yoga.jarvis.trace.TraceOp;
+import org.yoga.jarvis.util.Assert;
+import org.yoga.jarvis.weigher.Weigher;
 
+import java.util.AbstractMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -32,6 +41,16 @@ import java.util.stream.Collectors;
  */
 public class SimpleCacheHandler<K, V> extends AbstractCacheHandler<K, V> {
 
+    /**
+     * the number of entries sampled to choose one eviction victim
+     */
+    private static final int SAMPLE_SIZE = 8;
+
+    /**
+     * the initial capacity of the frequency sketch of admission
+     */
+    private static final int INITIAL_SKETCH_CAPACITY = 4096;
+
     /**
      * cache map
      */
@@ -42,34 +61,232 @@ public class SimpleCacheHandler<K, V> extends AbstractCacheHandler<K, V> {
      */
     private final long expiredTime;
 
+    /**
+     * maximum of the total weight, 0 if unbounded
+     */
+    private final long maximumWeight;
+
+    /**
+     * weigher, null if unbounded
+     */
+    private final Weigher<? super K, ? super V> weigher;
+
+    /**
+     * TinyLFU admission, null if disabled
+     */
+    private final TinyLfuAdmission<K> admission;
+
+    /**
+     * the total weight of entries
+     */
+    private final AtomicLong weightedSize = new AtomicLong();
+
+    /**
+     * whether a thread is evicting
+     */
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+
+    /**
+     * the iterator used for sampling, only accessed by the thread holding {@link #evicting}
+     */
+    private Iterator<Map.Entry<K, CacheValue<V>>> sampler;
+
     public SimpleCacheHandler(long expiredTime) {
+        this(expiredTime, 0);
+    }
+
+    /**
+     * @param expiredTime       expiredTime, ms
+     * @param refreshAfterWrite the age after which a read returns the stale value and triggers an async refresh,
+     *                          ms, 0 if disabled
+     */
+    public SimpleCacheHandler(long expiredTime, long refreshAfterWrite) {
+        this(expiredTime, refreshAfterWrite, 0);
+    }
+
+    /**
+     * @param expiredTime       expiredTime, ms
+     * @param refreshAfterWrite the age after which a read returns the stale value and triggers an async refresh,
+     *                          ms, 0 if disabled
+     * @param negativeTtl       the time to live of a cached absence, ms, 0 if absences are not cached
+     */
+    public SimpleCacheHandler(long expiredTime, long refreshAfterWrite, long negativeTtl) {
+        super(refreshAfterWrite, negativeTtl, TimeUnit.MILLISECONDS);
+        this.expiredTime = expiredTime;
+        this.maximumWeight = 0;
+        this.weigher = null;
+        this.admission = null;
+    }
+
+    /**
+     * the total weight of entries is bounded by {@code maximumWeight}, the victim is the oldest written entry of
+     * samples
+     *
+     * @param expiredTime       expiredTime, ms
+     * @param refreshAfterWrite the age after which a read returns the stale value and triggers an async refresh,
+     *                          ms, 0 if disabled
+     * @param maximumWeight     maximum of the total weight
+     * @param weigher           weigher of entries
+     */
+    public SimpleCacheHandler(long expiredTime, long refreshAfterWrite, long maximumWeight,
+                              Weigher<? super K, ? super V> weigher) {
+        this(expiredTime, refreshAfterWrite, maximumWeight, weigher, false);
+    }
+
+    /**
+     * the total weight of entries is bounded by {@code maximumWeight}, the victim is the oldest written entry of
+     * samples, and a new key is admitted only if it is estimated to be more frequent than the victim when
+     * {@code tinyLfuAdmission} is enabled
+     *
+     * @param expiredTime       expiredTime, ms
+     * @param refreshAfterWrite the age after which a read returns the stale value and triggers an async refresh,
+     *                          ms, 0 if disabled
+     * @param maximumWeight     maximum of the total weight
+     * @param weigher           weigher of entries
+     * @param tinyLfuAdmission  whether new keys pass the TinyLFU admission, see {@link TinyLfuAdmission}
+     */
+    public SimpleCacheHandler(long expiredTime, long refreshAfterWrite, long maximumWeight,
+                              Weigher<? super K, ? super V> weigher, boolean tinyLfuAdmission) {
+        this(expiredTime, refreshAfterWrite, 0, maximumWeight, weigher, tinyLfuAdmission);
+    }
+
+    /**
+     * bounded by {@code maximumWeight} as above, and the absences returned by loaders are cached for
+     * {@code negativeTtl}, an absence weighs 1
+     *
+     * @param expiredTime       expiredTime, ms
+     * @param refreshAfterWrite the age after which a read returns the stale value and triggers an async refresh,
+     *                          ms, 0 if disabled
+     * @param negativeTtl       the time to live of a cached absence, ms, 0 if absences are not cached
+     * @param maximumWeight     maximum of the total weight
+     * @param weigher           weigher of entries
+     * @param tinyLfuAdmission  whether new keys pass the TinyLFU admission, see {@link TinyLfuAdmission}
+     */
+    public SimpleCacheHandler(long expiredTime, long refreshAfterWrite, long negativeTtl, long maximumWeight,
+                              Weigher<? super K, ? super V> weigher, boolean tinyLfuAdmission) {
+        super(refreshAfterWrite, negativeTtl, TimeUnit.MILLISECONDS);
+        Assert.isTrue(maximumWeight > 0, "maximumWeight must be greater than 0!");
+        Assert.notNull(weigher, "weigher must not be null!");
         this.expiredTime = expiredTime;
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        // the sketch grows with the number of entries
+        this.admission = tinyLfuAdmission ? new TinyLfuAdmission<>(Math.min(maximumWeight, INITIAL_SKETCH_CAPACITY)) : null;
     }
 
     @Override
     public void put(K k, V v) {
         super.put(k, v);
-        cache.put(k, new CacheValue<>(v, System.currentTimeMillis()));
+        doPut(k, v, System.currentTimeMillis());
+    }
+
+    @Override
+    protected void restore(K k, V v, long ttlNanos) {
+        super.put(k, v);
+        // back-date the timestamp so that the entry expires after ttl
+        long ttl = Math.min(TimeUnit.NANOSECONDS.toMillis(ttlNanos), expiredTime);
+        doPut(k, v, System.currentTimeMillis() - expiredTime + ttl);
+    }
+
+    @Override
+    protected void putNullValue(K k) {
+        // back-date the timestamp so that the absence expires after negativeTtl
+        long ttl = Math.min(TimeUnit.NANOSECONDS.toMillis(negativeTtlNanos()), expiredTime);
+        doPut(k, nullValue(), System.currentTimeMillis() - expiredTime + ttl);
+    }
+
+    @Override
+    protected void forEachEntry(EntryConsumer<K, V> consumer) {
+        long now = System.currentTimeMillis();
+        cache.forEach((k, cacheValue) -> {
+            long ttl = cacheValue.getTimestamp() + expiredTime - now;
+            if (ttl > 0 && !isNullValue(cacheValue.getValue())) {
+                consumer.accept(k, cacheValue.getValue(), TimeUnit.MILLISECONDS.toNanos(ttl));
+            }
+        });
+    }
+
+    private void doPut(K k, V v, long timestamp) {
+        int weight = weightOf(k, v);
+        if (admission != null) {
+            admission.record(k);
+        }
+        CacheValue<V> old = cache.put(k, new CacheValue<>(v, timestamp, weight));
+        weightedSize.addAndGet(old == null ? weight : weight - old.getWeight());
+        if (weigher != null && weightedSize.get() > maximumWeight) {
+            // only a new key is judged by admission
+            evict(old == null ? k : null);
+        }
+    }
+
+    /**
+     * the weight of entry, 0 if unbounded
+     *
+     * @param k key
+     * @param v value
+     * @return weight
+     */
+    private int weightOf(K k, V v) {
+        if (weigher == null) {
+            return 0;
+        }
+        if (isNullValue(v)) {
+            return 1;
+        }
+        int weight = weigher.weigh(k, v);
+        Assert.isTrue(weight >= 0, "weight must not be less than 0!");
+        return weight;
+    }
+
+    @Override
+    protected boolean replace(K k, V oldValue, V newValue) {
+        CacheValue<V> old = cache.get(k);
+        if (old == null || old.getValue() != oldValue) {
+            return false;
+        }
+        // the cache values are compared by identity, so it fails if the entry is written meanwhile
+        if (newValue == null) {
+            if (!cache.remove(k, old)) {
+                return false;
+            }
+            weightedSize.addAndGet(-old.getWeight());
+            return true;
+        }
+        CacheValue<V> cacheValue = new CacheValue<>(newValue, System.currentTimeMillis(), weightOf(k, newValue));
+        if (!cache.replace(k, old, cacheValue)) {
+            return false;
+        }
+        weightedSize.addAndGet(cacheValue.getWeight() - old.getWeight());
+        if (weigher != null && weightedSize.get() > maximumWeight) {
+            evict(null);
+        }
+        return true;
     }
 
     @Override
     public V get(@NotNull K k, @NotNull Function<? super K, ? extends V> mappingFunction) {
-        CacheValue<V> cacheValue = cache.get(k);
-        if (cacheValue != null && (cacheValue.getTimestamp() + expiredTime > System.currentTimeMillis())) {
-            return cacheValue.getValue();
+        V value = lookup(k);
+        if (isNullValue(value)) {
+            return null;
         }
-        V newVal = mappingFunction.apply(k);
-        if (newVal != null) {
-            CacheValue<V> newCacheValue = new CacheValue<>(newVal, System.currentTimeMillis());
-            if (cache.putIfAbsent(k, newCacheValue) == null) {
-                return newVal;
+        if (value != null) {
+            if (isRefreshEnabled()) {
+                CacheValue<V> cacheValue = cache.get(k);
+                if (cacheValue != null) {
+                    long age = System.currentTimeMillis() - cacheValue.getTimestamp();
+                    refreshIfStale(k, value, TimeUnit.MILLISECONDS.toNanos(age), mappingFunction);
+                }
             }
+            return value;
         }
-        return null;
+        return load(k, mappingFunction);
     }
 
     @Override
-    public V getIfPresent(@NotNull K k) {
+    protected V doGetIfPresent(K k) {
+        if (admission != null) {
+            admission.record(k);
+        }
         CacheValue<V> cacheValue = cache.get(k);
         if (cacheValue != null && (cacheValue.getTimestamp() + expiredTime > System.currentTimeMillis())) {
             return cacheValue.getValue();
@@ -79,27 +296,115 @@ public class SimpleCacheHandler<K, V> extends AbstractCacheHandler<K, V> {
 
     @Override
     public void remove(@NotNull K k) {
-        cache.remove(k);
+        trace(TraceOp.REMOVE, k);
+        CacheValue<V> old = cache.remove(k);
+        if (old != null) {
+            weightedSize.addAndGet(-old.getWeight());
+        }
     }
 
     @Override
     public void removeIf(Predicate<? super K> predicate) {
-        cache.keySet().removeIf(predicate);
+        cache.forEach((k, cacheValue) -> {
+            if (predicate.test(k) && cache.remove(k, cacheValue)) {
+                weightedSize.addAndGet(-cacheValue.getWeight());
+            }
+        });
     }
 
     @Override
     public void clear() {
-        cache.clear();
+        removeIf(k -> true);
     }
 
+    /**
+     * the cached absences are not counted
+     */
     @Override
     public long size() {
-        return cache.size();
+        if (!isNegativeCachingEnabled()) {
+            return cache.size();
+        }
+        return cache.values().stream().filter(cacheValue -> !isNullValue(cacheValue.getValue())).count();
     }
 
+    /**
+     * the keys of cached absences are not included
+     */
     @Override
     public Set<K> keys() {
-        return cache.keySet();
+        if (!isNegativeCachingEnabled()) {
+            return cache.keySet();
+        }
+        return cache.entrySet().stream()
+                .filter(entry -> !isNullValue(entry.getValue().getValue()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * the total weight of entries, 0 if unbounded
+     *
+     * @return weighted size
+     */
+    public long weightedSize() {
+        return weightedSize.get();
+    }
+
+    /**
+     * evict the oldest written entry of samples until the total weight is within bounds
+     * with admission, the candidate is evicted instead if it is not more frequent than the first alive victim
+     *
+     * @param candidate the new key, null if none
+     */
+    private void evict(K candidate) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (admission != null) {
+                admission.ensureCapacity(cache.size());
+            }
+            long now = System.currentTimeMillis();
+            while (weightedSize.get() > maximumWeight) {
+                Map.Entry<K, CacheValue<V>> victim = null;
+                boolean expired = false;
+                for (int i = 0; i < SAMPLE_SIZE; i++) {
+                    if (sampler == null || !sampler.hasNext()) {
+                        sampler = cache.entrySet().iterator();
+                        if (!sampler.hasNext()) {
+                            break;
+                        }
+                    }
+                    Map.Entry<K, CacheValue<V>> sample = sampler.next();
+                    if (sample.getValue().getTimestamp() + expiredTime <= now) {
+                        victim = sample;
+                        expired = true;
+                        break;
+                    }
+                    if (victim == null || sample.getValue().getTimestamp() < victim.getValue().getTimestamp()) {
+                        victim = sample;
+                    }
+                }
+                if (victim == null) {
+                    return;
+                }
+                if (candidate != null && admission != null && !expired && !candidate.equals(victim.getKey())) {
+                    CacheValue<V> candidateValue = cache.get(candidate);
+                    if (candidateValue != null && !admission.admit(candidate, victim.getKey())) {
+                        // the candidate is rejected, the victim stays
+                        victim = new AbstractMap.SimpleImmutableEntry<>(candidate, candidateValue);
+                    }
+                    candidate = null;
+                }
+                if (cache.remove(victim.getKey(), victim.getValue())) {
+                    weightedSize.addAndGet(-victim.getValue().getWeight());
+                    statsCounter().recordEviction();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
     }
 
     /**
@@ -119,9 +424,15 @@ public class SimpleCacheHandler<K, V> extends AbstractCacheHandler<K, V> {
          */
         private final long timestamp;
 
-        public CacheValue(V value, long timestamp) {
+        /**
+         * weight, 0 if unbounded
+         */
+        private final int weight;
+
+        public CacheValue(V value, long timestamp, int weight) {
             this.value = value;
             this.timestamp = timestamp;
+            this.weight = weight;
         }
 
         public V getValue() {
@@ -131,6 +442,10 @@ public class SimpleCacheHandler<K, V> extends AbstractCacheHandler<K, V> {
         public long getTimestamp() {
             return timestamp;
         }
+
+        public int getWeight() {
+            return weight;
+        }
     }
 
 }
@@ -0,0 +1,485 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yoga.jarvis.codec.CacheCodec;
+import org.yoga.jarvis.exception.JarvisException;
+import org.yoga.jarvis.factory.ThreadFactoryBuilder;
+import org.yoga.jarvis.stats.CacheStats;
+import org.yoga.jarvis.util.Assert;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * @Description: Cache Handler persisting the entries of another handler to a memory-mapped snapshot file
+ * <p>
+ * The entries are written with their expire time periodically and on close, to a temporary file which then replaces
+ * the snapshot atomically. On construction the snapshot is mapped and only its keys are indexed, a value is decoded
+ * and restored into the delegate with its remaining ttl on the first read of its key. A write of a key discards its
+ * snapshot entry, and it wins over a restore of the same key running concurrently. The entries not restored yet are
+ * carried into the next snapshot. The snapshot is mapped region by region, so it is not limited to 2 GB.
+ * <p>
+ * Snapshot layout: magic(int) version(int) createdAt(long) count(int),
+ * then per entry: expireAt(long, epoch ms) keyLength(int) key valueLength(int) value.
+ * @Author: yoga
+ * @Date: 2026/10/18 19:20
+ */
+public class SnapshotCacheHandler<K, V> implements CacheHandler<K, V>, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotCacheHandler.class);
+
+    private static final int MAGIC = 0x4A525653;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 20;
+
+    /**
+     * the position of count in header
+     */
+    private static final int COUNT_POSITION = 16;
+
+    /**
+     * the size of each region mapped for writing
+     */
+    private static final int WINDOW_SIZE = 16 << 20;
+
+    /**
+     * the maximum size of a region mapped for reading, a buffer is indexed by int
+     */
+    private static final long MAX_REGION_SIZE = Integer.MAX_VALUE;
+
+    /**
+     * the snapshot writer shared by all handlers
+     */
+    private static final ScheduledExecutorService SNAPSHOTTER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("jarvis-cache-snapshot-%d").setDaemon(true).build());
+
+    /**
+     * delegate
+     */
+    private final AbstractCacheHandler<K, V> delegate;
+
+    /**
+     * snapshot file
+     */
+    private final Path file;
+
+    /**
+     * the codec of keys
+     */
+    private final CacheCodec<K> keyCodec;
+
+    /**
+     * the codec of values
+     */
+    private final CacheCodec<V> valueCodec;
+
+    /**
+     * the entries of the loaded snapshot not restored yet
+     * an entry is restored while its key is locked by this map, a write of the key removes it first and waits
+     */
+    private final Map<K, Restorable> restorables = new ConcurrentHashMap<>();
+
+    /**
+     * the future of snapshot task
+     */
+    private final ScheduledFuture<?> snapshotFuture;
+
+    /**
+     * @param delegate                the handler holding entries
+     * @param file                    snapshot file, loaded if it exists
+     * @param keyCodec                the codec of keys
+     * @param valueCodec              the codec of values
+     * @param snapshotIntervalSeconds the interval of writing snapshots
+     */
+    public SnapshotCacheHandler(AbstractCacheHandler<K, V> delegate, Path file, CacheCodec<K> keyCodec,
+                                CacheCodec<V> valueCodec, long snapshotIntervalSeconds) {
+        Assert.notNull(delegate, "delegate must not be null!");
+        Assert.notNull(file, "file must not be null!");
+        Assert.notNull(keyCodec, "keyCodec must not be null!");
+        Assert.notNull(valueCodec, "valueCodec must not be null!");
+        Assert.isTrue(snapshotIntervalSeconds > 0, "snapshotIntervalSeconds must be greater than 0!");
+        this.delegate = delegate;
+        this.file = file;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        load();
+        this.snapshotFuture = SNAPSHOTTER.scheduleWithFixedDelay(this::persistQuietly,
+                snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void put(K k, V v) {
+        restorables.remove(k);
+        delegate.put(k, v);
+    }
+
+    @Override
+    public V get(K k, Function<? super K, ? extends V> mappingFunction) {
+        restore(k);
+        return delegate.get(k, mappingFunction);
+    }
+
+    @Override
+    public V getIfPresent(K k) {
+        restore(k);
+        return delegate.getIfPresent(k);
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys, Function<? super Set<K>, ? extends Map<K, V>> bulkLoader) {
+        Assert.notNull(keys, "keys must not be null!");
+        if (!restorables.isEmpty()) {
+            keys.forEach(this::restore);
+        }
+        return delegate.getAll(keys, bulkLoader);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        Assert.notNull(map, "map must not be null!");
+        if (!restorables.isEmpty()) {
+            map.keySet().forEach(restorables::remove);
+        }
+        delegate.putAll(map);
+    }
+
+    @Override
+    public void remove(K k) {
+        restorables.remove(k);
+        delegate.remove(k);
+    }
+
+    @Override
+    public void removeIf(Predicate<? super K> predicate) {
+        restorables.keySet().removeIf(predicate);
+        delegate.removeIf(predicate);
+    }
+
+    @Override
+    public void clear() {
+        restorables.clear();
+        delegate.clear();
+    }
+
+    /**
+     * the size of delegate, the entries not restored yet are not counted
+     */
+    @Override
+    public long size() {
+        return delegate.size();
+    }
+
+    /**
+     * the keys of delegate, the keys not restored yet are not included
+     */
+    @Override
+    public Set<K> keys() {
+        return delegate.keys();
+    }
+
+    @Override
+    public CacheStats snapshot() {
+        return delegate.snapshot();
+    }
+
+    /**
+     * the number of entries of the loaded snapshot not restored yet
+     *
+     * @return count
+     */
+    public int restorableCount() {
+        return restorables.size();
+    }
+
+    /**
+     * write a snapshot now, the file is replaced only when the snapshot is complete
+     */
+    public synchronized void persist() {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        long now = System.currentTimeMillis();
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                SnapshotWriter writer = new SnapshotWriter(channel, now);
+                delegate.forEachEntry((k, v, ttlNanos) -> writer.write(keyCodec.encode(k),
+                        now + TimeUnit.NANOSECONDS.toMillis(ttlNanos), valueCodec.encode(v)));
+                restorables.forEach((k, restorable) -> {
+                    if (restorable.expireAt > now) {
+                        writer.write(keyCodec.encode(k), restorable.expireAt, restorable.bytes());
+                    }
+                });
+                writer.finish();
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UncheckedIOException e) {
+            throw new JarvisException("write cache snapshot failed, file: " + file, e);
+        }
+    }
+
+    /**
+     * stop the periodic snapshot and write the last one
+     */
+    @Override
+    public void close() {
+        snapshotFuture.cancel(false);
+        persist();
+    }
+
+    private void persistQuietly() {
+        try {
+            persist();
+        } catch (RuntimeException e) {
+            logger.warn("write cache snapshot failed, file: {}", file, e);
+        }
+    }
+
+    /**
+     * map the snapshot and index its keys, a broken snapshot is ignored
+     */
+    private void load() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                logger.warn("ignore cache snapshot of illegal size, file: {}, size: {}", file, size);
+                return;
+            }
+            // the mappings stay valid after the channel is closed
+            SnapshotReader reader = new SnapshotReader(channel, size);
+            ByteBuffer buffer = reader.next(HEADER_SIZE);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                logger.warn("ignore cache snapshot of unknown format, file: {}", file);
+                return;
+            }
+            buffer.getLong();
+            int count = buffer.getInt();
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < count; i++) {
+                buffer = reader.next(8 + 4);
+                long expireAt = buffer.getLong();
+                int keyLength = buffer.getInt();
+                buffer = reader.next(keyLength + 4);
+                byte[] key = new byte[keyLength];
+                buffer.get(key);
+                int valueLength = buffer.getInt();
+                buffer = reader.next(valueLength);
+                int valuePosition = buffer.position();
+                buffer.position(valuePosition + valueLength);
+                if (expireAt > now) {
+                    restorables.put(keyCodec.decode(key), new Restorable(buffer, valuePosition, valueLength, expireAt));
+                }
+            }
+            logger.info("cache snapshot loaded, file: {}, entries: {}", file, restorables.size());
+        } catch (IOException | RuntimeException e) {
+            restorables.clear();
+            logger.warn("ignore broken cache snapshot, file: {}", file, e);
+        }
+    }
+
+    /**
+     * restore the snapshot entry of key into delegate, at most once
+     *
+     * @param k key
+     */
+    private void restore(K k) {
+        if (restorables.isEmpty()) {
+            return;
+        }
+        // restored under the lock of the key, a concurrent write removes the entry after it and overwrites the
+        // restored value, or removes it before and nothing is restored
+        restorables.computeIfPresent(k, (key, restorable) -> {
+            long ttlNanos = TimeUnit.MILLISECONDS.toNanos(restorable.expireAt - System.currentTimeMillis());
+            if (ttlNanos > 0) {
+                delegate.restore(key, valueCodec.decode(restorable.bytes()), ttlNanos);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Entry of the loaded snapshot, the mapping is released when no entry refers to it
+     */
+    private static final class Restorable {
+
+        /**
+         * mapped snapshot
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * the position of value
+         */
+        private final int position;
+
+        /**
+         * the length of value
+         */
+        private final int length;
+
+        /**
+         * expire time, epoch ms
+         */
+        private final long expireAt;
+
+        private Restorable(ByteBuffer buffer, int position, int length, long expireAt) {
+            this.buffer = buffer;
+            this.position = position;
+            this.length = length;
+            this.expireAt = expireAt;
+        }
+
+        private byte[] bytes() {
+            byte[] bytes = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(position);
+            view.get(bytes);
+            return bytes;
+        }
+    }
+
+    /**
+     * Reader of snapshot, the file is mapped region by region, a region starts at the entry that does not fit in the
+     * previous one, so every field and value lies in one region
+     */
+    private static final class SnapshotReader {
+
+        private final FileChannel channel;
+
+        /**
+         * the size of file
+         */
+        private final long size;
+
+        /**
+         * the region being read
+         */
+        private MappedByteBuffer region;
+
+        /**
+         * the file position of {@link #region}
+         */
+        private long regionStart;
+
+        private SnapshotReader(FileChannel channel, long size) throws IOException {
+            this.channel = channel;
+            this.size = size;
+            this.region = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAX_REGION_SIZE));
+        }
+
+        /**
+         * the region holding the next bytes, positioned at them
+         *
+         * @param bytes the number of bytes to read
+         * @return region
+         * @throws IOException if the file is truncated or the mapping fails
+         */
+        private MappedByteBuffer next(int bytes) throws IOException {
+            if (bytes < 0) {
+                throw new IOException("illegal length: " + bytes);
+            }
+            if (region.remaining() >= bytes) {
+                return region;
+            }
+            long position = regionStart + region.position();
+            if (size - position < bytes) {
+                throw new IOException("truncated at: " + position);
+            }
+            region = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, MAX_REGION_SIZE));
+            regionStart = position;
+            return region;
+        }
+    }
+
+    /**
+     * Writer of snapshot, the file is mapped region by region
+     */
+    private static final class SnapshotWriter {
+
+        private final FileChannel channel;
+
+        /**
+         * the region being written
+         */
+        private MappedByteBuffer window;
+
+        /**
+         * the file position of {@link #window}
+         */
+        private long windowStart;
+
+        /**
+         * the number of entries written
+         */
+        private int count;
+
+        private SnapshotWriter(FileChannel channel, long createdAt) throws IOException {
+            this.channel = channel;
+            this.window = channel.map(FileChannel.MapMode.READ_WRITE, 0, WINDOW_SIZE);
+            window.putInt(MAGIC).putInt(VERSION).putLong(createdAt).putInt(0);
+        }
+
+        private void write(byte[] key, long expireAt, byte[] value) {
+            int size = 8 + 4 + key.length + 4 + value.length;
+            if (window.remaining() < size) {
+                long position = windowStart + window.position();
+                try {
+                    window.force();
+                    window = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(WINDOW_SIZE, size));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                windowStart = position;
+            }
+            window.putLong(expireAt).putInt(key.length).put(key).putInt(value.length).put(value);
+            count++;
+        }
+
+        private void finish() throws IOException {
+            long end = windowStart + window.position();
+            window.force();
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putInt(COUNT_POSITION, count);
+            header.force();
+            // cut the unused tail of the last region
+            channel.truncate(end);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis;
+
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yoga.jarvis.trace.TraceOp;
+import org.yoga.jarvis.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * @Description: Two-level Cache Handler, caffeine (L1) in front of redis (L2)
+ * <p>
+ * Writes go through both levels, and the other nodes drop their L1 entries on the invalidation message published to
+ * the channel of the namespace. The L1 expire interval bounds the staleness when a message is lost.
+ * @Author: yoga
+ * @Date: 2026/10/18 16:05
+ */
+public class TieredCacheHandler<K, V> extends AbstractCacheHandler<K, V> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TieredCacheHandler.class);
+
+    /**
+     * the key in the message of clearing all entries, never equal to a redis key which contains namespace
+     */
+    private static final String ALL_KEYS = "*";
+
+    /**
+     * the separator between node id and key in message
+     */
+    private static final char SEPARATOR = ' ';
+
+    /**
+     * L1, keyed by redis key so that an invalidation message can be applied without the original key
+     */
+    private final CaffeineCacheHandler<String, V> l1;
+
+    /**
+     * L2
+     */
+    private final RedisCacheHandler<K, V> l2;
+
+    /**
+     * the channel of invalidation messages
+     */
+    private final String channel;
+
+    /**
+     * the id of this node, messages published by itself are ignored
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * pub/sub connection
+     */
+    private final StatefulRedisPubSubConnection<String, String> pubSubConnection;
+
+    public TieredCacheHandler(RedisCacheHandler<K, V> l2, int l1InitialCapacity, int l1MaximumSize,
+                              long l1ExpireIntervalSeconds) {
+        // the absences are cached by L2 only
+        super(0, l2 == null ? 0 : l2.negativeTtlNanos(), TimeUnit.NANOSECONDS);
+        Assert.notNull(l2, "l2 must not be null!");
+        this.l1 = new CaffeineCacheHandler<>(l1InitialCapacity, l1MaximumSize, l1ExpireIntervalSeconds);
+        this.l2 = l2;
+        this.channel = l2.namespace() + ":__invalidation";
+        this.pubSubConnection = l2.connectPubSub();
+        this.pubSubConnection.addListener(new RedisPubSubAdapter<String, String>() {
+            @Override
+            public void message(String channel, String message) {
+                onInvalidation(message);
+            }
+        });
+        this.pubSubConnection.sync().subscribe(channel);
+    }
+
+    @Override
+    public void put(K k, V v) {
+        super.put(k, v);
+        String key = l2.redisKey(k);
+        l2.put(k, v);
+        l1.put(key, v);
+        publish(key);
+    }
+
+    @Override
+    protected void restore(K k, V v, long ttlNanos) {
+        super.put(k, v);
+        String key = l2.redisKey(k);
+        l2.restore(k, v, ttlNanos);
+        l1.restore(key, v, ttlNanos);
+        publish(key);
+    }
+
+    @Override
+    protected void putNullValue(K k) {
+        l2.putNullValue(k);
+    }
+
+    @Override
+    public V get(@NotNull K k, @NotNull Function<? super K, ? extends V> mappingFunction) {
+        V value = lookup(k);
+        if (isNullValue(value)) {
+            return null;
+        }
+        if (value != null) {
+            return value;
+        }
+        return load(k, mappingFunction);
+    }
+
+    @Override
+    protected V doGetIfPresent(K k) {
+        String key = l2.redisKey(k);
+        V value = l1.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        value = l2.lookup(k);
+        if (value != null && !isNullValue(value)) {
+            l1.put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public Map<K, V> getAll(@NotNull Collection<? extends K> keys,
+                            @NotNull Function<? super Set<K>, ? extends Map<K, V>> bulkLoader) {
+        Assert.notNull(keys, "keys must not be null!");
+        Assert.notNull(bulkLoader, "bulkLoader must not be null!");
+        trace(TraceOp.READ, keys);
+        Map<K, V> result = new HashMap<>(keys.size());
+        Map<String, K> l1Misses = new LinkedHashMap<>();
+        for (K k : keys) {
+            String key = l2.redisKey(k);
+            V value = l1.getIfPresent(key);
+            if (value != null) {
+                result.put(k, value);
+            } else {
+                l1Misses.put(key, k);
+            }
+        }
+        int l1Hits = result.size();
+        int[] misses = new int[1];
+        if (!l1Misses.isEmpty()) {
+            // the keys missing from both levels are counted when they are passed to the loader
+            Map<K, V> l2Values = l2.getAll(l1Misses.values(), absentKeys -> {
+                misses[0] = absentKeys.size();
+                return bulkLoader.apply(absentKeys);
+            });
+            l2Values.forEach((k, v) -> l1.put(l2.redisKey(k), v));
+            result.putAll(l2Values);
+        }
+        statsCounter().recordHits(l1Hits + l1Misses.size() - misses[0]);
+        statsCounter().recordMisses(misses[0]);
+        return result;
+    }
+
+    @Override
+    public void putAll(@NotNull Map<? extends K, ? extends V> map) {
+        Assert.notNull(map, "map must not be null!");
+        trace(TraceOp.WRITE, map.keySet());
+        l2.putAll(map);
+        map.forEach((k, v) -> {
+            String key = l2.redisKey(k);
+            l1.put(key, v);
+            publish(key);
+        });
+    }
+
+    @Override
+    public void remove(K k) {
+        trace(TraceOp.REMOVE, k);
+        String key = l2.redisKey(k);
+        l2.remove(k);
+        l1.remove(key);
+        publish(key);
+    }
+
+    /**
+     * the predicate is applied to the keys of L2, all L1 entries are dropped
+     */
+    @Override
+    public void removeIf(Predicate<? super K> predicate) {
+        l2.removeIf(predicate);
+        l1.clear();
+        publish(ALL_KEYS);
+    }
+
+    @Override
+    public void clear() {
+        l2.clear();
+        l1.clear();
+        publish(ALL_KEYS);
+    }
+
+    @Override
+    public long size() {
+        return l2.size();
+    }
+
+    @Override
+    public Set<K> keys() {
+        return l2.keys();
+    }
+
+    /**
+     * stop receiving invalidation messages
+     */
+    @Override
+    public void close() {
+        pubSubConnection.close();
+        l1.clear();
+    }
+
+    /**
+     * publish the invalidation message of key asynchronously
+     *
+     * @param key redis key, or {@link #ALL_KEYS}
+     */
+    private void publish(String key) {
+        byte[] message = (nodeId + SEPARATOR + key).getBytes(StandardCharsets.UTF_8);
+        l2.asyncCommands().publish(channel, message).whenComplete((receivers, e) -> {
+            if (e != null) {
+                logger.warn("failed to publish invalidation of key: {}", key, e);
+            }
+        });
+    }
+
+    /**
+     * drop the L1 entries of message published by other nodes
+     *
+     * @param message invalidation message
+     */
+    private void onInvalidation(String message) {
+        int index = message.indexOf(SEPARATOR);
+        if (index < 0 || nodeId.equals(message.substring(0, index))) {
+            return;
+        }
+        String key = message.substring(index + 1);
+        if (ALL_KEYS.equals(key)) {
+            l1.clear();
+        } else {
+            l1.remove(key);
+        }
+    }
+}
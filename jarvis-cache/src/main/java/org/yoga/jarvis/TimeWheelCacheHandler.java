@@ -0,0 +1,648 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis;
+
+import org.yoga.jarvis.bean.CacheConfigs;
+import org.yoga.jarvis.factory.ThreadFactoryBuilder;
+import org.yoga.jarvis.trace.TraceOp;
+import org.yoga.jarvis.util.Assert;
+import org.yoga.jarvis.weigher.Weigher;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * @Description: Cache Handler with a hierarchical timing wheel
+ * <p>
+ * Expired entries are removed in the background by a shared sweeper thread, the number of entries is bounded by
+ * {@code maximumSize}, or by the total weight if {@code maximumWeight} is set, and the victim is chosen by sampled LRU.
+ * Each slot is an intrusive doubly-linked list, a removed entry is unlinked at once instead of waiting for the sweeper.
+ * Reads never allocate and never lock.
+ * @Author: yoga
+ * @Date: 2026/10/18 10:12
+ */
+public class TimeWheelCacheHandler<K, V> extends AbstractCacheHandler<K, V> implements AutoCloseable {
+
+    /**
+     * the duration of one tick, ns
+     */
+    private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * slots per wheel is 2^WHEEL_BITS
+     */
+    private static final int WHEEL_BITS = 6;
+
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /**
+     * the number of wheel levels, level i spans 64^(i+1) ticks
+     */
+    private static final int LEVELS = 3;
+
+    /**
+     * the number of entries sampled to choose one eviction victim
+     */
+    private static final int SAMPLE_SIZE = 8;
+
+    /**
+     * the sweeper shared by all handlers
+     */
+    private static final ScheduledExecutorService SWEEPER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("jarvis-cache-sweeper-%d").setDaemon(true).build());
+
+    /**
+     * cache map
+     */
+    private final ConcurrentHashMap<K, Node<K, V>> cache;
+
+    /**
+     * timing wheels, wheels[level][slot] is the sentinel of a circular doubly-linked list of nodes
+     */
+    private final Node<K, V>[][] wheels;
+
+    /**
+     * guards the links of all slots and {@link #currentTick}
+     */
+    private final Object wheelLock = new Object();
+
+    /**
+     * maximum of cache size
+     */
+    private final int maximumSize;
+
+    /**
+     * maximum of the total weight, 0 if bounded by {@link #maximumSize}
+     */
+    private final long maximumWeight;
+
+    /**
+     * weigher, null if bounded by {@link #maximumSize}
+     */
+    private final Weigher<? super K, ? super V> weigher;
+
+    /**
+     * the total weight of entries, 0 if bounded by {@link #maximumSize}
+     */
+    private final AtomicLong weightedSize = new AtomicLong();
+
+    /**
+     * expire interval, ns
+     */
+    private final long expireIntervalNanos;
+
+    /**
+     * the start time of the wheel, ns
+     */
+    private final long startNanos;
+
+    /**
+     * the last tick processed by the sweeper, guarded by {@link #wheelLock}
+     */
+    private long currentTick;
+
+    /**
+     * whether a thread is evicting
+     */
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+
+    /**
+     * the iterator used for sampling, only accessed by the thread holding {@link #evicting}
+     */
+    private Iterator<Node<K, V>> sampler;
+
+    /**
+     * the future of sweep task
+     */
+    private final ScheduledFuture<?> sweepFuture;
+
+    public TimeWheelCacheHandler(int initialCapacity, int maximumSize, long expireIntervalSeconds) {
+        this(CacheConfigs.of(initialCapacity, maximumSize, expireIntervalSeconds));
+    }
+
+    @SuppressWarnings("unchecked")
+    public TimeWheelCacheHandler(CacheConfigs<K, V> cacheConfigs) {
+        super(cacheConfigs);
+        this.cache = new ConcurrentHashMap<>(cacheConfigs.getInitialCapacity());
+        this.maximumSize = cacheConfigs.getMaximumSize();
+        this.maximumWeight = cacheConfigs.getMaximumWeight();
+        if (maximumWeight > 0) {
+            Assert.notNull(cacheConfigs.getWeigher(), "weigher must be set when maximumWeight is greater than 0!");
+            this.weigher = cacheConfigs.getWeigher();
+        } else {
+            this.weigher = null;
+        }
+        this.expireIntervalNanos = TimeUnit.SECONDS.toNanos(cacheConfigs.getExpireIntervalSeconds());
+        this.wheels = new Node[LEVELS][WHEEL_SIZE];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                Node<K, V> sentinel = new Node<>(null, null, 0L, 0L);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                wheels[level][slot] = sentinel;
+            }
+        }
+        this.startNanos = System.nanoTime();
+        this.sweepFuture = SWEEPER.scheduleAtFixedRate(this::advance, TICK_NANOS, TICK_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void put(K k, V v) {
+        super.put(k, v);
+        doPut(k, v, System.nanoTime() + expireIntervalNanos);
+    }
+
+    @Override
+    protected void restore(K k, V v, long ttlNanos) {
+        super.put(k, v);
+        doPut(k, v, System.nanoTime() + Math.min(ttlNanos, expireIntervalNanos));
+    }
+
+    @Override
+    protected void putNullValue(K k) {
+        doPut(k, nullValue(), System.nanoTime() + Math.min(negativeTtlNanos(), expireIntervalNanos));
+    }
+
+    @Override
+    protected void forEachEntry(EntryConsumer<K, V> consumer) {
+        long now = System.nanoTime();
+        cache.forEach((k, node) -> {
+            long ttl = node.expireAt - now;
+            V value = node.value;
+            if (ttl > 0 && !isNullValue(value)) {
+                consumer.accept(k, value, ttl);
+            }
+        });
+    }
+
+    private void doPut(K k, V v, long expireAt) {
+        long now = System.nanoTime();
+        int weight = weightOf(k, v);
+        Node<K, V> node = new Node<>(k, v, expireAt, now);
+        node.weight = weight;
+        boolean[] earlier = new boolean[1];
+        Node<K, V> current = cache.compute(k, (key, old) -> {
+            if (old == null) {
+                weightedSize.addAndGet(weight);
+                return node;
+            }
+            earlier[0] = expireAt - old.expireAt < 0;
+            weightedSize.addAndGet(weight - old.weight);
+            old.weight = weight;
+            old.value = v;
+            old.expireAt = expireAt;
+            old.accessTime = now;
+            return old;
+        });
+        if (current == node) {
+            schedule(node);
+        } else if (earlier[0]) {
+            // a later expiry is picked up when the old slot is swept, an earlier one must move now
+            schedule(current);
+        }
+        if (isOverflowed()) {
+            evict();
+        }
+    }
+
+    /**
+     * the weight of entry, 0 if bounded by {@link #maximumSize}
+     *
+     * @param k key
+     * @param v value
+     * @return weight
+     */
+    private int weightOf(K k, V v) {
+        if (weigher == null) {
+            return 0;
+        }
+        if (isNullValue(v)) {
+            return 1;
+        }
+        int weight = weigher.weigh(k, v);
+        Assert.isTrue(weight >= 0, "weight must not be less than 0!");
+        return weight;
+    }
+
+    /**
+     * whether the entries exceed the bound
+     *
+     * @return true if some should be evicted
+     */
+    private boolean isOverflowed() {
+        return weigher == null ? cache.size() > maximumSize : weightedSize.get() > maximumWeight;
+    }
+
+    @Override
+    public V get(K k, Function<? super K, ? extends V> mappingFunction) {
+        V value = lookup(k);
+        if (isNullValue(value)) {
+            return null;
+        }
+        if (value != null) {
+            if (isRefreshEnabled()) {
+                Node<K, V> node = cache.get(k);
+                if (node != null) {
+                    long age = System.nanoTime() - (node.expireAt - expireIntervalNanos);
+                    refreshIfStale(k, value, age, mappingFunction);
+                }
+            }
+            return value;
+        }
+        return load(k, mappingFunction);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected boolean replace(K k, V oldValue, V newValue) {
+        long now = System.nanoTime();
+        Object[] removed = new Object[1];
+        boolean[] replaced = new boolean[1];
+        cache.computeIfPresent(k, (key, n) -> {
+            if (n.value != oldValue) {
+                return n;
+            }
+            replaced[0] = true;
+            if (newValue == null) {
+                weightedSize.addAndGet(-n.weight);
+                removed[0] = n;
+                return null;
+            }
+            int weight = weightOf(key, newValue);
+            weightedSize.addAndGet(weight - n.weight);
+            n.weight = weight;
+            // a later expiry is picked up when the old slot is swept
+            n.value = newValue;
+            n.expireAt = now + expireIntervalNanos;
+            n.accessTime = now;
+            return n;
+        });
+        if (removed[0] != null) {
+            synchronized (wheelLock) {
+                unlink((Node<K, V>) removed[0]);
+            }
+        } else if (replaced[0] && isOverflowed()) {
+            evict();
+        }
+        return replaced[0];
+    }
+
+    @Override
+    protected V doGetIfPresent(K k) {
+        Node<K, V> node = cache.get(k);
+        if (node == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (node.expireAt - now <= 0) {
+            return null;
+        }
+        node.accessTime = now;
+        return node.value;
+    }
+
+    @Override
+    public void remove(K k) {
+        trace(TraceOp.REMOVE, k);
+        Node<K, V> node = cache.remove(k);
+        if (node != null) {
+            weightedSize.addAndGet(-node.weight);
+            synchronized (wheelLock) {
+                unlink(node);
+            }
+        }
+    }
+
+    @Override
+    public void removeIf(Predicate<? super K> predicate) {
+        List<Node<K, V>> removed = new ArrayList<>();
+        cache.forEach((k, node) -> {
+            if (predicate.test(k) && cache.remove(k, node)) {
+                weightedSize.addAndGet(-node.weight);
+                removed.add(node);
+            }
+        });
+        unlinkAll(removed);
+    }
+
+    @Override
+    public void clear() {
+        List<Node<K, V>> removed = new ArrayList<>();
+        cache.forEach((k, node) -> {
+            if (cache.remove(k, node)) {
+                weightedSize.addAndGet(-node.weight);
+                removed.add(node);
+            }
+        });
+        unlinkAll(removed);
+    }
+
+    /**
+     * the cached absences are not counted
+     */
+    @Override
+    public long size() {
+        if (!isNegativeCachingEnabled()) {
+            return cache.size();
+        }
+        return cache.values().stream().filter(node -> !isNullValue(node.value)).count();
+    }
+
+    /**
+     * the keys of cached absences are not included
+     */
+    @Override
+    public Set<K> keys() {
+        if (!isNegativeCachingEnabled()) {
+            return cache.keySet();
+        }
+        return cache.entrySet().stream()
+                .filter(entry -> !isNullValue(entry.getValue().value))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * the total weight of entries, 0 if bounded by {@code maximumSize}
+     *
+     * @return weighted size
+     */
+    public long weightedSize() {
+        return weightedSize.get();
+    }
+
+    /**
+     * stop sweeping and release all entries
+     */
+    @Override
+    public void close() {
+        sweepFuture.cancel(false);
+        clear();
+    }
+
+    /**
+     * move the node into the slot of its expire tick, the slot is chosen against the cursor under the same lock
+     * that advances it, so a node never lands in a slot the sweeper has just passed
+     *
+     * @param node node
+     */
+    private void schedule(Node<K, V> node) {
+        synchronized (wheelLock) {
+            unlink(node);
+            // a node removed or replaced meanwhile stays out of the wheel
+            if (cache.get(node.key) != node) {
+                return;
+            }
+            long current = currentTick;
+            long expireTick = Math.max((node.expireAt - startNanos) / TICK_NANOS + 1, current + 1);
+            long delta = expireTick - current;
+            for (int level = 0; level < LEVELS; level++) {
+                int shift = level * WHEEL_BITS;
+                if (delta < (1L << (shift + WHEEL_BITS))) {
+                    link(wheels[level][(int) ((expireTick >>> shift) & WHEEL_MASK)], node);
+                    return;
+                }
+            }
+            // beyond the highest wheel, park in its furthest slot and cascade again later
+            int shift = (LEVELS - 1) * WHEEL_BITS;
+            link(wheels[LEVELS - 1][(int) (((current >>> shift) - 1) & WHEEL_MASK)], node);
+        }
+    }
+
+    /**
+     * advance the wheel to the present, run by the sweeper only
+     */
+    private void advance() {
+        long targetTick = (System.nanoTime() - startNanos) / TICK_NANOS;
+        List<Node<K, V>> due = new ArrayList<>();
+        while (true) {
+            synchronized (wheelLock) {
+                if (currentTick >= targetTick) {
+                    return;
+                }
+                long tick = ++currentTick;
+                // cascade the higher wheels whose lower wheel just wrapped
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    int shift = level * WHEEL_BITS;
+                    if ((tick & ((1L << shift) - 1)) == 0) {
+                        detach(wheels[level][(int) ((tick >>> shift) & WHEEL_MASK)], due);
+                    }
+                }
+                detach(wheels[0][(int) (tick & WHEEL_MASK)], due);
+            }
+            // the map is updated outside the wheel lock
+            drain(due);
+            due.clear();
+        }
+    }
+
+    /**
+     * remove the expired nodes, reschedule the others
+     *
+     * @param due the nodes detached from the swept slots
+     */
+    private void drain(List<Node<K, V>> due) {
+        long now = System.nanoTime();
+        boolean[] expired = new boolean[1];
+        for (Node<K, V> node : due) {
+            expired[0] = false;
+            Node<K, V> current = cache.computeIfPresent(node.key, (key, n) -> {
+                if (n == node && n.expireAt - now <= 0) {
+                    weightedSize.addAndGet(-n.weight);
+                    expired[0] = true;
+                    return null;
+                }
+                return n;
+            });
+            // a node that has been removed or replaced is dropped from the wheel
+            if (expired[0]) {
+                statsCounter().recordEviction();
+            } else if (current == node) {
+                schedule(node);
+            }
+        }
+    }
+
+    /**
+     * append the node to the slot, guarded by {@link #wheelLock}
+     *
+     * @param sentinel the sentinel of slot
+     * @param node     node
+     */
+    private void link(Node<K, V> sentinel, Node<K, V> node) {
+        Node<K, V> last = sentinel.prev;
+        node.prev = last;
+        node.next = sentinel;
+        last.next = node;
+        sentinel.prev = node;
+    }
+
+    /**
+     * take the node out of its slot if it is in one, guarded by {@link #wheelLock}
+     *
+     * @param node node
+     */
+    private void unlink(Node<K, V> node) {
+        if (node.next == null) {
+            return;
+        }
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    /**
+     * take the nodes removed from the map out of their slots, so the wheel does not hold their values
+     *
+     * @param nodes removed nodes
+     */
+    private void unlinkAll(List<Node<K, V>> nodes) {
+        if (nodes.isEmpty()) {
+            return;
+        }
+        synchronized (wheelLock) {
+            nodes.forEach(this::unlink);
+        }
+    }
+
+    /**
+     * move all nodes of the slot into the list and empty the slot, guarded by {@link #wheelLock}
+     *
+     * @param sentinel the sentinel of slot
+     * @param into     the list receiving nodes
+     */
+    private void detach(Node<K, V> sentinel, List<Node<K, V>> into) {
+        Node<K, V> node = sentinel.next;
+        while (node != sentinel) {
+            Node<K, V> next = node.next;
+            node.prev = null;
+            node.next = null;
+            into.add(node);
+            node = next;
+        }
+        sentinel.prev = sentinel;
+        sentinel.next = sentinel;
+    }
+
+    /**
+     * evict the least recently used node of samples until the size or the weight is within bounds
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            while (isOverflowed()) {
+                Node<K, V> victim = null;
+                for (int i = 0; i < SAMPLE_SIZE; i++) {
+                    if (sampler == null || !sampler.hasNext()) {
+                        sampler = cache.values().iterator();
+                        if (!sampler.hasNext()) {
+                            break;
+                        }
+                    }
+                    Node<K, V> candidate = sampler.next();
+                    if (candidate.expireAt - now <= 0) {
+                        victim = candidate;
+                        break;
+                    }
+                    if (victim == null || candidate.accessTime - victim.accessTime < 0) {
+                        victim = candidate;
+                    }
+                }
+                if (victim == null) {
+                    return;
+                }
+                if (cache.remove(victim.key, victim)) {
+                    weightedSize.addAndGet(-victim.weight);
+                    synchronized (wheelLock) {
+                        unlink(victim);
+                    }
+                    statsCounter().recordEviction();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * Cache Node
+     *
+     * @param <K> generics of key
+     * @param <V> generics of value
+     */
+    private static final class Node<K, V> {
+
+        /**
+         * key
+         */
+        private final K key;
+
+        /**
+         * value
+         */
+        private volatile V value;
+
+        /**
+         * expire time, ns
+         */
+        private volatile long expireAt;
+
+        /**
+         * last access time, ns
+         * only used for choosing a victim, racy writes are harmless
+         */
+        private long accessTime;
+
+        /**
+         * weight, only changed while the map entry is locked
+         */
+        private int weight;
+
+        /**
+         * the neighbours in the wheel slot, null when not scheduled, guarded by {@link #wheelLock}
+         */
+        private Node<K, V> prev;
+
+        private Node<K, V> next;
+
+        private Node(K key, V value, long expireAt, long accessTime) {
+            this.key = key;
+            this.value = value;
+            this.expireAt = expireAt;
+            this.accessTime = accessTime;
+        }
+    }
+}
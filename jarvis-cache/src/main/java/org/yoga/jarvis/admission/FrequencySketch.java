@@ -0,0 +1,190 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.admission;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @Description: Count-Min sketch of 4-bit counters estimating the popularity of keys
+ * <p>
+ * Each long holds 16 counters, a key has 4 counters in 4 rows and its frequency is the minimum of them, at most 15.
+ * When the number of increments reaches 10 times of the capacity, all counters are halved so that the old popularity
+ * fades. When the table grows, every new counter starts from the old counter it splits from, so the popularity is
+ * kept. Concurrent increments are lock-free, a reset or a growth may race with increments and lose a few of them.
+ * @Author: yoga
+ * @Date: 2026/10/18 21:10
+ */
+public class FrequencySketch<E> {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    /**
+     * clears the lowest bit of every counter after shifting right
+     */
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    /**
+     * the lowest bit of every counter
+     */
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private static final int MAX_COUNT = 15;
+
+    /**
+     * counters, replaced when the capacity grows
+     */
+    private volatile AtomicLongArray table;
+
+    /**
+     * the number of increments after which counters are halved
+     */
+    private volatile int sampleSize;
+
+    /**
+     * the number of increments since the last reset
+     */
+    private final AtomicInteger additions = new AtomicInteger();
+
+    /**
+     * whether a thread is resetting or resizing
+     */
+    private final AtomicBoolean resetting = new AtomicBoolean(false);
+
+    public FrequencySketch(long capacity) {
+        ensureCapacity(capacity);
+    }
+
+    /**
+     * grow the table for the capacity, the counters are carried into the new table
+     *
+     * @param capacity the maximum number of entries of cache
+     */
+    public void ensureCapacity(long capacity) {
+        int maximum = (int) Math.min(Math.max(capacity, 16), 1 << 30);
+        AtomicLongArray current = table;
+        if (current != null && current.length() >= maximum) {
+            return;
+        }
+        if (!resetting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            AtomicLongArray grown = new AtomicLongArray(Integer.highestOneBit(maximum - 1) << 1);
+            if (current != null) {
+                // the index of a key in the old table is its index in the new one masked by the old length, so a new
+                // counter copied from that slot estimates the same frequency, an overestimate like any collision
+                int oldMask = current.length() - 1;
+                for (int i = 0; i < grown.length(); i++) {
+                    grown.lazySet(i, current.get(i & oldMask));
+                }
+            }
+            sampleSize = (int) Math.min(10L * maximum, Integer.MAX_VALUE);
+            table = grown;
+        } finally {
+            resetting.set(false);
+        }
+    }
+
+    /**
+     * the estimated frequency of element
+     *
+     * @param e element
+     * @return frequency, 0 to 15
+     */
+    public int frequency(E e) {
+        AtomicLongArray counters = table;
+        int hash = spread(e.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(counters, hash, i);
+            int count = (int) ((counters.get(index) >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * increment the counters of element, the counters are halved periodically
+     *
+     * @param e element
+     */
+    public void increment(E e) {
+        AtomicLongArray counters = table;
+        int hash = spread(e.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(counters, indexOf(counters, hash, i), start + i);
+        }
+        if (added && additions.incrementAndGet() >= sampleSize) {
+            reset(counters);
+        }
+    }
+
+    private boolean incrementAt(AtomicLongArray counters, int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        for (;;) {
+            long value = counters.get(index);
+            if ((value & mask) == mask) {
+                return false;
+            }
+            if (counters.compareAndSet(index, value, value + (1L << offset))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * halve all counters
+     */
+    private void reset(AtomicLongArray counters) {
+        if (!resetting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int odd = 0;
+            for (int i = 0; i < counters.length(); i++) {
+                long value = counters.getAndUpdate(i, v -> (v >>> 1) & RESET_MASK);
+                odd += Long.bitCount(value & ONE_MASK);
+            }
+            // the increments lost by truncation
+            additions.set(Math.max(0, (additions.get() - (odd >>> 2)) >>> 1));
+        } finally {
+            resetting.set(false);
+        }
+    }
+
+    private static int indexOf(AtomicLongArray counters, int item, int i) {
+        long hash = (item + SEEDS[i]) * SEEDS[i];
+        hash += hash >>> 32;
+        return ((int) hash) & (counters.length() - 1);
+    }
+
+    /**
+     * supplemental hash, hashCode may be of poor quality
+     */
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
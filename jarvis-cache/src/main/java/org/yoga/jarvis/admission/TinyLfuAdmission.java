@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.admission;
+
+/**
+ * @Description: TinyLFU admission policy
+ * <p>
+ * All accesses of keys are recorded into a {@link FrequencySketch}, when the cache is full a new key is admitted only
+ * if it is estimated to be more frequent than the victim, otherwise the new key is dropped and the victim stays.
+ * One-off keys, such as a scan, can not push the frequent keys out.
+ * @Author: yoga
+ * @Date: 2026/10/18 21:10
+ */
+public class TinyLfuAdmission<K> {
+
+    /**
+     * popularity of keys
+     */
+    private final FrequencySketch<K> sketch;
+
+    public TinyLfuAdmission(long capacity) {
+        this.sketch = new FrequencySketch<>(capacity);
+    }
+
+    /**
+     * record an access of key, a read, hit or miss, or a write
+     *
+     * @param k key
+     */
+    public void record(K k) {
+        sketch.increment(k);
+    }
+
+    /**
+     * whether candidate should replace victim
+     *
+     * @param candidate the new key
+     * @param victim    the key to be evicted
+     * @return true if candidate is more frequent than victim
+     */
+    public boolean admit(K candidate, K victim) {
+        return sketch.frequency(candidate) > sketch.frequency(victim);
+    }
+
+    /**
+     * grow the sketch when the cache holds more entries
+     *
+     * @param capacity the number of entries of cache
+     */
+    public void ensureCapacity(long capacity) {
+        sketch.ensureCapacity(capacity);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @Description: Cache the result of method by a CacheHandler bean
+ * <p>
+ * The key is a {@link org.yoga.jarvis.key.CompositeKey} of {@link #cacheName()} and the arguments, or of
+ * {@link #cacheName()} and the value of {@link #key()}. Concurrent calls with the same key invoke the method once.
+ * A method returning {@link java.util.concurrent.CompletableFuture} or {@link java.util.concurrent.CompletionStage}
+ * is cached by the completed value. A null result is not cached unless the handler caches absences.
+ * @Author: yoga
+ * @Date: 2026/10/18 23:05
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface JarvisCacheable {
+
+    /**
+     * the bean name of CacheHandler, the primary or only CacheHandler bean if empty
+     *
+     * @return bean name
+     */
+    String cacheHandler() default "";
+
+    /**
+     * the first part of keys, {@code ClassName.methodName} if empty
+     * the methods with the same cache name and arguments share entries
+     *
+     * @return cache name
+     */
+    String cacheName() default "";
+
+    /**
+     * SpEL expression of key, the arguments are referenced by {@code #name}, {@code #p0} or {@code #a0}
+     * all arguments are the key if empty
+     *
+     * @return key expression
+     */
+    String key() default "";
+
+    /**
+     * the time to live in seconds of the cached result, the expire interval of handler if not greater than 0
+     * it is capped by the expire interval of handler, a handler which can not set the ttl per entry fails the startup
+     *
+     * @return ttl, s
+     */
+    long ttlSeconds() default 0;
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.bean;
+
+import org.yoga.jarvis.removal.CacheRemovalListener;
+import org.yoga.jarvis.util.Assert;
+import org.yoga.jarvis.weigher.Weigher;
+
+/**
+ * @Description: Cache configs
+ * @Author: yoga
+ * @Date: 2026/10/18 17:30
+ */
+public class CacheConfigs<K, V> {
+    /**
+     * initial capacity of cache
+     */
+    private int initialCapacity = 64;
+
+    /**
+     * maximum of cache size
+     */
+    private int maximumSize = 1024;
+
+    /**
+     * maximum of the total weight of entries, 0 if disabled
+     * the cache is bounded by weight instead of {@link #maximumSize} when it is enabled
+     */
+    private long maximumWeight;
+
+    /**
+     * the weigher of entries, required when {@link #maximumWeight} is greater than 0
+     * it runs on every put, so there is no default
+     */
+    private Weigher<? super K, ? super V> weigher;
+
+    /**
+     * expire interval seconds of cache
+     */
+    private long expireIntervalSeconds = 24 * 60 * 60;
+
+    /**
+     * the age in seconds after which a read returns the stale value and triggers an async refresh, 0 if disabled
+     * it takes effect only if it is less than {@link #expireIntervalSeconds}
+     */
+    private long refreshAfterWriteSeconds;
+
+    /**
+     * the time to live in seconds of a cached absence, i.e. the loader returned null, 0 if absences are not cached
+     * it takes effect only if it is less than {@link #expireIntervalSeconds}
+     */
+    private long negativeTtlSeconds;
+
+    /**
+     * listener of removed entries, null if no listener
+     */
+    private CacheRemovalListener<K, V> removalListener;
+
+    /**
+     * capacity of the queue of removal notifications, the notifications are dropped when it is full
+     */
+    private int removalQueueCapacity = 1024;
+
+    /**
+     * maximum of removal notifications delivered per batch
+     */
+    private int removalBatchSize = 64;
+
+    /**
+     * configs of size and expiration, other configs are default
+     *
+     * @param initialCapacity       initial capacity of cache
+     * @param maximumSize           maximum of cache size
+     * @param expireIntervalSeconds expire interval seconds of cache
+     * @param <K>                   generics of key
+     * @param <V>                   generics of value
+     * @return cache configs
+     */
+    public static <K, V> CacheConfigs<K, V> of(int initialCapacity, int maximumSize, long expireIntervalSeconds) {
+        CacheConfigs<K, V> cacheConfigs = new CacheConfigs<>();
+        cacheConfigs.setInitialCapacity(initialCapacity);
+        cacheConfigs.setMaximumSize(maximumSize);
+        cacheConfigs.setExpireIntervalSeconds(expireIntervalSeconds);
+        return cacheConfigs;
+    }
+
+    public int getInitialCapacity() {
+        return initialCapacity;
+    }
+
+    public void setInitialCapacity(int initialCapacity) {
+        Assert.isTrue(initialCapacity >= 0, "initialCapacity must not be less than 0!");
+        this.initialCapacity = initialCapacity;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(int maximumSize) {
+        Assert.isTrue(maximumSize > 0, "maximumSize must be greater than 0!");
+        this.maximumSize = maximumSize;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public void setMaximumWeight(long maximumWeight) {
+        Assert.isTrue(maximumWeight >= 0, "maximumWeight must not be less than 0!");
+        this.maximumWeight = maximumWeight;
+    }
+
+    public Weigher<? super K, ? super V> getWeigher() {
+        return weigher;
+    }
+
+    public void setWeigher(Weigher<? super K, ? super V> weigher) {
+        Assert.notNull(weigher, "weigher must not be null!");
+        this.weigher = weigher;
+    }
+
+    public long getExpireIntervalSeconds() {
+        return expireIntervalSeconds;
+    }
+
+    public void setExpireIntervalSeconds(long expireIntervalSeconds) {
+        Assert.isTrue(expireIntervalSeconds > 0, "expireIntervalSeconds must be greater than 0!");
+        this.expireIntervalSeconds = expireIntervalSeconds;
+    }
+
+    public long getRefreshAfterWriteSeconds() {
+        return refreshAfterWriteSeconds;
+    }
+
+    public void setRefreshAfterWriteSeconds(long refreshAfterWriteSeconds) {
+        Assert.isTrue(refreshAfterWriteSeconds >= 0, "refreshAfterWriteSeconds must not be less than 0!");
+        this.refreshAfterWriteSeconds = refreshAfterWriteSeconds;
+    }
+
+    public long getNegativeTtlSeconds() {
+        return negativeTtlSeconds;
+    }
+
+    public void setNegativeTtlSeconds(long negativeTtlSeconds) {
+        Assert.isTrue(negativeTtlSeconds >= 0, "negativeTtlSeconds must not be less than 0!");
+        this.negativeTtlSeconds = negativeTtlSeconds;
+    }
+
+    public CacheRemovalListener<K, V> getRemovalListener() {
+        return removalListener;
+    }
+
+    public void setRemovalListener(CacheRemovalListener<K, V> removalListener) {
+        this.removalListener = removalListener;
+    }
+
+    public int getRemovalQueueCapacity() {
+        return removalQueueCapacity;
+    }
+
+    public void setRemovalQueueCapacity(int removalQueueCapacity) {
+        Assert.isTrue(removalQueueCapacity > 0, "removalQueueCapacity must be greater than 0!");
+        this.removalQueueCapacity = removalQueueCapacity;
+    }
+
+    public int getRemovalBatchSize() {
+        return removalBatchSize;
+    }
+
+    public void setRemovalBatchSize(int removalBatchSize) {
+        Assert.isTrue(removalBatchSize > 0, "removalBatchSize must be greater than 0!");
+        this.removalBatchSize = removalBatchSize;
+    }
+}
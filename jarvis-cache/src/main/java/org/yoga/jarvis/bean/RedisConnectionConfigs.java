@@ -0,0 +1,68 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.bean;
+
+import org.yoga.jarvis.util.Assert;
+
+/**
+ * @Description: Redis connection configs
+ * @Author: yoga
+ * @Date: 2026/10/18 20:30
+ */
+public class RedisConnectionConfigs {
+    /**
+     * the number of connections, the commands are spread over them round-robin
+     */
+    private int poolSize = 1;
+
+    /**
+     * the timeout of commands, ms
+     */
+    private long timeoutMillis = 2000;
+
+    /**
+     * the interval of PING health checks, s
+     */
+    private long healthCheckIntervalSeconds = 10;
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+        Assert.isTrue(poolSize > 0, "poolSize must be greater than 0!");
+        this.poolSize = poolSize;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public void setTimeoutMillis(long timeoutMillis) {
+        Assert.isTrue(timeoutMillis > 0, "timeoutMillis must be greater than 0!");
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public long getHealthCheckIntervalSeconds() {
+        return healthCheckIntervalSeconds;
+    }
+
+    public void setHealthCheckIntervalSeconds(long healthCheckIntervalSeconds) {
+        Assert.isTrue(healthCheckIntervalSeconds > 0, "healthCheckIntervalSeconds must be greater than 0!");
+        this.healthCheckIntervalSeconds = healthCheckIntervalSeconds;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.codec;
+
+import javax.annotation.Nonnull;
+
+/**
+ * @Description: Codec between cache value and bytes
+ * @Author: yoga
+ * @Date: 2026/10/18 15:20
+ */
+public interface CacheCodec<V> {
+
+    /**
+     * encode value to bytes
+     *
+     * @param value value, not null
+     * @return bytes
+     */
+    byte[] encode(@Nonnull V value);
+
+    /**
+     * decode bytes to value
+     *
+     * @param bytes bytes, not null
+     * @return value
+     */
+    V decode(@Nonnull byte[] bytes);
+}
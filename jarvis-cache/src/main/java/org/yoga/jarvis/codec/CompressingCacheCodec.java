@@ -0,0 +1,205 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.codec;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.yoga.jarvis.exception.JarvisException;
+import org.yoga.jarvis.util.Assert;
+import org.yoga.jarvis.util.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @Description: Cache Codec compressing the bytes of delegate whose length reaches the threshold
+ * <p>
+ * The first byte is the flag of compression, so a value can be decoded whether it is compressed or not.
+ * LZ4 requires the optional dependency {@code org.lz4:lz4-java}.
+ * @Author: yoga
+ * @Date: 2026/10/18 15:34
+ */
+public class CompressingCacheCodec<V> implements CacheCodec<V> {
+
+    /**
+     * flag of uncompressed bytes
+     */
+    private static final byte NONE = 0;
+
+    /**
+     * the codec encoding value to bytes
+     */
+    private final CacheCodec<V> delegate;
+
+    /**
+     * compression
+     */
+    private final Compression compression;
+
+    /**
+     * the minimum length of bytes to compress
+     */
+    private final int threshold;
+
+    public CompressingCacheCodec(CacheCodec<V> delegate, Compression compression, int threshold) {
+        Assert.notNull(delegate, "delegate must not be null!");
+        Assert.notNull(compression, "compression must not be null!");
+        Assert.isTrue(threshold >= 0, "threshold must not be less than 0!");
+        this.delegate = delegate;
+        this.compression = compression;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public byte[] encode(V value) {
+        byte[] bytes = delegate.encode(value);
+        if (bytes.length >= threshold) {
+            byte[] compressed = compression.compress(bytes);
+            // keep the raw bytes if compressing does not help
+            if (compressed.length < bytes.length) {
+                return compressed;
+            }
+        }
+        byte[] raw = new byte[bytes.length + 1];
+        raw[0] = NONE;
+        System.arraycopy(bytes, 0, raw, 1, bytes.length);
+        return raw;
+    }
+
+    @Override
+    public V decode(byte[] bytes) {
+        Assert.isTrue(bytes.length > 0, "bytes must not be empty!");
+        byte flag = bytes[0];
+        if (flag == NONE) {
+            return delegate.decode(Arrays.copyOfRange(bytes, 1, bytes.length));
+        }
+        for (Compression c : Compression.values()) {
+            if (c.flag == flag) {
+                return delegate.decode(c.decompress(bytes));
+            }
+        }
+        throw new JarvisException("unknown compression flag: " + flag);
+    }
+
+    /**
+     * Compression
+     */
+    public enum Compression {
+
+        /**
+         * gzip, higher ratio
+         */
+        GZIP((byte) 1) {
+            @Override
+            byte[] compress(byte[] bytes) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2 + 1);
+                out.write(flag);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                    gzip.write(bytes);
+                } catch (IOException e) {
+                    throw new JarvisException(e);
+                }
+                return out.toByteArray();
+            }
+
+            @Override
+            byte[] decompress(byte[] bytes) {
+                try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+                    return IOUtils.toByteArray(gzip);
+                } catch (IOException e) {
+                    throw new JarvisException(e);
+                }
+            }
+        },
+
+        /**
+         * lz4, faster
+         */
+        LZ4((byte) 2) {
+            @Override
+            byte[] compress(byte[] bytes) {
+                LZ4Compressor compressor = Lz4Holder.FACTORY.fastCompressor();
+                byte[] out = new byte[HEADER_LENGTH + compressor.maxCompressedLength(bytes.length)];
+                out[0] = flag;
+                writeInt(out, 1, bytes.length);
+                int length = compressor.compress(bytes, 0, bytes.length, out, HEADER_LENGTH, out.length - HEADER_LENGTH);
+                return Arrays.copyOf(out, HEADER_LENGTH + length);
+            }
+
+            @Override
+            byte[] decompress(byte[] bytes) {
+                LZ4FastDecompressor decompressor = Lz4Holder.FACTORY.fastDecompressor();
+                return decompressor.decompress(bytes, HEADER_LENGTH, readInt(bytes, 1));
+            }
+        };
+
+        /**
+         * the length of flag and original length, only used by lz4
+         */
+        private static final int HEADER_LENGTH = 5;
+
+        /**
+         * the first byte of compressed bytes
+         */
+        final byte flag;
+
+        Compression(byte flag) {
+            this.flag = flag;
+        }
+
+        /**
+         * compress bytes, the result starts with {@link #flag}
+         *
+         * @param bytes bytes
+         * @return compressed bytes
+         */
+        abstract byte[] compress(byte[] bytes);
+
+        /**
+         * decompress bytes starting with {@link #flag}
+         *
+         * @param bytes compressed bytes
+         * @return bytes
+         */
+        abstract byte[] decompress(byte[] bytes);
+
+        private static void writeInt(byte[] bytes, int offset, int value) {
+            bytes[offset] = (byte) (value >>> 24);
+            bytes[offset + 1] = (byte) (value >>> 16);
+            bytes[offset + 2] = (byte) (value >>> 8);
+            bytes[offset + 3] = (byte) value;
+        }
+
+        private static int readInt(byte[] bytes, int offset) {
+            return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16
+                    | (bytes[offset + 2] & 0xFF) << 8 | bytes[offset + 3] & 0xFF;
+        }
+    }
+
+    /**
+     * lz4 factory, loaded on first use so that lz4-java is only required by {@link Compression#LZ4}
+     */
+    private static final class Lz4Holder {
+
+        private static final LZ4Factory FACTORY = LZ4Factory.fastestInstance();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.codec;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.yoga.jarvis.exception.JarvisException;
+import org.yoga.jarvis.util.Assert;
+import org.yoga.jarvis.util.JsonUtils;
+
+/**
+ * @Description: Json Cache Codec implemented by jackson
+ * @Author: yoga
+ * @Date: 2026/10/18 15:26
+ */
+public class JsonCacheCodec<V> implements CacheCodec<V> {
+
+    /**
+     * class of value, null if {@link #reference} is used
+     */
+    private final Class<V> clazz;
+
+    /**
+     * type reference of value, null if {@link #clazz} is used
+     */
+    private final TypeReference<V> reference;
+
+    public JsonCacheCodec(Class<V> clazz) {
+        Assert.notNull(clazz, "clazz must not be null!");
+        this.clazz = clazz;
+        this.reference = null;
+    }
+
+    public JsonCacheCodec(TypeReference<V> reference) {
+        Assert.notNull(reference, "reference must not be null!");
+        this.clazz = null;
+        this.reference = reference;
+    }
+
+    @Override
+    public byte[] encode(V value) {
+        byte[] bytes = JsonUtils.toBytes(value);
+        if (bytes == null) {
+            throw new JarvisException("json encode fail, value: " + value);
+        }
+        return bytes;
+    }
+
+    @Override
+    public V decode(byte[] bytes) {
+        V value = clazz != null ? JsonUtils.parseObj(bytes, clazz) : JsonUtils.parseObj(bytes, reference);
+        if (value == null) {
+            throw new JarvisException("json decode fail!");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.codec;
+
+import org.yoga.jarvis.util.SerializeUtils;
+
+import java.io.Serializable;
+
+/**
+ * @Description: Cache Codec implemented by java serialization
+ * @Author: yoga
+ * @Date: 2026/10/18 15:30
+ */
+public class SerializableCacheCodec<V extends Serializable> implements CacheCodec<V> {
+
+    @Override
+    public byte[] encode(V value) {
+        return SerializeUtils.serialize(value);
+    }
+
+    @Override
+    public V decode(byte[] bytes) {
+        return SerializeUtils.deserialize(bytes);
+    }
+}
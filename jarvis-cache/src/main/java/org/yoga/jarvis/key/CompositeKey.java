@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.key;
+
+import org.yoga.jarvis.util.Assert;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * @Description: Immutable key of several parts
+ * <p>
+ * Equal if all parts are equal, arrays are compared by content. The hash code is computed once. It replaces the keys
+ * concatenated as strings, which copy every part into a new string on each lookup. {@link #toString()} joins the
+ * parts by {@code :}, so a composite key is readable in redis.
+ * @Author: yoga
+ * @Date: 2026/10/18 23:00
+ */
+public final class CompositeKey implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * parts, not shared with callers
+     */
+    private final Object[] parts;
+
+    /**
+     * hash code
+     */
+    private final int hash;
+
+    private CompositeKey(Object[] parts) {
+        this.parts = parts;
+        this.hash = Arrays.deepHashCode(parts);
+    }
+
+    /**
+     * key of two parts
+     *
+     * @param first  first part, nullable
+     * @param second second part, nullable
+     * @return key
+     */
+    public static CompositeKey of(Object first, Object second) {
+        return new CompositeKey(new Object[]{first, second});
+    }
+
+    /**
+     * key of parts
+     *
+     * @param parts parts, nullable elements
+     * @return key
+     */
+    public static CompositeKey of(Object... parts) {
+        Assert.notNull(parts, "parts must not be null!");
+        return new CompositeKey(parts.clone());
+    }
+
+    /**
+     * key of a prefix followed by parts, one array is allocated
+     *
+     * @param prefix prefix, nullable
+     * @param parts  parts, nullable elements
+     * @return key
+     */
+    public static CompositeKey prefixed(Object prefix, Object[] parts) {
+        Assert.notNull(parts, "parts must not be null!");
+        Object[] all = new Object[parts.length + 1];
+        all[0] = prefix;
+        System.arraycopy(parts, 0, all, 1, parts.length);
+        return new CompositeKey(all);
+    }
+
+    /**
+     * the number of parts
+     *
+     * @return size
+     */
+    public int size() {
+        return parts.length;
+    }
+
+    /**
+     * part of index
+     *
+     * @param index index
+     * @return part
+     */
+    public Object get(int index) {
+        return parts[index];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompositeKey)) {
+            return false;
+        }
+        CompositeKey that = (CompositeKey) o;
+        return hash == that.hash && Arrays.deepEquals(parts, that.parts);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                builder.append(':');
+            }
+            Object part = parts[i];
+            builder.append(part instanceof Object[] ? Arrays.deepToString((Object[]) part) : String.valueOf(part));
+        }
+        return builder.toString();
+    }
+}
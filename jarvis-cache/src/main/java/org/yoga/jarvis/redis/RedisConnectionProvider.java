@@ -0,0 +1,272 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.redis;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.TimeoutOptions;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yoga.jarvis.bean.RedisConnectionConfigs;
+import org.yoga.jarvis.exception.JarvisException;
+import org.yoga.jarvis.factory.ThreadFactoryBuilder;
+import org.yoga.jarvis.util.Assert;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @Description: Provider of redis connections
+ * <p>
+ * A fixed number of multiplexed connections of one client, each caller gets one of them round-robin and may share
+ * it with other threads. The connections reconnect automatically, and are checked by PING periodically, a closed or
+ * unresponsive connection is replaced by a new one. The check and the replacement never block, so a dead server
+ * does not delay the checks of other providers. A replaced connection is closed once the commands sent on it have
+ * timed out at the latest. Commands fail with a timeout exception after {@code timeout}.
+ * @Author: yoga
+ * @Date: 2026/10/18 20:30
+ */
+public class RedisConnectionProvider implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisConnectionProvider.class);
+
+    /**
+     * keys are utf-8 strings, values are bytes
+     */
+    private static final RedisCodec<String, byte[]> CODEC = RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE);
+
+    /**
+     * the health checker shared by all providers, its tasks only send commands and never wait for replies
+     */
+    private static final ScheduledExecutorService HEALTH_CHECKER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("jarvis-redis-health-%d").setDaemon(true).build());
+
+    /**
+     * redis client
+     */
+    private final RedisClient redisClient;
+
+    /**
+     * redis uri
+     */
+    private final RedisURI redisURI;
+
+    /**
+     * connections
+     */
+    private final AtomicReferenceArray<StatefulRedisConnection<String, byte[]>> connections;
+
+    /**
+     * 1 if the connection of index is being replaced
+     */
+    private final AtomicIntegerArray reconnecting;
+
+    /**
+     * the counter of round-robin
+     */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * the timeout of commands
+     */
+    private final Duration timeout;
+
+    /**
+     * the future of health check task
+     */
+    private final ScheduledFuture<?> healthCheckFuture;
+
+    /**
+     * whether it is closed
+     */
+    private volatile boolean closed;
+
+    public RedisConnectionProvider(String host, int port) {
+        this(host, port, new RedisConnectionConfigs());
+    }
+
+    public RedisConnectionProvider(String host, int port, RedisConnectionConfigs configs) {
+        Assert.notBlank(host, "host must not be blank!");
+        Assert.notNull(configs, "configs must not be null!");
+        this.timeout = Duration.ofMillis(configs.getTimeoutMillis());
+        this.redisURI = RedisURI.create(host, port);
+        redisURI.setTimeout(timeout);
+        this.redisClient = RedisClient.create(redisURI);
+        redisClient.setOptions(ClientOptions.builder()
+                .autoReconnect(true)
+                .pingBeforeActivateConnection(true)
+                // the commands queued while disconnected also time out
+                .timeoutOptions(TimeoutOptions.enabled(timeout))
+                .build());
+        this.connections = new AtomicReferenceArray<>(configs.getPoolSize());
+        this.reconnecting = new AtomicIntegerArray(configs.getPoolSize());
+        try {
+            for (int i = 0; i < configs.getPoolSize(); i++) {
+                connections.set(i, redisClient.connect(CODEC));
+            }
+        } catch (RuntimeException e) {
+            close(0);
+            throw new JarvisException("connect redis failed, " + host + ":" + port, e);
+        }
+        this.healthCheckFuture = HEALTH_CHECKER.scheduleWithFixedDelay(this::healthCheck,
+                configs.getHealthCheckIntervalSeconds(), configs.getHealthCheckIntervalSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * a connection, round-robin
+     * the connection must not be closed by the caller, and must not be used for blocking or transactional commands.
+     * A closed connection is replaced in background, the caller does not wait for it
+     *
+     * @return connection
+     */
+    public StatefulRedisConnection<String, byte[]> connection() {
+        Assert.isTrue(!closed, "the redis connection provider is closed!");
+        int index = (next.getAndIncrement() & Integer.MAX_VALUE) % connections.length();
+        StatefulRedisConnection<String, byte[]> connection = connections.get(index);
+        if (!connection.isOpen()) {
+            reconnect(index, connection);
+        }
+        return connection;
+    }
+
+    /**
+     * a new pub/sub connection, owned by the caller
+     *
+     * @return pub/sub connection
+     */
+    public StatefulRedisPubSubConnection<String, String> connectPubSub() {
+        return redisClient.connectPubSub();
+    }
+
+    /**
+     * the timeout of commands
+     *
+     * @return timeout
+     */
+    public Duration timeout() {
+        return timeout;
+    }
+
+    /**
+     * the number of connections
+     *
+     * @return pool size
+     */
+    public int poolSize() {
+        return connections.length();
+    }
+
+    /**
+     * stop the health check, close the connections and shut down the client
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        healthCheckFuture.cancel(false);
+        close(connections.length());
+    }
+
+    private void close(int connected) {
+        for (int i = 0; i < connected; i++) {
+            StatefulRedisConnection<String, byte[]> connection = connections.get(i);
+            if (connection != null) {
+                connection.close();
+            }
+        }
+        redisClient.shutdown();
+    }
+
+    /**
+     * PING each connection asynchronously, replace the closed or unresponsive ones
+     * the PING times out by the timeout options of client, the checker thread never waits for it
+     */
+    private void healthCheck() {
+        for (int i = 0; i < connections.length() && !closed; i++) {
+            int index = i;
+            StatefulRedisConnection<String, byte[]> connection = connections.get(i);
+            if (!connection.isOpen()) {
+                reconnect(index, connection);
+                continue;
+            }
+            connection.async().ping().whenComplete((pong, e) -> {
+                if (e == null && "PONG".equals(pong)) {
+                    return;
+                }
+                logger.warn("redis connection health check failed, index: {}, reply: {}", index, pong, e);
+                reconnect(index, connection);
+            });
+        }
+    }
+
+    /**
+     * replace the broken connection of index asynchronously, the broken one is kept if connecting fails
+     * at most one replacement per index runs at a time
+     *
+     * @param index  the index of connection
+     * @param broken the broken connection
+     */
+    private void reconnect(int index, StatefulRedisConnection<String, byte[]> broken) {
+        if (closed || !reconnecting.compareAndSet(index, 0, 1)) {
+            return;
+        }
+        try {
+            redisClient.connectAsync(CODEC, redisURI).whenComplete((connection, e) -> {
+                try {
+                    if (e != null) {
+                        // lettuce keeps reconnecting the broken one in background
+                        logger.warn("redis reconnect failed, index: {}", index, e);
+                    } else if (!closed && connections.compareAndSet(index, broken, connection)) {
+                        retire(broken);
+                    } else {
+                        // replaced by another thread, or the provider is closed
+                        connection.closeAsync();
+                    }
+                } finally {
+                    reconnecting.set(index, 0);
+                }
+            });
+        } catch (RuntimeException e) {
+            reconnecting.set(index, 0);
+            logger.warn("redis reconnect failed, index: {}", index, e);
+        }
+    }
+
+    /**
+     * close a replaced connection after the commands in flight on it have completed or timed out
+     * the threads which got it just before the swap may still send commands, so it is kept for two timeouts
+     *
+     * @param connection replaced connection
+     */
+    private void retire(StatefulRedisConnection<String, byte[]> connection) {
+        HEALTH_CHECKER.schedule(connection::closeAsync, timeout.toMillis() * 2, TimeUnit.MILLISECONDS);
+    }
+}
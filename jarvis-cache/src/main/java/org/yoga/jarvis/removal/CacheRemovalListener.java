@@ -0,0 +1,36 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.removal;
+
+import java.util.List;
+
+/**
+ * @Description: the listener of removed entries
+ * it is called on the removal dispatching thread with the notifications in removal order, never on the caller thread
+ * @Author: yoga
+ * @Date: 2026/10/18 17:16
+ */
+@FunctionalInterface
+public interface CacheRemovalListener<K, V> {
+
+    /**
+     * called with a batch of removed entries
+     *
+     * @param notifications notifications, not empty
+     */
+    void onRemoval(List<RemovalNotification<K, V>> notifications);
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.removal;
+
+/**
+ * @Description: the cause of removing an entry
+ * @Author: yoga
+ * @Date: 2026/10/18 17:12
+ */
+public enum RemovalCause {
+
+    /**
+     * removed by user
+     */
+    EXPLICIT,
+
+    /**
+     * the value is replaced by user
+     */
+    REPLACED,
+
+    /**
+     * the key or value is garbage-collected
+     */
+    COLLECTED,
+
+    /**
+     * expired
+     */
+    EXPIRED,
+
+    /**
+     * evicted by size or weight
+     */
+    SIZE;
+
+    /**
+     * whether the entry is removed automatically
+     *
+     * @return true if evicted
+     */
+    public boolean wasEvicted() {
+        return this == COLLECTED || this == EXPIRED || this == SIZE;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.removal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yoga.jarvis.factory.ThreadFactoryBuilder;
+import org.yoga.jarvis.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Description: deliver removal notifications to a listener asynchronously in batches
+ * <p>
+ * Notifications are put into a bounded queue and drained by a thread shared by all dispatchers.
+ * When the queue is full the notification is dropped and counted, so the caller is never blocked.
+ * @Author: yoga
+ * @Date: 2026/10/18 17:20
+ */
+public class RemovalDispatcher<K, V> {
+
+    private static final Logger logger = LoggerFactory.getLogger(RemovalDispatcher.class);
+
+    /**
+     * the thread delivering notifications, shared by all dispatchers
+     */
+    private static final ExecutorService DELIVERER = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("jarvis-cache-removal-%d").setDaemon(true).build());
+
+    /**
+     * listener
+     */
+    private final CacheRemovalListener<K, V> listener;
+
+    /**
+     * notifications waiting for delivery
+     */
+    private final BlockingQueue<RemovalNotification<K, V>> queue;
+
+    /**
+     * maximum of notifications per batch
+     */
+    private final int batchSize;
+
+    /**
+     * whether a drain task is submitted
+     */
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+
+    /**
+     * the number of dropped notifications
+     */
+    private final LongAdder droppedCount = new LongAdder();
+
+    public RemovalDispatcher(CacheRemovalListener<K, V> listener, int queueCapacity, int batchSize) {
+        Assert.notNull(listener, "listener must not be null!");
+        Assert.isTrue(queueCapacity > 0, "queueCapacity must be greater than 0!");
+        Assert.isTrue(batchSize > 0, "batchSize must be greater than 0!");
+        this.listener = listener;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * enqueue a notification, never blocks
+     *
+     * @param key   key
+     * @param value value
+     * @param cause cause
+     */
+    public void dispatch(K key, V value, RemovalCause cause) {
+        if (!queue.offer(new RemovalNotification<>(key, value, cause))) {
+            droppedCount.increment();
+        }
+        if (draining.compareAndSet(false, true)) {
+            DELIVERER.execute(this::drain);
+        }
+    }
+
+    /**
+     * the number of notifications dropped because the queue was full
+     *
+     * @return dropped count
+     */
+    public long droppedCount() {
+        return droppedCount.sum();
+    }
+
+    private void drain() {
+        try {
+            List<RemovalNotification<K, V>> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                try {
+                    listener.onRemoval(batch);
+                } catch (RuntimeException e) {
+                    logger.warn("removal listener failed, {} notifications are lost", batch.size(), e);
+                }
+                // the listener may keep the batch
+                batch = new ArrayList<>(batchSize);
+            }
+        } finally {
+            draining.set(false);
+        }
+        // a notification enqueued after the last drain and before the flag is reset
+        if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+            DELIVERER.execute(this::drain);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.removal;
+
+import java.util.StringJoiner;
+
+/**
+ * @Description: the notification of a removed entry
+ * @Author: yoga
+ * @Date: 2026/10/18 17:14
+ */
+public final class RemovalNotification<K, V> {
+
+    /**
+     * key, null if collected
+     */
+    private final K key;
+
+    /**
+     * value, null if collected
+     */
+    private final V value;
+
+    /**
+     * cause
+     */
+    private final RemovalCause cause;
+
+    public RemovalNotification(K key, V value, RemovalCause cause) {
+        this.key = key;
+        this.value = value;
+        this.cause = cause;
+    }
+
+    public K getKey() {
+        return key;
+    }
+
+    public V getValue() {
+        return value;
+    }
+
+    public RemovalCause getCause() {
+        return cause;
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", RemovalNotification.class.getSimpleName() + "[", "]")
+                .add("key=" + key)
+                .add("value=" + value)
+                .add("cause=" + cause)
+                .toString();
+    }
+}
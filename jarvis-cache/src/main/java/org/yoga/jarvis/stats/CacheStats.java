@@ -0,0 +1,204 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.stats;
+
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+/**
+ * @Description: Immutable snapshot of the statistics of a cache
+ * @Author: yoga
+ * @Date: 2026/10/18 16:30
+ */
+public final class CacheStats {
+
+    /**
+     * the upper bounds of load latency buckets, ms
+     * the last bucket of {@link #getLoadLatencyCounts()} counts the loads slower than the last bound
+     */
+    private static final long[] LOAD_LATENCY_BOUNDS_MILLIS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000};
+
+    /**
+     * the number of lookups that returned a cached value
+     */
+    private final long hitCount;
+
+    /**
+     * the number of lookups that found nothing
+     */
+    private final long missCount;
+
+    /**
+     * the number of hits that returned a cached absence, they are counted by {@link #hitCount} as well
+     */
+    private final long negativeHitCount;
+
+    /**
+     * the number of loads that returned a value
+     */
+    private final long loadSuccessCount;
+
+    /**
+     * the number of loads that threw an exception or returned nothing
+     */
+    private final long loadFailureCount;
+
+    /**
+     * the total time spent loading, ns
+     */
+    private final long totalLoadTime;
+
+    /**
+     * the number of entries evicted by size or expiration
+     */
+    private final long evictionCount;
+
+    /**
+     * the number of entries when the snapshot is taken
+     */
+    private final long size;
+
+    /**
+     * the number of loads of each latency bucket
+     */
+    private final long[] loadLatencyCounts;
+
+    public CacheStats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount, long totalLoadTime,
+                      long evictionCount, long size, long[] loadLatencyCounts) {
+        this(hitCount, missCount, 0, loadSuccessCount, loadFailureCount, totalLoadTime, evictionCount, size,
+                loadLatencyCounts);
+    }
+
+    public CacheStats(long hitCount, long missCount, long negativeHitCount, long loadSuccessCount,
+                      long loadFailureCount, long totalLoadTime, long evictionCount, long size,
+                      long[] loadLatencyCounts) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.negativeHitCount = negativeHitCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadTime = totalLoadTime;
+        this.evictionCount = evictionCount;
+        this.size = size;
+        this.loadLatencyCounts = Arrays.copyOf(loadLatencyCounts, LOAD_LATENCY_BOUNDS_MILLIS.length + 1);
+    }
+
+    /**
+     * the upper bounds of load latency buckets
+     *
+     * @return bounds, ms
+     */
+    public static long[] getLoadLatencyBoundsMillis() {
+        return LOAD_LATENCY_BOUNDS_MILLIS.clone();
+    }
+
+    /**
+     * the index of latency bucket
+     *
+     * @param nanos latency, ns
+     * @return index
+     */
+    static int loadLatencyBucket(long nanos) {
+        long millis = nanos / 1_000_000;
+        for (int i = 0; i < LOAD_LATENCY_BOUNDS_MILLIS.length; i++) {
+            if (millis < LOAD_LATENCY_BOUNDS_MILLIS[i]) {
+                return i;
+            }
+        }
+        return LOAD_LATENCY_BOUNDS_MILLIS.length;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getNegativeHitCount() {
+        return negativeHitCount;
+    }
+
+    public long getRequestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * hit rate, 1.0 if there is no request
+     *
+     * @return hit rate
+     */
+    public double getHitRate() {
+        long requestCount = getRequestCount();
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    public long getLoadSuccessCount() {
+        return loadSuccessCount;
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    public long getTotalLoadTime() {
+        return totalLoadTime;
+    }
+
+    /**
+     * average time of loads, ns
+     *
+     * @return average load penalty
+     */
+    public double getAverageLoadPenalty() {
+        long loadCount = loadSuccessCount + loadFailureCount;
+        return loadCount == 0 ? 0.0 : (double) totalLoadTime / loadCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * the number of loads of each latency bucket, see {@link #getLoadLatencyBoundsMillis()}
+     *
+     * @return counts, the length is the number of bounds plus one
+     */
+    public long[] getLoadLatencyCounts() {
+        return loadLatencyCounts.clone();
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", CacheStats.class.getSimpleName() + "[", "]")
+                .add("hitCount=" + hitCount)
+                .add("missCount=" + missCount)
+                .add("negativeHitCount=" + negativeHitCount)
+                .add("loadSuccessCount=" + loadSuccessCount)
+                .add("loadFailureCount=" + loadFailureCount)
+                .add("totalLoadTime=" + totalLoadTime)
+                .add("evictionCount=" + evictionCount)
+                .add("size=" + size)
+                .add("loadLatencyCounts=" + Arrays.toString(loadLatencyCounts))
+                .toString();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.stats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Description: Thread-safe accumulator of the statistics of a cache
+ * @Author: yoga
+ * @Date: 2026/10/18 16:38
+ */
+public final class StatsCounter {
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder negativeHitCount = new LongAdder();
+
+    private final LongAdder loadSuccessCount = new LongAdder();
+
+    private final LongAdder loadFailureCount = new LongAdder();
+
+    private final LongAdder totalLoadTime = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder[] loadLatencyCounts;
+
+    public StatsCounter() {
+        this.loadLatencyCounts = new LongAdder[CacheStats.getLoadLatencyBoundsMillis().length + 1];
+        for (int i = 0; i < loadLatencyCounts.length; i++) {
+            loadLatencyCounts[i] = new LongAdder();
+        }
+    }
+
+    public void recordHits(int count) {
+        hitCount.add(count);
+    }
+
+    public void recordMisses(int count) {
+        missCount.add(count);
+    }
+
+    /**
+     * record the hits that returned a cached absence, they are recorded as hits as well
+     *
+     * @param count count
+     */
+    public void recordNegativeHits(int count) {
+        hitCount.add(count);
+        negativeHitCount.add(count);
+    }
+
+    /**
+     * record a load that returned a value
+     *
+     * @param loadTime load time, ns
+     */
+    public void recordLoadSuccess(long loadTime) {
+        loadSuccessCount.increment();
+        totalLoadTime.add(loadTime);
+        recordLoadLatency(loadTime);
+    }
+
+    /**
+     * record a load that threw an exception or returned nothing
+     *
+     * @param loadTime load time, ns
+     */
+    public void recordLoadFailure(long loadTime) {
+        loadFailureCount.increment();
+        totalLoadTime.add(loadTime);
+        recordLoadLatency(loadTime);
+    }
+
+    /**
+     * record the latency only, for the caches counting loads by themselves
+     *
+     * @param loadTime load time, ns
+     */
+    public void recordLoadLatency(long loadTime) {
+        loadLatencyCounts[CacheStats.loadLatencyBucket(loadTime)].increment();
+    }
+
+    public void recordEviction() {
+        evictionCount.increment();
+    }
+
+    /**
+     * the number of loads of each latency bucket
+     *
+     * @return counts
+     */
+    public long[] loadLatencyCounts() {
+        long[] counts = new long[loadLatencyCounts.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = loadLatencyCounts[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * snapshot
+     *
+     * @param size the number of entries
+     * @return stats
+     */
+    public CacheStats snapshot(long size) {
+        return new CacheStats(hitCount.sum(), missCount.sum(), negativeHitCount.sum(), loadSuccessCount.sum(),
+                loadFailureCount.sum(), totalLoadTime.sum(), evictionCount.sum(), size, loadLatencyCounts());
+    }
+}
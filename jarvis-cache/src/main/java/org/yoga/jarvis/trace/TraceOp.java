@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.trace;
+
+/**
+ * @Description: the operation of a traced access
+ * @Author: yoga
+ * @Date: 2026/10/18 22:05
+ */
+public enum TraceOp {
+
+    /**
+     * get, getIfPresent or getAll, a miss is loaded and put by the replayed cache
+     */
+    READ,
+
+    /**
+     * put or putAll
+     */
+    WRITE,
+
+    /**
+     * remove
+     */
+    REMOVE;
+
+    private static final TraceOp[] VALUES = values();
+
+    /**
+     * the operation of code
+     *
+     * @param code code, the ordinal
+     * @return operation
+     */
+    public static TraceOp of(int code) {
+        if (code < 0 || code >= VALUES.length) {
+            throw new IllegalArgumentException("unknown trace op: " + code);
+        }
+        return VALUES[code];
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.trace;
+
+import org.yoga.jarvis.exception.JarvisException;
+import org.yoga.jarvis.util.Assert;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * @Description: Reader of the trace written by {@link TraceRecorder}
+ * @Author: yoga
+ * @Date: 2026/10/18 22:25
+ */
+public final class TraceReader {
+
+    private TraceReader() {
+    }
+
+    /**
+     * visit the records in order, a truncated last record is ignored
+     *
+     * @param file    the file of trace
+     * @param visitor visitor of records
+     * @return the number of records
+     */
+    public static long read(Path file, TraceVisitor visitor) {
+        Assert.notNull(file, "file must not be null!");
+        Assert.notNull(visitor, "visitor must not be null!");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != TraceRecorder.MAGIC) {
+                throw new JarvisException("not a cache trace, file: " + file);
+            }
+            int version = in.readInt();
+            if (version != TraceRecorder.VERSION) {
+                throw new JarvisException("unsupported cache trace version: " + version + ", file: " + file);
+            }
+            long startMillis = in.readLong();
+            long count = 0;
+            while (true) {
+                int op = in.read();
+                if (op < 0) {
+                    return count;
+                }
+                long keyHash;
+                int offsetMillis;
+                try {
+                    keyHash = in.readLong();
+                    offsetMillis = in.readInt();
+                } catch (EOFException e) {
+                    return count;
+                }
+                visitor.visit(TraceOp.of(op), keyHash, startMillis + offsetMillis);
+                count++;
+            }
+        } catch (IOException e) {
+            throw new JarvisException("read cache trace failed, file: " + file, e);
+        }
+    }
+
+    /**
+     * Visitor of trace records
+     */
+    @FunctionalInterface
+    public interface TraceVisitor {
+
+        /**
+         * @param op         operation
+         * @param keyHash    key hash
+         * @param timeMillis the time of access, ms
+         */
+        void visit(TraceOp op, long keyHash, long timeMillis);
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yoga.jarvis.exception.JarvisException;
+import org.yoga.jarvis.factory.ThreadFactoryBuilder;
+import org.yoga.jarvis.util.Assert;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @Description: Recorder of the accesses of a cache, for offline replay
+ * <p>
+ * An access is a key hash, an operation and a time, written into a ring buffer without locking and drained into a
+ * compact binary file by a thread shared by all recorders. The records overwritten before they are drained are
+ * dropped and counted, so the caller is never blocked. The key hash is the spread {@link Object#hashCode()}, the
+ * keys with the same hash code are one key in the trace.
+ * <p>
+ * File format, big-endian: magic(int) version(int) startMillis(long), then op(byte) keyHash(long)
+ * offsetMillis(int) per record, see {@link TraceReader}.
+ * @Author: yoga
+ * @Date: 2026/10/18 22:10
+ */
+public class TraceRecorder implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TraceRecorder.class);
+
+    /**
+     * "JTRC"
+     */
+    static final int MAGIC = 0x4A545243;
+
+    static final int VERSION = 1;
+
+    /**
+     * default capacity of the ring buffer
+     */
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /**
+     * default interval of draining, ms
+     */
+    private static final long DEFAULT_DRAIN_INTERVAL_MS = 1000;
+
+    /**
+     * the thread draining ring buffers, shared by all recorders
+     */
+    private static final ScheduledExecutorService DRAINER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("jarvis-cache-trace-%d").setDaemon(true).build());
+
+    /**
+     * the file of trace
+     */
+    private final Path file;
+
+    private final DataOutputStream out;
+
+    /**
+     * the start time of trace, ms
+     */
+    private final long startMillis;
+
+    private final int mask;
+
+    private final long[] keyHashes;
+
+    private final byte[] ops;
+
+    private final int[] offsetMillis;
+
+    /**
+     * the sequence + 1 of the record in each slot, 0 if empty, set after the record is written
+     */
+    private final AtomicLongArray published;
+
+    /**
+     * the sequence of the next record
+     */
+    private final AtomicLong cursor = new AtomicLong();
+
+    /**
+     * the sequence of the next record to drain, guarded by this
+     */
+    private long drained;
+
+    /**
+     * the number of records written into file, guarded by this
+     */
+    private long written;
+
+    /**
+     * the number of records dropped, guarded by this
+     */
+    private long dropped;
+
+    private volatile boolean closed;
+
+    private final ScheduledFuture<?> drainFuture;
+
+    public TraceRecorder(Path file) {
+        this(file, DEFAULT_CAPACITY, DEFAULT_DRAIN_INTERVAL_MS);
+    }
+
+    /**
+     * @param file            the file of trace, replaced if it exists
+     * @param capacity        capacity of the ring buffer, a power of 2
+     * @param drainIntervalMs interval of draining, ms
+     */
+    public TraceRecorder(Path file, int capacity, long drainIntervalMs) {
+        Assert.notNull(file, "file must not be null!");
+        Assert.isTrue(capacity > 0 && Integer.bitCount(capacity) == 1, "capacity must be a power of 2!");
+        Assert.isTrue(drainIntervalMs > 0, "drainIntervalMs must be greater than 0!");
+        this.file = file;
+        this.startMillis = System.currentTimeMillis();
+        this.mask = capacity - 1;
+        this.keyHashes = new long[capacity];
+        this.ops = new byte[capacity];
+        this.offsetMillis = new int[capacity];
+        this.published = new AtomicLongArray(capacity);
+        try {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(startMillis);
+        } catch (IOException e) {
+            throw new JarvisException("create cache trace failed, file: " + file, e);
+        }
+        this.drainFuture = DRAINER.scheduleWithFixedDelay(this::drainQuietly, drainIntervalMs, drainIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * record an access, ignored after closed
+     *
+     * @param op  operation
+     * @param key key, not null
+     */
+    public void record(TraceOp op, Object key) {
+        if (closed) {
+            return;
+        }
+        long seq = cursor.getAndIncrement();
+        int index = (int) (seq & mask);
+        keyHashes[index] = hash(key);
+        ops[index] = (byte) op.ordinal();
+        offsetMillis[index] = (int) (System.currentTimeMillis() - startMillis);
+        published.lazySet(index, seq + 1);
+    }
+
+    /**
+     * write the published records into file
+     * a record still being written stops draining, it is drained next time
+     */
+    public synchronized void drain() {
+        if (drained == cursor.get()) {
+            return;
+        }
+        long end = cursor.get();
+        long seq = Math.max(drained, end - keyHashes.length);
+        dropped += seq - drained;
+        try {
+            for (; seq < end; seq++) {
+                int index = (int) (seq & mask);
+                long publishedSeq = published.get(index);
+                if (publishedSeq < seq + 1) {
+                    break;
+                }
+                if (publishedSeq > seq + 1) {
+                    // overwritten by a later record
+                    dropped++;
+                    continue;
+                }
+                out.writeByte(ops[index]);
+                out.writeLong(keyHashes[index]);
+                out.writeInt(offsetMillis[index]);
+                written++;
+            }
+            drained = seq;
+            out.flush();
+        } catch (IOException e) {
+            throw new JarvisException("write cache trace failed, file: " + file, e);
+        }
+    }
+
+    private void drainQuietly() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            logger.warn("failed to drain cache trace, file: {}", file, e);
+        }
+    }
+
+    /**
+     * the number of records written into file
+     *
+     * @return count
+     */
+    public synchronized long writtenCount() {
+        return written;
+    }
+
+    /**
+     * the number of records dropped because the ring buffer was full
+     *
+     * @return count
+     */
+    public synchronized long droppedCount() {
+        return dropped;
+    }
+
+    /**
+     * stop recording, drain the remaining records and close the file
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        drainFuture.cancel(false);
+        try {
+            drain();
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                logger.warn("failed to close cache trace, file: {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * spread the hash code to 64 bits
+     *
+     * @param key key
+     * @return key hash
+     */
+    static long hash(Object key) {
+        long h = key.hashCode() * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+}
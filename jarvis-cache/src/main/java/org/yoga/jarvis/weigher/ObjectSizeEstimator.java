@@ -0,0 +1,219 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.weigher;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Description: approximate deep size of objects
+ * <p>
+ * The layout of a 64-bit jvm with compressed oops is assumed: 12 bytes of object header, 16 bytes of array header,
+ * 4 bytes per reference and 8 bytes alignment. The object graph is walked once, shared objects are counted once,
+ * classes and enums are not counted. The collections and maps of jdk are estimated by their elements and a fixed
+ * overhead per element instead of their internal fields, fields which can not be accessed are counted shallowly.
+ * @Author: yoga
+ * @Date: 2026/10/18 18:40
+ */
+public final class ObjectSizeEstimator {
+
+    private static final int OBJECT_HEADER = 12;
+
+    private static final int ARRAY_HEADER = 16;
+
+    private static final int REFERENCE = 4;
+
+    private static final int ALIGNMENT = 8;
+
+    /**
+     * the shallow size of a collection or map of jdk
+     */
+    private static final int COLLECTION_OVERHEAD = 48;
+
+    /**
+     * the overhead per element of a linked or hashed collection, such as the node of HashMap
+     */
+    private static final int NODE_OVERHEAD = 32;
+
+    /**
+     * field layouts, key is class
+     */
+    private static final Map<Class<?>, Layout> LAYOUTS = new ConcurrentHashMap<>();
+
+    private ObjectSizeEstimator() {
+    }
+
+    /**
+     * the approximate bytes retained by object
+     *
+     * @param object object
+     * @return bytes, 0 if object is null
+     */
+    public static long estimate(Object object) {
+        if (object == null) {
+            return 0;
+        }
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Object> pending = new ArrayDeque<>();
+        pending.push(object);
+        long size = 0;
+        while (!pending.isEmpty()) {
+            Object current = pending.pop();
+            if (visited.add(current)) {
+                size += visit(current, pending);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * the shallow size of object, the objects referenced by it are pushed to {@code pending}
+     */
+    private static long visit(Object object, Deque<Object> pending) {
+        Class<?> clazz = object.getClass();
+        if (object instanceof Class || object instanceof Enum) {
+            // shared by all
+            return 0;
+        }
+        if (object instanceof String) {
+            return align(OBJECT_HEADER + REFERENCE + 8) + align(ARRAY_HEADER + 2L * ((String) object).length());
+        }
+        if (clazz.isArray()) {
+            Class<?> componentType = clazz.getComponentType();
+            int length = Array.getLength(object);
+            if (!componentType.isPrimitive()) {
+                for (Object element : (Object[]) object) {
+                    pushIfPresent(pending, element);
+                }
+            }
+            return align(ARRAY_HEADER + (long) length * sizeOf(componentType));
+        }
+        if (clazz.getName().startsWith("java.")) {
+            if (object instanceof Collection) {
+                Collection<?> collection = (Collection<?>) object;
+                collection.forEach(element -> pushIfPresent(pending, element));
+                int perElement = object instanceof List ? REFERENCE : NODE_OVERHEAD;
+                return align(COLLECTION_OVERHEAD + (long) collection.size() * perElement);
+            }
+            if (object instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) object;
+                map.forEach((key, value) -> {
+                    pushIfPresent(pending, key);
+                    pushIfPresent(pending, value);
+                });
+                return align(COLLECTION_OVERHEAD + (long) map.size() * NODE_OVERHEAD);
+            }
+        }
+        Layout layout = LAYOUTS.computeIfAbsent(clazz, ObjectSizeEstimator::layoutOf);
+        for (Field field : layout.references) {
+            try {
+                pushIfPresent(pending, field.get(object));
+            } catch (IllegalAccessException e) {
+                // counted shallowly
+            }
+        }
+        return layout.shallowSize;
+    }
+
+    private static void pushIfPresent(Deque<Object> pending, Object object) {
+        if (object != null) {
+            pending.push(object);
+        }
+    }
+
+    /**
+     * compute the layout of class, including the fields of super classes
+     */
+    private static Layout layoutOf(Class<?> clazz) {
+        long size = OBJECT_HEADER;
+        List<Field> references = new ArrayList<>();
+        for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                size += sizeOf(field.getType());
+                if (!field.getType().isPrimitive() && accessible(field)) {
+                    references.add(field);
+                }
+            }
+        }
+        return new Layout(align(size), references.toArray(new Field[0]));
+    }
+
+    private static boolean accessible(Field field) {
+        try {
+            field.setAccessible(true);
+            return true;
+        } catch (RuntimeException e) {
+            // the modules of jdk 9+ deny reflective access
+            return false;
+        }
+    }
+
+    private static int sizeOf(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return REFERENCE;
+    }
+
+    private static long align(long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * Field Layout
+     */
+    private static final class Layout {
+
+        /**
+         * shallow size of instance
+         */
+        private final long shallowSize;
+
+        /**
+         * the accessible reference fields
+         */
+        private final Field[] references;
+
+        private Layout(long shallowSize, Field[] references) {
+            this.shallowSize = shallowSize;
+            this.references = references;
+        }
+    }
+}
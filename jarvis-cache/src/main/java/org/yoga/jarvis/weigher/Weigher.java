@@ -0,0 +1,60 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.weigher;
+
+/**
+ * @Description: the weight of cache entries, a cache with {@code maximumWeight} is bounded by the total weight
+ * instead of the number of entries
+ * @Author: yoga
+ * @Date: 2026/10/18 18:40
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    /**
+     * the weight of entry, it is computed once when the entry is written
+     *
+     * @param key   key
+     * @param value value
+     * @return weight, must not be negative
+     */
+    int weigh(K key, V value);
+
+    /**
+     * every entry weighs 1, the same as bounding by the number of entries
+     *
+     * @param <K> generics of key
+     * @param <V> generics of value
+     * @return weigher
+     */
+    static <K, V> Weigher<K, V> singleton() {
+        return (key, value) -> 1;
+    }
+
+    /**
+     * weigh by the approximate bytes of key and value estimated by {@link ObjectSizeEstimator}
+     * the estimate walks the object graph reflectively on every put, prefer a weigher that knows the value type
+     *
+     * @param <K> generics of key
+     * @param <V> generics of value
+     * @return weigher
+     */
+    static <K, V> Weigher<K, V> estimatedBytes() {
+        return (key, value) -> (int) Math.min(Integer.MAX_VALUE,
+                ObjectSizeEstimator.estimate(key) + ObjectSizeEstimator.estimate(value));
+    }
+}
@@ -91,6 +91,40 @@ public class JsonUtils {
         return null;
     }
 
+    /**
+     * json bytes parse object
+     *
+     * @param bytes json bytes
+     * @param clazz class of object
+     * @param <T>   generics
+     * @return object
+     */
+    public static <T> T parseObj(byte[] bytes, Class<T> clazz) {
+        try {
+            return objectMapper.readValue(bytes, clazz);
+        } catch (IOException e) {
+            logger.error("json bytes parse object fail", e);
+        }
+        return null;
+    }
+
+    /**
+     * json bytes parse object
+     *
+     * @param bytes     json bytes
+     * @param reference type reference
+     * @param <T>       generics
+     * @return object
+     */
+    public static <T> T parseObj(byte[] bytes, TypeReference<T> reference) {
+        try {
+            return objectMapper.readValue(bytes, reference);
+        } catch (IOException e) {
+            logger.error("json bytes parse object fail", e);
+        }
+        return null;
+    }
+
     /**
      * json string (from file) parse object
      *
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.limiter;
+
+import org.yoga.jarvis.factory.ThreadFactoryBuilder;
+import org.yoga.jarvis.util.Assert;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * @Description: Abstract Rate Limiter with blocking and async acquire
+ * <p>
+ * The acquires which can not be served at once wait in a FIFO queue, only the head is served, so a large request is
+ * never starved by the smaller ones behind it. While the queue is not empty, {@link #tryAcquire(int)} fails instead of
+ * barging in. The queues of all limiters are served by one shared thread, which wakes up when the head may be served
+ * according to {@link #waitNanos(int)}. The futures returned by {@link #acquireAsync(int, long, TimeUnit)} are
+ * completed on another executor, so the callbacks of callers never run on, or hold up, the shared thread.
+ * @Author: yoga
+ * @Date: 2026/10/19 02:40
+ */
+public abstract class AbstractRateLimiter implements RateLimiter {
+
+    /**
+     * the waking up of waiters at most this late, ns, bounds the error of {@link #waitNanos(int)}
+     */
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * the thread serving waiters, shared by all limiters
+     */
+    private static final ScheduledThreadPoolExecutor WAITER_SCHEDULER = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactoryBuilder().setNameFormat("jarvis-limiter-waiter-%d").setDaemon(true).build());
+
+    static {
+        // the timers of the waiters acquired in time are removed at once
+        WAITER_SCHEDULER.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * waiters, FIFO
+     */
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * the next serving of waiters, only accessed by {@link #WAITER_SCHEDULER}
+     */
+    private ScheduledFuture<?> nextServe;
+
+    /**
+     * acquire permits if they are available now, never waits
+     *
+     * @param permits the number of permits
+     * @return true if acquired
+     */
+    protected abstract boolean doTryAcquire(int permits);
+
+    /**
+     * the estimated time until the permits may be available, the permits are tried again after it
+     *
+     * @param permits the number of permits
+     * @return the time to wait, ns, 0 if they may be available now
+     */
+    protected abstract long waitNanos(int permits);
+
+    /**
+     * give back permits acquired but not used, no-op by default
+     *
+     * @param permits the number of permits
+     */
+    protected void doRelease(int permits) {
+    }
+
+    /**
+     * the maximum number of waiters, an acquire finding that many waiting is rejected at once, unbounded by default
+     *
+     * @return the maximum number of waiters
+     */
+    protected int maxWaiting() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * acquire permits if they are available now and nobody is waiting, never waits
+     *
+     * @param permits the number of permits
+     * @return true if acquired
+     */
+    public boolean tryAcquire(int permits) {
+        Assert.isTrue(permits > 0, "permits must be greater than 0!");
+        return waiters.isEmpty() && doTryAcquire(permits);
+    }
+
+    @Override
+    public void release() {
+        release(1);
+    }
+
+    /**
+     * give back permits acquired but not used, the waiters may be served by them
+     *
+     * @param permits the number of permits
+     */
+    public void release(int permits) {
+        Assert.isTrue(permits > 0, "permits must be greater than 0!");
+        doRelease(permits);
+        if (!waiters.isEmpty()) {
+            WAITER_SCHEDULER.execute(this::serve);
+        }
+    }
+
+    /**
+     * acquire permits, waiting in the FIFO queue for at most the timeout
+     * the waiting is not interruptible, the interrupt status is kept
+     *
+     * @param permits the number of permits
+     * @param timeout the maximum time to wait
+     * @param unit    the time unit of timeout
+     * @return true if acquired
+     */
+    public boolean acquire(int permits, long timeout, TimeUnit unit) {
+        // the caller blocks, nothing runs on the completing thread
+        return enqueue(permits, timeout, unit).join();
+    }
+
+    /**
+     * acquire permits without blocking, the future completes when the permits are acquired
+     *
+     * @param permits the number of permits
+     * @return future of true, never completes with false
+     */
+    public CompletableFuture<Boolean> acquireAsync(int permits) {
+        return acquireAsync(permits, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * acquire permits without blocking, the future completes when the permits are acquired or the timeout elapses
+     * on the default async executor of {@link CompletableFuture}, completing the future by the caller gives up the
+     * waiting
+     *
+     * @param permits the number of permits
+     * @param timeout the maximum time to wait
+     * @param unit    the time unit of timeout
+     * @return future of true if acquired, false if timed out
+     */
+    public CompletableFuture<Boolean> acquireAsync(int permits, long timeout, TimeUnit unit) {
+        CompletableFuture<Boolean> acquiring = enqueue(permits, timeout, unit);
+        return acquiring.isDone() ? acquiring : detach(acquiring, acquiring.thenApplyAsync(Function.identity()));
+    }
+
+    /**
+     * acquire permits without blocking, the future completes on the executor when the permits are acquired or the
+     * timeout elapses, completing the future by the caller gives up the waiting
+     *
+     * @param permits  the number of permits
+     * @param timeout  the maximum time to wait
+     * @param unit     the time unit of timeout
+     * @param executor the executor completing the future
+     * @return future of true if acquired, false if timed out
+     */
+    public CompletableFuture<Boolean> acquireAsync(int permits, long timeout, TimeUnit unit, Executor executor) {
+        Assert.notNull(executor, "executor must not be null!");
+        CompletableFuture<Boolean> acquiring = enqueue(permits, timeout, unit);
+        return acquiring.isDone() ? acquiring
+                : detach(acquiring, acquiring.thenApplyAsync(Function.identity(), executor));
+    }
+
+    /**
+     * enqueue a waiter unless the permits are acquired at once, the future is completed by {@link #WAITER_SCHEDULER}
+     *
+     * @param permits the number of permits
+     * @param timeout the maximum time to wait
+     * @param unit    the time unit of timeout
+     * @return future of true if acquired, false if timed out or too many are waiting
+     */
+    private CompletableFuture<Boolean> enqueue(int permits, long timeout, TimeUnit unit) {
+        Assert.isTrue(timeout >= 0, "timeout must not be less than 0!");
+        if (tryAcquire(permits)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        int maxWaiting = maxWaiting();
+        // the bound is checked before adding, so it may be passed by the racing ones
+        if (timeout == 0 || (maxWaiting < Integer.MAX_VALUE && waiters.size() >= maxWaiting)) {
+            future.complete(false);
+            return future;
+        }
+        waiters.add(new Waiter(permits, future));
+        long timeoutNanos = unit.toNanos(timeout);
+        if (timeoutNanos < Long.MAX_VALUE) {
+            ScheduledFuture<?> timer = WAITER_SCHEDULER.schedule(() -> {
+                future.complete(false);
+                // the head timed out, serve the next one
+                serve();
+            }, timeoutNanos, TimeUnit.NANOSECONDS);
+            future.whenComplete((acquired, e) -> timer.cancel(false));
+        }
+        WAITER_SCHEDULER.execute(this::serve);
+        return future;
+    }
+
+    /**
+     * the caller giving up the returned future gives up the waiter too
+     *
+     * @param acquiring the future of waiter
+     * @param returned  the future returned to the caller
+     * @return the returned future
+     */
+    private static CompletableFuture<Boolean> detach(CompletableFuture<Boolean> acquiring,
+                                                     CompletableFuture<Boolean> returned) {
+        returned.whenComplete((acquired, e) -> acquiring.complete(false));
+        return returned;
+    }
+
+    /**
+     * the number of waiters
+     *
+     * @return the number of waiters
+     */
+    public int waitingCount() {
+        return waiters.size();
+    }
+
+    /**
+     * serve the waiters in order until the head has to wait, run by {@link #WAITER_SCHEDULER} only
+     */
+    private void serve() {
+        Waiter head;
+        while ((head = waiters.peek()) != null) {
+            if (head.future.isDone()) {
+                waiters.poll();
+                continue;
+            }
+            boolean acquired;
+            try {
+                acquired = doTryAcquire(head.permits);
+            } catch (RuntimeException e) {
+                // e.g. more permits than the capacity, which can never be acquired
+                waiters.poll();
+                head.future.completeExceptionally(e);
+                continue;
+            }
+            if (!acquired) {
+                break;
+            }
+            waiters.poll();
+            // the permits are wasted if the caller has given up meanwhile
+            head.future.complete(true);
+        }
+        if (nextServe != null) {
+            nextServe.cancel(false);
+            nextServe = null;
+        }
+        if (head != null) {
+            long delay = Math.max(1, Math.min(waitNanos(head.permits), MAX_WAIT_NANOS));
+            nextServe = WAITER_SCHEDULER.schedule(this::serve, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * a waiting acquire
+     */
+    private static final class Waiter {
+
+        /**
+         * the number of permits
+         */
+        private final int permits;
+
+        /**
+         * the future of acquire
+         */
+        private final CompletableFuture<Boolean> future;
+
+        private Waiter(int permits, CompletableFuture<Boolean> future) {
+            this.permits = permits;
+            this.future = future;
+        }
+    }
+}
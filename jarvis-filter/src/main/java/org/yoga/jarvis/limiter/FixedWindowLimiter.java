@@ -20,87 +20,122 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yoga.jarvis.util.Assert;
 
-import java.util.Queue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingDeque;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @Description: Fixed Window Limiter
+ * <p>
+ * At most {@code threshold} requests per window, the windows are aligned to the creation of limiter. The index of
+ * current window (high 32 bits) and the number of admitted requests in it (low 32 bits) are packed into one long,
+ * which is updated by CAS.
  * @Author: yoga
  * @Date: 2022/6/2 13:24
  */
-public class FixedWindowLimiter {
+public class FixedWindowLimiter extends AbstractRateLimiter {
 
     private static final Logger logger = LoggerFactory.getLogger(FixedWindowLimiter.class);
 
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
     /**
      * threshold
      */
     private final int threshold;
 
     /**
-     * record queue
+     * window size, ns
      */
-    private final Queue<Long> queue;
+    private final long windowNanos;
 
     /**
-     * the threadPool for doing cleanup task
+     * the start time of the limiter, ns
      */
-    protected final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private final long startNanos;
 
     /**
-     * readWriteLock
+     * index of current window << 32 | count
      */
-    private final ReadWriteLock lock;
+    private final AtomicLong window;
 
-    /**
-     * readLock
-     */
-    private final Lock readLock;
+    public FixedWindowLimiter(int threshold) {
+        this(threshold, TimeUnit.SECONDS.toMillis(1));
+    }
 
     /**
-     * writeLock
+     * @param threshold  threshold
+     * @param windowSize window size, ms
      */
-    private final Lock writeLock;
-
-    public FixedWindowLimiter(int threshold) {
+    public FixedWindowLimiter(int threshold, long windowSize) {
+        Assert.isTrue(threshold > 0, "threshold must be greater than 0!");
+        Assert.isTrue(windowSize > 0, "windowSize must be greater than 0!");
         this.threshold = threshold;
-        this.queue = new LinkedBlockingDeque<>(threshold);
-        this.lock = new ReentrantReadWriteLock();
-        this.readLock = lock.readLock();
-        this.writeLock = lock.writeLock();
-        cleanupExpiryRecord();
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowSize);
+        this.startNanos = System.nanoTime();
+        this.window = new AtomicLong(0);
     }
 
+    /**
+     * acquire a permit, waiting for at most the timeout
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the time unit of timeout
+     * @return true if acquired
+     */
     public boolean tryAcquire(long timeout, TimeUnit unit) {
-        writeLock.lock();
-        try {
-            Assert.isTrue(timeout > 0, "timeout val is illegal");
-            if (queue.size() >= threshold) {
+        return acquire(1, timeout, unit);
+    }
+
+    @Override
+    protected boolean doTryAcquire(int permits) {
+        Assert.isTrue(permits <= threshold, "permits must not be greater than threshold!");
+        for (; ; ) {
+            long index = (System.nanoTime() - startNanos) / windowNanos;
+            long current = window.get();
+            int lag = (int) (current >>> 32) - (int) index;
+            // the time is read again on retry, the window never goes back
+            if (lag > 0) {
+                continue;
+            }
+            long count = lag == 0 ? current & COUNT_MASK : 0;
+            if (count + permits > threshold) {
                 return false;
             }
-            return queue.offer(System.currentTimeMillis() + unit.toMillis(timeout));
-        } finally {
-            writeLock.unlock();
+            if (window.compareAndSet(current, (index << 32) | (count + permits))) {
+                return true;
+            }
         }
     }
 
-    private void cleanupExpiryRecord() {
-        scheduler.scheduleAtFixedRate(() -> {
-            writeLock.lock();
-            try {
-                long currentTime = System.currentTimeMillis();
-                while (!queue.isEmpty() && (queue.peek() <= currentTime)) {
-                    queue.poll();
-                }
-            } finally {
-                writeLock.unlock();
+    /**
+     * uncount the permits if the window has not passed
+     */
+    @Override
+    protected void doRelease(int permits) {
+        for (; ; ) {
+            long index = (System.nanoTime() - startNanos) / windowNanos;
+            long current = window.get();
+            long count = current & COUNT_MASK;
+            if ((int) (current >>> 32) != (int) index || count == 0) {
+                return;
+            }
+            if (window.compareAndSet(current, (index << 32) | (count - Math.min(count, permits)))) {
+                return;
             }
-        }, 0, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * the time until the next window
+     */
+    @Override
+    protected long waitNanos(int permits) {
+        long elapsed = System.nanoTime() - startNanos;
+        long current = window.get();
+        if ((int) (current >>> 32) != (int) (elapsed / windowNanos)
+                || (current & COUNT_MASK) + permits <= threshold) {
+            return 0;
+        }
+        return windowNanos - elapsed % windowNanos;
     }
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.limiter;
+
+import org.yoga.jarvis.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Description: Generic Cell Rate Algorithm, the base of {@link TokenBucketLimiter} and {@link LeakyBucketLimiter}
+ * <p>
+ * The state is one timestamp, the time when all the permits taken so far are paid for at one interval per permit,
+ * updated by CAS and read from {@link System#nanoTime()} with nanosecond precision, without a background thread.
+ * A request is admitted as long as it does not push that time more than {@code burst} intervals ahead of now, a
+ * request of more permits than the burst is admitted alone when nothing is owed.
+ * @Author: yoga
+ * @Date: 2026/10/19 11:10
+ */
+public abstract class GcraRateLimiter extends AbstractRateLimiter {
+
+    /**
+     * the maximum permits of a request
+     */
+    private final int capacity;
+
+    /**
+     * the time it takes to pay for one permit, ns
+     */
+    private final long intervalNanos;
+
+    /**
+     * the time the permits may be taken ahead, ns
+     */
+    private final long burstNanos;
+
+    /**
+     * the start time of the limiter, ns
+     */
+    private final long startNanos;
+
+    /**
+     * the time when the permits taken are paid for relative to {@link #startNanos}, ns
+     * nothing is owed when it is not after now
+     */
+    private final AtomicLong paidAtNanos;
+
+    /**
+     * @param capacity the maximum permits of a request
+     * @param burst    the number of permits which may be taken at once, at most capacity
+     * @param limit    the number of permits per window
+     * @param window   window
+     * @param unit     the time unit of window
+     */
+    protected GcraRateLimiter(int capacity, int burst, int limit, long window, TimeUnit unit) {
+        Assert.isTrue(capacity > 0, "capacity must be greater than 0!");
+        Assert.isTrue(burst > 0 && burst <= capacity, "burst must be in (0, capacity]!");
+        Assert.isTrue(limit > 0, "limit must be greater than 0!");
+        Assert.isTrue(window > 0, "window must be greater than 0!");
+        Assert.notNull(unit, "unit must not be null!");
+        this.capacity = capacity;
+        this.intervalNanos = Math.max(1, unit.toNanos(window) / limit);
+        Assert.isTrue(intervalNanos <= Long.MAX_VALUE / 4 / capacity, "the window is too long for the capacity!");
+        this.burstNanos = intervalNanos * burst;
+        this.startNanos = System.nanoTime();
+        this.paidAtNanos = new AtomicLong(0);
+    }
+
+    @Override
+    protected boolean doTryAcquire(int permits) {
+        Assert.isTrue(permits <= capacity, "permits must not be greater than capacity!");
+        long cost = intervalNanos * permits;
+        long tolerance = Math.max(burstNanos, cost);
+        for (; ; ) {
+            long now = System.nanoTime() - startNanos;
+            long paidAt = paidAtNanos.get();
+            // the permits not taken while idle are not saved beyond the burst
+            long next = Math.max(paidAt, now) + cost;
+            if (next - now > tolerance) {
+                return false;
+            }
+            if (paidAtNanos.compareAndSet(paidAt, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * move the paid time back, not before now, nothing owed means nothing to give back
+     */
+    @Override
+    protected void doRelease(int permits) {
+        long cost = intervalNanos * permits;
+        for (; ; ) {
+            long now = System.nanoTime() - startNanos;
+            long paidAt = paidAtNanos.get();
+            if (paidAt <= now || paidAtNanos.compareAndSet(paidAt, Math.max(now, paidAt - cost))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    protected long waitNanos(int permits) {
+        long cost = intervalNanos * permits;
+        return Math.max(0, owedNanos() + cost - Math.max(burstNanos, cost));
+    }
+
+    /**
+     * the time until the permits taken are paid for
+     *
+     * @return ns, 0 if nothing is owed
+     */
+    protected long owedNanos() {
+        return Math.max(0, paidAtNanos.get() - (System.nanoTime() - startNanos));
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+}
@@ -0,0 +1,466 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.limiter;
+
+import org.yoga.jarvis.constant.RateLimiterType;
+import org.yoga.jarvis.exception.JarvisException;
+import org.yoga.jarvis.util.Assert;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Function;
+
+/**
+ * @Description: Rate limiters by key, e.g. per client ip, api key or route
+ * <p>
+ * The limiters are created on first use and kept in one concurrent map, none of them owns a thread. A limiter of
+ * {@link RateLimiterType} keeps only one long per key updated by CAS, its algorithm is shared by all the keys.
+ * The map is swept incrementally, a few sampled entries per new key and per sweep step, so no caller walks the
+ * whole map: the keys idle longer than {@code idleTimeout} are removed, and the number of keys is kept about
+ * {@code maximumKeys}, evicting the least recently used of the samples. An evicted key starts again from scratch.
+ * @Author: yoga
+ * @Date: 2026/10/19 00:50
+ */
+public class KeyedRateLimiter<K> {
+
+    /**
+     * the number of entries sampled per sweep step
+     */
+    private static final int SAMPLE_SIZE = 8;
+
+    /**
+     * limiters
+     */
+    private final ConcurrentHashMap<K, Entry<K>> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * the factory of limiter by key
+     */
+    private final Function<? super K, ? extends Entry<K>> factory;
+
+    /**
+     * the idle time after which a key is removed, ns
+     */
+    private final long idleNanos;
+
+    /**
+     * maximum of keys
+     */
+    private final int maximumKeys;
+
+    /**
+     * the time between sweep steps, ns, so that the sampling covers maximumKeys once per idleTimeout
+     */
+    private final long sweepStepNanos;
+
+    /**
+     * the time of next sweep step, ns
+     */
+    private final AtomicLong nextSweepNanos;
+
+    /**
+     * whether a thread is sweeping
+     */
+    private final AtomicBoolean sweeping = new AtomicBoolean(false);
+
+    /**
+     * the iterator used for sampling, only accessed by the thread holding {@link #sweeping}
+     */
+    private Iterator<Entry<K>> sampler;
+
+    /**
+     * limiters of the same algorithm and limit for every key, one long per key
+     *
+     * @param type        rate limiter type
+     * @param limit       the number of requests per window
+     * @param window      window
+     * @param unit        the time unit of window and idleTimeout
+     * @param idleTimeout the idle time after which a key is removed, at least one window
+     * @param maximumKeys maximum of keys
+     */
+    public KeyedRateLimiter(RateLimiterType type, int limit, long window, TimeUnit unit, long idleTimeout,
+                            int maximumKeys) {
+        this(Algorithm.of(type, limit, window, unit), unit.toNanos(Math.max(window, idleTimeout)), maximumKeys);
+    }
+
+    /**
+     * @param factory     the factory of limiter by key, the idle limiters must not hold any resource
+     * @param idleTimeout the idle time after which a key is removed
+     * @param unit        the time unit of idleTimeout
+     * @param maximumKeys maximum of keys
+     */
+    public KeyedRateLimiter(Function<? super K, ? extends RateLimiter> factory, long idleTimeout, TimeUnit unit,
+                            int maximumKeys) {
+        this(factoryOf(factory), unit.toNanos(idleTimeout), maximumKeys);
+    }
+
+    private KeyedRateLimiter(Algorithm algorithm, long idleNanos, int maximumKeys) {
+        this(key -> new StateEntry<>(key, algorithm), idleNanos, maximumKeys);
+    }
+
+    private KeyedRateLimiter(Function<? super K, ? extends Entry<K>> factory, long idleNanos, int maximumKeys) {
+        Assert.isTrue(idleNanos > 0, "idleTimeout must be greater than 0!");
+        Assert.isTrue(maximumKeys > 0, "maximumKeys must be greater than 0!");
+        this.factory = factory;
+        this.idleNanos = idleNanos;
+        this.maximumKeys = maximumKeys;
+        this.sweepStepNanos = Math.max(1, idleNanos / ((maximumKeys + SAMPLE_SIZE - 1) / SAMPLE_SIZE));
+        this.nextSweepNanos = new AtomicLong(System.nanoTime() + sweepStepNanos);
+    }
+
+    private static <K> Function<K, Entry<K>> factoryOf(Function<? super K, ? extends RateLimiter> factory) {
+        Assert.notNull(factory, "factory must not be null!");
+        return key -> new LimiterEntry<>(key, factory.apply(key));
+    }
+
+    /**
+     * acquire a permit of the key if it is available now, never waits
+     *
+     * @param key key
+     * @return true if acquired
+     */
+    public boolean tryAcquire(K key) {
+        return limiter(key).tryAcquire();
+    }
+
+    /**
+     * the limiter of key, created if absent
+     *
+     * @param key key
+     * @return rate limiter
+     */
+    public RateLimiter limiter(K key) {
+        Assert.notNull(key, "key must not be null!");
+        long now = System.nanoTime();
+        Entry<K> entry = limiters.get(key);
+        if (entry == null) {
+            entry = limiters.computeIfAbsent(key, factory);
+            // each new key pays for a sweep step, so the map does not outgrow the sweeping
+            sweep(now);
+        } else if (now - nextSweepNanos.get() >= 0) {
+            sweep(now);
+        }
+        entry.accessNanos = now;
+        return entry;
+    }
+
+    public void remove(K key) {
+        limiters.remove(key);
+    }
+
+    public void clear() {
+        limiters.clear();
+    }
+
+    public int size() {
+        return limiters.size();
+    }
+
+    /**
+     * sample a few entries, remove the idle ones, and evict the least recently used one if there are too many keys,
+     * skipped if another thread is sweeping
+     *
+     * @param now current time, ns
+     */
+    private void sweep(long now) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            nextSweepNanos.set(now + sweepStepNanos);
+            Entry<K> victim = null;
+            for (int i = 0; i < SAMPLE_SIZE; i++) {
+                if (sampler == null || !sampler.hasNext()) {
+                    sampler = limiters.values().iterator();
+                    if (!sampler.hasNext()) {
+                        break;
+                    }
+                }
+                Entry<K> candidate = sampler.next();
+                if (now - candidate.accessNanos > idleNanos) {
+                    limiters.remove(candidate.key, candidate);
+                } else if (victim == null || candidate.accessNanos - victim.accessNanos < 0) {
+                    victim = candidate;
+                }
+            }
+            if (victim != null && limiters.size() > maximumKeys) {
+                limiters.remove(victim.key, victim);
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * the limiter of a key and its last access time
+     *
+     * @param <K> generics of key
+     */
+    private abstract static class Entry<K> implements RateLimiter {
+
+        /**
+         * key
+         */
+        final K key;
+
+        /**
+         * last access time, ns
+         * only used for sweeping, racy writes are harmless
+         */
+        long accessNanos;
+
+        Entry(K key) {
+            this.key = key;
+            this.accessNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * a key of the limiter created by factory
+     *
+     * @param <K> generics of key
+     */
+    private static final class LimiterEntry<K> extends Entry<K> {
+
+        /**
+         * rate limiter
+         */
+        private final RateLimiter limiter;
+
+        private LimiterEntry(K key, RateLimiter limiter) {
+            super(key);
+            Assert.notNull(limiter, "limiter must not be null!");
+            this.limiter = limiter;
+        }
+
+        @Override
+        public boolean tryAcquire() {
+            return limiter.tryAcquire();
+        }
+
+        @Override
+        public void release() {
+            limiter.release();
+        }
+    }
+
+    /**
+     * a key of the limiter of {@link RateLimiterType}, only its state is kept
+     *
+     * @param <K> generics of key
+     */
+    private static final class StateEntry<K> extends Entry<K> {
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicLongFieldUpdater<StateEntry> STATE =
+                AtomicLongFieldUpdater.newUpdater(StateEntry.class, "state");
+
+        /**
+         * the algorithm shared by the keys
+         */
+        private final Algorithm algorithm;
+
+        /**
+         * the state of the key, see {@link Algorithm}
+         */
+        private volatile long state;
+
+        private StateEntry(K key, Algorithm algorithm) {
+            super(key);
+            this.algorithm = algorithm;
+        }
+
+        @Override
+        public boolean tryAcquire() {
+            for (; ; ) {
+                long current = state;
+                long next = algorithm.acquire(current, algorithm.now());
+                if (next == current) {
+                    return false;
+                }
+                if (STATE.compareAndSet(this, current, next)) {
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public void release() {
+            for (; ; ) {
+                long current = state;
+                long next = algorithm.release(current, algorithm.now());
+                if (next == current || STATE.compareAndSet(this, current, next)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * the algorithm of a limiter whose state is one long, 0 is the initial state
+     */
+    private abstract static class Algorithm {
+
+        /**
+         * the start time of the algorithm, ns
+         */
+        private final long startNanos = System.nanoTime();
+
+        static Algorithm of(RateLimiterType type, int limit, long window, TimeUnit unit) {
+            Assert.notNull(type, "rate limiter type must not be null!");
+            Assert.isTrue(limit > 0, "limit must be greater than 0!");
+            Assert.isTrue(window > 0, "window must be greater than 0!");
+            Assert.notNull(unit, "unit must not be null!");
+            long windowNanos = unit.toNanos(window);
+            switch (type) {
+                case Token_Bucket:
+                    return new Gcra(windowNanos, limit, limit);
+                case Leaky_Bucket:
+                    return new Gcra(windowNanos, limit, 1);
+                case Fixed_Window:
+                    return new FixedWindow(windowNanos, limit);
+                case Sliding_Window:
+                    return new SlidingWindow(windowNanos, limit);
+                default:
+                    throw new JarvisException("unknown rate limiter type: " + type);
+            }
+        }
+
+        /**
+         * @return the time since start, ns
+         */
+        long now() {
+            return System.nanoTime() - startNanos;
+        }
+
+        /**
+         * @param state current state
+         * @param now   the time since start, ns
+         * @return the state after acquiring a permit, the same state if rejected
+         */
+        abstract long acquire(long state, long now);
+
+        /**
+         * @param state current state
+         * @param now   the time since start, ns
+         * @return the state after giving back a permit, the same state if there is nothing to give back
+         */
+        abstract long release(long state, long now);
+    }
+
+    /**
+     * token bucket and leaky bucket, the state is the time when the permits taken are paid for, as
+     * {@link GcraRateLimiter}
+     */
+    private static final class Gcra extends Algorithm {
+
+        private final long intervalNanos;
+
+        private final long burstNanos;
+
+        private Gcra(long windowNanos, int limit, int burst) {
+            this.intervalNanos = Math.max(1, windowNanos / limit);
+            Assert.isTrue(intervalNanos <= Long.MAX_VALUE / 4 / limit, "the window is too long for the limit!");
+            this.burstNanos = intervalNanos * burst;
+        }
+
+        @Override
+        long acquire(long state, long now) {
+            long next = Math.max(state, now) + intervalNanos;
+            return next - now > burstNanos ? state : next;
+        }
+
+        @Override
+        long release(long state, long now) {
+            return state <= now ? state : Math.max(now, state - intervalNanos);
+        }
+    }
+
+    /**
+     * fixed window, the state packs the index of window (high 32 bits) and the count in it (low 32 bits)
+     */
+    private static final class FixedWindow extends Algorithm {
+
+        private final long windowNanos;
+
+        private final int limit;
+
+        private FixedWindow(long windowNanos, int limit) {
+            this.windowNanos = windowNanos;
+            this.limit = limit;
+        }
+
+        @Override
+        long acquire(long state, long now) {
+            long index = now / windowNanos;
+            long count = (int) (state >>> 32) == (int) index ? state & 0xFFFFFFFFL : 0;
+            return count >= limit ? state : (index << 32) | (count + 1);
+        }
+
+        @Override
+        long release(long state, long now) {
+            long count = state & 0xFFFFFFFFL;
+            return (int) (state >>> 32) != (int) (now / windowNanos) || count == 0 ? state : state - 1;
+        }
+    }
+
+    /**
+     * sliding window estimated from two fixed windows, the count of the previous window weighted by its part still
+     * in the sliding window plus the count of the current one, the state packs the index of current window (high 24
+     * bits) and the counts of the previous and current windows (20 bits each)
+     */
+    private static final class SlidingWindow extends Algorithm {
+
+        private static final long INDEX_MASK = 0xFFFFFFL;
+
+        private static final long COUNT_MASK = 0xFFFFFL;
+
+        private final long windowNanos;
+
+        private final int limit;
+
+        private SlidingWindow(long windowNanos, int limit) {
+            Assert.isTrue(limit <= COUNT_MASK, "limit of sliding window must not be greater than " + COUNT_MASK + "!");
+            this.windowNanos = windowNanos;
+            this.limit = limit;
+        }
+
+        @Override
+        long acquire(long state, long now) {
+            long index = now / windowNanos;
+            long lag = (index - (state >>> 40)) & INDEX_MASK;
+            // the index wraps after 2^24 windows, a key idle that long is swept long before
+            long previous = lag == 0 ? (state >>> 20) & COUNT_MASK : lag == 1 ? state & COUNT_MASK : 0;
+            long current = lag == 0 ? state & COUNT_MASK : 0;
+            double weight = (double) (windowNanos - now % windowNanos) / windowNanos;
+            if (previous * weight + current + 1 > limit) {
+                return state;
+            }
+            return ((index & INDEX_MASK) << 40) | (previous << 20) | (current + 1);
+        }
+
+        @Override
+        long release(long state, long now) {
+            boolean current = ((now / windowNanos - (state >>> 40)) & INDEX_MASK) == 0;
+            return !current || (state & COUNT_MASK) == 0 ? state : state - 1;
+        }
+    }
+}
@@ -16,57 +16,48 @@
 
 package org.yoga.jarvis.limiter;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @Description: Leaky Bucket Limiter
+ * <p>
+ * The requests are queued in the bucket and leak out one at a time at {@code limit} per {@code window}, so unlike
+ * {@link TokenBucketLimiter} there is no burst: a request passes only when the previous one has leaked out, and
+ * the output is evenly spaced. The leaking is kept by {@link GcraRateLimiter} with a burst of one, the bucket is
+ * the waiters of {@link #acquire}, at most {@code capacity} of them, and {@link #tryAcquire} does not queue.
  * @Author: yoga
  * @Date: 2024/5/13 15:44
  */
-public class LeakyBucketLimiter {
-
-    private static final Logger logger = LoggerFactory.getLogger(LeakyBucketLimiter.class);
-
-    /**
-     * capacity
-     */
-    private final int capacity;
-
-    /**
-     * leak rate
-     */
-    private final int leakRate;
+public class LeakyBucketLimiter extends GcraRateLimiter {
 
-    /**
-     * water level, the current water level
-     */
-    private final AtomicInteger waterLevel;
+    public LeakyBucketLimiter(int capacity, int leakRate) {
+        this(capacity, leakRate, 1, TimeUnit.SECONDS);
+    }
 
     /**
-     * the threadPool for leak task
+     * a bucket leaking {@code limit} requests per {@code window}, the time of leaking one request is kept in ns,
+     * so the rate is not rounded to whole requests per second
+     *
+     * @param capacity the maximum number of requests waiting in the bucket
+     * @param limit    the number of requests leaked per window
+     * @param window   window
+     * @param unit     the time unit of window
      */
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-
-    public LeakyBucketLimiter(int capacity, int leakRate) {
-        this.capacity = capacity;
-        this.leakRate = leakRate;
-        this.waterLevel = new AtomicInteger(0);
-        startLeakTask();
+    public LeakyBucketLimiter(int capacity, int limit, long window, TimeUnit unit) {
+        super(capacity, 1, limit, window, unit);
     }
 
-    public boolean tryAcquire() {
-        return waterLevel.getAndIncrement() < capacity;
+    @Override
+    protected int maxWaiting() {
+        return getCapacity();
     }
 
-    private void startLeakTask() {
-        scheduler.scheduleAtFixedRate(() -> {
-            waterLevel.set(Math.max(0, waterLevel.get() - leakRate));
-        }, 0, 1, TimeUnit.SECONDS);
+    /**
+     * the requests waiting in the bucket
+     *
+     * @return the number of requests
+     */
+    public int waterLevel() {
+        return waitingCount();
     }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.limiter;
+
+import org.yoga.jarvis.constant.RateLimiterType;
+import org.yoga.jarvis.exception.JarvisException;
+import org.yoga.jarvis.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Description: Rate Limiter
+ * @Author: yoga
+ * @Date: 2026/10/19 00:40
+ */
+public interface RateLimiter {
+
+    /**
+     * acquire a permit if it is available now, never waits
+     *
+     * @return true if acquired
+     */
+    boolean tryAcquire();
+
+    /**
+     * give back a permit acquired but not used, e.g. when a later limiter of the same request rejects it
+     * best effort, the permit is lost if its window has passed, no-op by default
+     */
+    default void release() {
+    }
+
+    /**
+     * create a limiter which admits about {@code limit} requests per {@code window}
+     * <ul>
+     *     <li>Token_Bucket, a bucket of {@code limit} tokens refilled within the window, bursts up to {@code limit}</li>
+     *     <li>Leaky_Bucket, requests leaked one at a time evenly spaced within the window, no burst, at most
+     *     {@code limit} waiting</li>
+     *     <li>Fixed_Window, at most {@code limit} requests per fixed window</li>
+     *     <li>Sliding_Window, {@code limit} requests per window sliding by buckets, at most one bucket's worth over
+     *     it within any window</li>
+     * </ul>
+     *
+     * @param type   rate limiter type
+     * @param limit  the number of requests per window
+     * @param window window
+     * @param unit   the time unit of window
+     * @return rate limiter, supports waiting acquires
+     */
+    static AbstractRateLimiter of(RateLimiterType type, int limit, long window, TimeUnit unit) {
+        Assert.notNull(type, "rate limiter type must not be null!");
+        Assert.isTrue(limit > 0, "limit must be greater than 0!");
+        Assert.isTrue(window > 0, "window must be greater than 0!");
+        Assert.notNull(unit, "unit must not be null!");
+        long windowMillis = Math.max(1, unit.toMillis(window));
+        switch (type) {
+            case Token_Bucket:
+                return new TokenBucketLimiter(limit, limit, window, unit);
+            case Leaky_Bucket:
+                return new LeakyBucketLimiter(limit, limit, window, unit);
+            case Fixed_Window:
+                return new FixedWindowLimiter(limit, windowMillis);
+            case Sliding_Window:
+                return new SlidingWindowLimiter(windowMillis, limit);
+            default:
+                throw new JarvisException("unknown rate limiter type: " + type);
+        }
+    }
+}
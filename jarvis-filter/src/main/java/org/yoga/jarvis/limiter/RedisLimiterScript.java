@@ -0,0 +1,130 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.limiter;
+
+import org.yoga.jarvis.exception.JarvisException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * @Description: Lua scripts of {@link RedisRateLimiter}
+ * <p>
+ * Each script grants up to the wanted number of permits atomically and returns the number granted. The time is read
+ * by TIME on the redis server, so all nodes share one clock. KEYS[1] contains a hash tag, the keys derived from it
+ * are in the same slot of a cluster.
+ * @Author: yoga
+ * @Date: 2026/10/19 01:10
+ */
+enum RedisLimiterScript {
+
+    /**
+     * token bucket and leaky bucket as GCRA, the key holds the time when the bucket will be full, us, the leaky bucket
+     * has a burst of one interval
+     * ARGV: the interval of one permit (us), the burst (us), wanted permits
+     */
+    GCRA("if redis.replicate_commands then redis.replicate_commands() end\n"
+            + "local time = redis.call('TIME')\n"
+            + "local now = tonumber(time[1]) * 1000000 + tonumber(time[2])\n"
+            + "local interval = tonumber(ARGV[1])\n"
+            + "local burst = tonumber(ARGV[2])\n"
+            + "local fullAt = math.max(tonumber(redis.call('GET', KEYS[1]) or 0), now)\n"
+            + "local granted = math.min(tonumber(ARGV[3]), math.floor((burst - (fullAt - now)) / interval))\n"
+            + "if granted <= 0 then return 0 end\n"
+            + "fullAt = fullAt + granted * interval\n"
+            + "local ttl = math.ceil((fullAt - now) / 1000) + 1\n"
+            + "redis.call('SET', KEYS[1], string.format('%.0f', fullAt), 'PX', ttl)\n"
+            + "return granted"),
+
+    /**
+     * fixed window, one counter per window
+     * ARGV: window (ms), limit, wanted permits
+     */
+    FIXED_WINDOW("if redis.replicate_commands then redis.replicate_commands() end\n"
+            + "local time = redis.call('TIME')\n"
+            + "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n"
+            + "local window = tonumber(ARGV[1])\n"
+            + "local key = KEYS[1] .. ':' .. string.format('%.0f', math.floor(now / window))\n"
+            + "local used = tonumber(redis.call('GET', key) or 0)\n"
+            + "local granted = math.min(tonumber(ARGV[3]), tonumber(ARGV[2]) - used)\n"
+            + "if granted <= 0 then return 0 end\n"
+            + "redis.call('INCRBY', key, granted)\n"
+            + "redis.call('PEXPIRE', key, window)\n"
+            + "return granted"),
+
+    /**
+     * sliding window, a hash of the counters of sub-windows, one more sub-window is kept for the current one
+     * ARGV: sub-window (ms), sub-windows per window, limit, wanted permits
+     */
+    SLIDING_WINDOW("if redis.replicate_commands then redis.replicate_commands() end\n"
+            + "local time = redis.call('TIME')\n"
+            + "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n"
+            + "local bucket = tonumber(ARGV[1])\n"
+            + "local buckets = tonumber(ARGV[2])\n"
+            + "local index = math.floor(now / bucket)\n"
+            + "local counts = redis.call('HGETALL', KEYS[1])\n"
+            + "local used = 0\n"
+            + "for i = 1, #counts, 2 do\n"
+            + "  if tonumber(counts[i]) >= index - buckets then\n"
+            + "    used = used + tonumber(counts[i + 1])\n"
+            + "  else\n"
+            + "    redis.call('HDEL', KEYS[1], counts[i])\n"
+            + "  end\n"
+            + "end\n"
+            + "local granted = math.min(tonumber(ARGV[4]), tonumber(ARGV[3]) - used)\n"
+            + "if granted <= 0 then return 0 end\n"
+            + "redis.call('HINCRBY', KEYS[1], string.format('%.0f', index), granted)\n"
+            + "redis.call('PEXPIRE', KEYS[1], bucket * (buckets + 1))\n"
+            + "return granted");
+
+    /**
+     * script
+     */
+    private final String script;
+
+    /**
+     * the sha1 digest of script, for EVALSHA
+     */
+    private final String digest;
+
+    RedisLimiterScript(String script) {
+        this.script = script;
+        this.digest = sha1(script);
+    }
+
+    public String getScript() {
+        return script;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    private static String sha1(String script) {
+        try {
+            byte[] bytes = MessageDigest.getInstance("SHA-1").digest(script.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new JarvisException("sha1 is not supported", e);
+        }
+    }
+}
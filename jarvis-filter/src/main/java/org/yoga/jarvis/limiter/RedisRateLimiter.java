@@ -0,0 +1,470 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.limiter;
+
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yoga.jarvis.constant.RateLimiterType;
+import org.yoga.jarvis.exception.JarvisException;
+import org.yoga.jarvis.redis.RedisConnectionProvider;
+import org.yoga.jarvis.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Description: Rate limiter shared by all nodes through redis
+ * <p>
+ * The permits are granted by a Lua script atomically, and fetched in batches, so most acquires are served from the
+ * local batch without touching the network. A batch is leased for a tenth of the window, the permits left when the
+ * lease expires are dropped, so a node never hoards permits of a later window. To keep that waste small, each batch
+ * is sized from the rate of this node since the last fetch, what it would take within one lease, up to
+ * {@code batchSize}: a node of light load fetches one permit at a time instead of holding a batch it does not use,
+ * which would reject the requests of the other nodes. Only one fetch is in flight per limiter, the concurrent
+ * acquires wait for it.
+ * <p>
+ * When redis fails, the acquires fall back to a local limiter until redis recovers, by default the same algorithm with
+ * the limit divided by the expected number of nodes, or {@link #FAIL_CLOSED} to reject all of them.
+ * <p>
+ * Unlike {@link AbstractRateLimiter} there is no waiting acquire nor wait queue, a rejected acquire is final. A queue of
+ * one node could not be served in order with the waiters of the other nodes, so the callers who need to wait retry
+ * later, or wait on a local limiter in front of this one.
+ * @Author: yoga
+ * @Date: 2026/10/19 01:20
+ */
+public class RedisRateLimiter implements RateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisRateLimiter.class);
+
+    /**
+     * the prefix of redis keys
+     */
+    private static final String KEY_PREFIX = "jarvis:limiter:";
+
+    /**
+     * the number of sub-windows of sliding window
+     */
+    private static final int SLIDING_BUCKETS = 20;
+
+    private static final CompletableFuture<Boolean> ACQUIRED = CompletableFuture.completedFuture(true);
+
+    private static final CompletableFuture<Boolean> REJECTED = CompletableFuture.completedFuture(false);
+
+    /**
+     * the fallback rejecting all acquires while redis fails
+     */
+    public static final RateLimiter FAIL_CLOSED = () -> false;
+
+    /**
+     * redis connection provider
+     */
+    private final RedisConnectionProvider connectionProvider;
+
+    /**
+     * redis key, the name is a hash tag
+     */
+    private final String[] keys;
+
+    /**
+     * script
+     */
+    private final RedisLimiterScript script;
+
+    /**
+     * the arguments of script, followed by the wanted permits on each call
+     */
+    private final byte[][] args;
+
+    /**
+     * the maximum number of permits fetched at once
+     */
+    private final int batchSize;
+
+    /**
+     * the time a batch is leased, ns
+     */
+    private final long leaseNanos;
+
+    /**
+     * the local limiter used when redis fails
+     */
+    private final RateLimiter fallback;
+
+    /**
+     * the current batch
+     */
+    private final AtomicReference<Lease> lease;
+
+    /**
+     * the fetch in flight, null if none
+     */
+    private final AtomicReference<CompletableFuture<Lease>> fetching = new AtomicReference<>();
+
+    /**
+     * the number of script calls
+     */
+    private final LongAdder remoteCalls = new LongAdder();
+
+    /**
+     * whether the last fetch failed
+     */
+    private volatile boolean degraded;
+
+    /**
+     * fetch at most about 1% of the limit at once, and fall back to a local limiter of the share of this node
+     *
+     * @param connectionProvider redis connection provider
+     * @param name               the name of limiter, the limiters of same name share the permits
+     * @param type               rate limiter type
+     * @param limit              the number of requests per window of all nodes
+     * @param window             window
+     * @param unit               the time unit of window
+     * @param expectedNodes      the expected number of nodes, each admits {@code limit / expectedNodes} when redis fails
+     */
+    public RedisRateLimiter(RedisConnectionProvider connectionProvider, String name, RateLimiterType type, int limit,
+                            long window, TimeUnit unit, int expectedNodes) {
+        this(connectionProvider, name, type, limit, window, unit, Math.max(1, limit / 100),
+                RateLimiter.of(type, Math.max(1, limit / expectedNodes(expectedNodes)), window, unit));
+    }
+
+    /**
+     * @param connectionProvider redis connection provider
+     * @param name               the name of limiter, the limiters of same name share the permits
+     * @param type               rate limiter type
+     * @param limit              the number of requests per window of all nodes
+     * @param window             window
+     * @param unit               the time unit of window
+     * @param batchSize          the maximum number of permits fetched at once, 1 for no batching
+     * @param fallback           the local limiter used when redis fails, {@link #FAIL_CLOSED} to reject
+     */
+    public RedisRateLimiter(RedisConnectionProvider connectionProvider, String name, RateLimiterType type, int limit,
+                            long window, TimeUnit unit, int batchSize, RateLimiter fallback) {
+        Assert.notNull(connectionProvider, "connectionProvider must not be null!");
+        Assert.notBlank(name, "name must not be blank!");
+        Assert.notNull(type, "rate limiter type must not be null!");
+        Assert.isTrue(limit > 0, "limit must be greater than 0!");
+        Assert.isTrue(window > 0, "window must be greater than 0!");
+        Assert.isTrue(batchSize > 0 && batchSize <= limit, "batchSize must be in (0, limit]!");
+        Assert.notNull(fallback, "fallback must not be null!");
+        this.connectionProvider = connectionProvider;
+        this.keys = new String[]{KEY_PREFIX + "{" + name + "}"};
+        this.batchSize = batchSize;
+        this.fallback = fallback;
+        long windowMillis = Math.max(1, unit.toMillis(window));
+        this.leaseNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, windowMillis / 10));
+        long now = System.nanoTime();
+        this.lease = new AtomicReference<>(new Lease(0, now, now, false));
+        switch (type) {
+            case Token_Bucket:
+                // a bucket of limit permits refilled within the window
+                long windowMicros = Math.max(1, unit.toMicros(window));
+                this.script = RedisLimiterScript.GCRA;
+                this.args = args((double) windowMicros / limit, windowMicros);
+                break;
+            case Leaky_Bucket:
+                // one permit leaked per interval, no burst, so each fetch is granted one permit at most
+                double intervalMicros = (double) Math.max(1, unit.toMicros(window)) / limit;
+                this.script = RedisLimiterScript.GCRA;
+                this.args = args(intervalMicros, intervalMicros);
+                break;
+            case Fixed_Window:
+                this.script = RedisLimiterScript.FIXED_WINDOW;
+                this.args = args(windowMillis, limit);
+                break;
+            case Sliding_Window:
+                this.script = RedisLimiterScript.SLIDING_WINDOW;
+                this.args = args(Math.max(1, windowMillis / SLIDING_BUCKETS), SLIDING_BUCKETS, limit);
+                break;
+            default:
+                throw new JarvisException("unknown rate limiter type: " + type);
+        }
+    }
+
+    /**
+     * acquire a permit, blocks the caller for a round trip to redis when the local batch is used up, use
+     * {@link #tryAcquireAsync()} on an event loop. The wait is bounded by the command timeout of the connection,
+     * the acquire falls back to the local limiter after it
+     *
+     * @return true if acquired
+     */
+    @Override
+    public boolean tryAcquire() {
+        CompletableFuture<Boolean> acquiring = tryAcquireAsync();
+        if (acquiring.isDone()) {
+            return acquiring.join();
+        }
+        try {
+            return acquiring.get(connectionProvider.timeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            // a fetch times out by itself, only the fetches chained after a used up batch get here
+            return fallback.tryAcquire();
+        }
+    }
+
+    /**
+     * acquire a permit without blocking, completed at once when the local batch has permits
+     *
+     * @return true if acquired, never completed exceptionally
+     */
+    public CompletableFuture<Boolean> tryAcquireAsync() {
+        if (lease.get().take(System.nanoTime())) {
+            return ACQUIRED;
+        }
+        if (degraded) {
+            // probe redis in background, the acquires do not wait for the timeout of a broken redis
+            fetch();
+            return fallback.tryAcquire() ? ACQUIRED : REJECTED;
+        }
+        return fetch().thenCompose(fetched -> {
+            if (fetched.failed) {
+                return fallback.tryAcquire() ? ACQUIRED : REJECTED;
+            }
+            if (fetched.take(System.nanoTime())) {
+                return ACQUIRED;
+            }
+            // the batch is used up by the other waiters, fetch again until redis grants none
+            return fetched.granted == 0 ? REJECTED : tryAcquireAsync();
+        });
+    }
+
+    /**
+     * give the permit back to the local batch, or to the fallback while redis fails, never touches redis
+     */
+    @Override
+    public void release() {
+        if (degraded) {
+            fallback.release();
+            return;
+        }
+        lease.get().giveBack(System.nanoTime());
+    }
+
+    /**
+     * the number of script calls, for monitoring the effect of batching
+     *
+     * @return the number of script calls
+     */
+    public long remoteCalls() {
+        return remoteCalls.sum();
+    }
+
+    /**
+     * whether the limiter falls back to the local limiter
+     *
+     * @return true if the last fetch failed
+     */
+    public boolean isDegraded() {
+        return degraded;
+    }
+
+    /**
+     * fetch a batch, joins the fetch in flight if any
+     *
+     * @return the new batch
+     */
+    private CompletableFuture<Lease> fetch() {
+        for (; ; ) {
+            CompletableFuture<Lease> inFlight = fetching.get();
+            if (inFlight != null) {
+                return inFlight;
+            }
+            CompletableFuture<Lease> future = new CompletableFuture<>();
+            if (!fetching.compareAndSet(null, future)) {
+                continue;
+            }
+            remoteCalls.increment();
+            long fetchAt = System.nanoTime();
+            CompletionStage<Long> granted;
+            try {
+                granted = eval(connectionProvider.connection().async(), lease.get().nextBatch(fetchAt));
+            } catch (RuntimeException e) {
+                granted = failed(e);
+            }
+            granted.whenComplete((permits, e) -> {
+                Lease fetched;
+                if (e != null) {
+                    if (!degraded) {
+                        logger.warn("redis rate limiter falls back to local limiter, key: {}", keys[0], e);
+                    }
+                    degraded = true;
+                    fetched = new Lease(0, fetchAt, System.nanoTime(), true);
+                } else {
+                    if (degraded) {
+                        logger.info("redis rate limiter recovered, key: {}", keys[0]);
+                    }
+                    degraded = false;
+                    fetched = new Lease(permits.intValue(), fetchAt, System.nanoTime() + leaseNanos, false);
+                    lease.set(fetched);
+                }
+                fetching.set(null);
+                future.complete(fetched);
+            });
+            return future;
+        }
+    }
+
+    /**
+     * eval the script by sha1, load it if redis does not have it
+     */
+    private CompletionStage<Long> eval(RedisAsyncCommands<String, byte[]> commands, int wanted) {
+        byte[][] args = Arrays.copyOf(this.args, this.args.length + 1);
+        args[this.args.length] = String.valueOf(wanted).getBytes(StandardCharsets.UTF_8);
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        commands.<Long>evalsha(script.getDigest(), ScriptOutputType.INTEGER, keys, args).whenComplete((permits, e) -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RedisNoScriptException) {
+                commands.<Long>eval(script.getScript(), ScriptOutputType.INTEGER, keys, args)
+                        .whenComplete((loaded, error) -> complete(result, loaded, error));
+            } else {
+                complete(result, permits, e);
+            }
+        });
+        return result;
+    }
+
+    private static byte[][] args(Object... values) {
+        byte[][] bytes = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = String.valueOf(values[i]).getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
+    private static int expectedNodes(int expectedNodes) {
+        Assert.isTrue(expectedNodes > 0, "expectedNodes must be greater than 0!");
+        return expectedNodes;
+    }
+
+    private static <T> void complete(CompletableFuture<T> future, T value, Throwable e) {
+        if (e != null) {
+            future.completeExceptionally(e);
+        } else {
+            future.complete(value);
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    /**
+     * a batch of permits leased from redis
+     */
+    private final class Lease {
+
+        /**
+         * the number of permits granted by redis
+         */
+        private final int granted;
+
+        /**
+         * the number of permits left
+         */
+        private final AtomicInteger remaining;
+
+        /**
+         * the time the batch was fetched, ns
+         */
+        private final long fetchAt;
+
+        /**
+         * expire time, ns
+         */
+        private final long expireAt;
+
+        /**
+         * whether the fetch failed
+         */
+        private final boolean failed;
+
+        private Lease(int granted, long fetchAt, long expireAt, boolean failed) {
+            this.granted = granted;
+            this.remaining = new AtomicInteger(granted);
+            this.fetchAt = fetchAt;
+            this.expireAt = expireAt;
+            this.failed = failed;
+        }
+
+        /**
+         * take a permit
+         *
+         * @param now current time, ns
+         * @return true if taken
+         */
+        private boolean take(long now) {
+            if (now - expireAt >= 0) {
+                return false;
+            }
+            for (; ; ) {
+                int left = remaining.get();
+                if (left <= 0) {
+                    return false;
+                }
+                if (remaining.compareAndSet(left, left - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * give a permit back if the batch is not expired, never more than granted
+         *
+         * @param now current time, ns
+         */
+        private void giveBack(long now) {
+            if (now - expireAt >= 0) {
+                return;
+            }
+            for (; ; ) {
+                int left = remaining.get();
+                if (left >= granted || remaining.compareAndSet(left, left + 1)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * the size of the next batch, the permits taken from this batch per lease since it was fetched, in
+         * [1, batchSize]
+         *
+         * @param now current time, ns
+         * @return the number of permits to fetch
+         */
+        private int nextBatch(long now) {
+            long taken = Math.max(0, granted - remaining.get());
+            double perLease = (double) taken * leaseNanos / Math.max(1, now - fetchAt);
+            return (int) Math.max(1, Math.min(batchSize, Math.ceil(perLease)));
+        }
+    }
+}
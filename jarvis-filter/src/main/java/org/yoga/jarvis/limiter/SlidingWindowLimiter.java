@@ -18,76 +18,157 @@ package org.yoga.jarvis.limiter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.yoga.jarvis.util.Assert;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * @Description: SlidingWindow Limiter
+ * <p>
+ * The window is split into a ring of buckets, each bucket packs the index of its sub-window (high 32 bits) and the
+ * number of admitted requests in it (low 32 bits) into one long, so the memory is fixed whatever the rate is.
+ * A request is admitted by a CAS on the current bucket after counting the live buckets, no lock is taken.
+ * The window slides one bucket at a time and is only counted at bucket granularity, so any window of
+ * {@code windowSize} ms admits at most one bucket's worth of requests over the limit, e.g. the admissions racing
+ * across a bucket boundary or the rounding of the bucket duration.
  * @Author: yoga
  * @Date: 2022/6/2 11:31
  */
-public class SlidingWindowLimiter {
+public class SlidingWindowLimiter extends AbstractRateLimiter {
 
     private static final Logger logger = LoggerFactory.getLogger(SlidingWindowLimiter.class);
 
-    // window size
+    /**
+     * the default number of buckets per window
+     */
+    private static final int DEFAULT_BUCKETS = 20;
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    // window size, ms
     private final long windowSize;
 
     // max request per window
     private final int maxRequestPerWindow;
 
-    // queue
-    private final Queue<Long> queue = new ConcurrentLinkedQueue<>();
+    // the duration of one bucket, ns
+    private final long bucketNanos;
+
+    // the start time of the limiter, ns
+    private final long startNanos;
 
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // buckets, index of sub-window << 32 | count
+    private final AtomicLongArray buckets;
 
     public SlidingWindowLimiter(long windowSize, int maxRequestPerWindow) {
+        this(windowSize, maxRequestPerWindow, DEFAULT_BUCKETS);
+    }
+
+    /**
+     * @param windowSize          window size, ms
+     * @param maxRequestPerWindow max request per window
+     * @param buckets             the number of buckets per window, more buckets slide more smoothly
+     */
+    public SlidingWindowLimiter(long windowSize, int maxRequestPerWindow, int buckets) {
+        Assert.isTrue(windowSize > 0, "windowSize must be greater than 0!");
+        Assert.isTrue(maxRequestPerWindow > 0, "maxRequestPerWindow must be greater than 0!");
+        Assert.isTrue(buckets > 0, "buckets must be greater than 0!");
         this.windowSize = windowSize;
         this.maxRequestPerWindow = maxRequestPerWindow;
+        this.bucketNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(windowSize) / buckets);
+        this.startNanos = System.nanoTime();
+        // one more bucket for the current sub-window, so the live buckets always cover the whole window
+        this.buckets = new AtomicLongArray(buckets + 1);
+    }
+
+    @Override
+    protected boolean doTryAcquire(int permits) {
+        Assert.isTrue(permits <= maxRequestPerWindow, "permits must not be greater than maxRequestPerWindow!");
+        for (; ; ) {
+            // the time is read again on retry, a bucket is never overwritten by a past sub-window
+            long index = (System.nanoTime() - startNanos) / bucketNanos;
+            int slot = (int) (index % buckets.length());
+            long current = buckets.get(slot);
+            int lag = (int) (current >>> 32) - (int) index;
+            if (lag > 0) {
+                continue;
+            }
+            long count = lag == 0 ? current & COUNT_MASK : 0;
+            // the past buckets only expire, so the count of the window is exact as long as the CAS succeeds
+            if (count + permits + countOthers(index, slot) > maxRequestPerWindow) {
+                return false;
+            }
+            if (buckets.compareAndSet(slot, current, (index << 32) | (count + permits))) {
+                return true;
+            }
+        }
     }
 
-    public synchronized boolean tryAcquire() {
-        long currentTime = System.currentTimeMillis();
-        long windowStart = currentTime - windowSize;
-
-        lock.readLock().lock();
-        try {
-            // clean expired timestamp
-            while (!queue.isEmpty() && queue.peek() < windowStart) {
-                // upgrade to write lock
-                lock.readLock().unlock();
-                lock.writeLock().lock();
-
-                try {
-                    // double check
-                    if (!queue.isEmpty() && queue.peek() < windowStart) {
-                        queue.poll();
-                    }
-                } finally {
-                    // downgrade the read lock and release the write lock
-                    lock.readLock().lock();
-                    lock.writeLock().unlock();
-                }
+    /**
+     * uncount the permits from the current bucket, the permits counted by a past bucket are not given back
+     */
+    @Override
+    protected void doRelease(int permits) {
+        for (; ; ) {
+            long index = (System.nanoTime() - startNanos) / bucketNanos;
+            int slot = (int) (index % buckets.length());
+            long current = buckets.get(slot);
+            long count = current & COUNT_MASK;
+            if ((int) (current >>> 32) != (int) index || count == 0) {
+                return;
+            }
+            if (buckets.compareAndSet(slot, current, (index << 32) | (count - Math.min(count, permits)))) {
+                return;
             }
-        } finally {
-            // release the read lock
-            lock.readLock().unlock();
         }
+    }
+
+    /**
+     * the time until the oldest bucket expires, the requests are tried again then
+     */
+    @Override
+    protected long waitNanos(int permits) {
+        if (currentCount() + permits <= maxRequestPerWindow) {
+            return 0;
+        }
+        return bucketNanos - (System.nanoTime() - startNanos) % bucketNanos;
+    }
 
+    /**
+     * the number of requests admitted in the current window
+     *
+     * @return the number of requests
+     */
+    public long currentCount() {
+        long index = (System.nanoTime() - startNanos) / bucketNanos;
+        int slot = (int) (index % buckets.length());
+        long current = buckets.get(slot);
+        long count = (int) (current >>> 32) == (int) index ? current & COUNT_MASK : 0;
+        return count + countOthers(index, slot);
+    }
 
-        lock.writeLock().lock();
-        try {
-            if (queue.size() < maxRequestPerWindow) {
-                queue.add(currentTime);
-                return true;
+    /**
+     * count the requests of the live buckets except the current one
+     *
+     * @param index the index of current sub-window
+     * @param slot  the slot of current bucket
+     * @return the number of requests
+     */
+    private long countOthers(long index, int slot) {
+        int length = buckets.length();
+        long sum = 0;
+        for (int i = 0; i < length; i++) {
+            if (i == slot) {
+                continue;
+            }
+            long bucket = buckets.get(i);
+            // the index is compared in 32 bits, the wrap-around takes 2^32 sub-windows
+            int age = (int) index - (int) (bucket >>> 32);
+            if (age > 0 && age < length) {
+                sum += bucket & COUNT_MASK;
             }
-        } finally {
-            // release the write lock
-            lock.writeLock().unlock();
         }
-        return false;
+        return sum;
     }
 }
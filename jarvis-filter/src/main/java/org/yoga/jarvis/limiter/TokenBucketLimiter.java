@@ -16,59 +16,43 @@
 
 package org.yoga.jarvis.limiter;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * @Description:
+ * @Description: Token Bucket Limiter
+ * <p>
+ * The bucket is refilled at {@code limit} tokens per {@code window} up to {@code capacity}, so a full bucket lets
+ * {@code capacity} permits through at once. It is kept by {@link GcraRateLimiter} as the time when it will be full
+ * again, refilled lazily on each acquire without a background thread.
  * @Author: yoga
  * @Date: 2024/5/11 16:09
  */
-public class TokenBucketLimiter {
-
-    private static final Logger logger = LoggerFactory.getLogger(TokenBucketLimiter.class);
-
-    /**
-     * capacity
-     */
-    private final int capacity;
+public class TokenBucketLimiter extends GcraRateLimiter {
 
-    /**
-     * tokens per second
-     */
-    private final int tokensPerSecond;
+    public TokenBucketLimiter(int capacity, int tokensPerSecond) {
+        this(capacity, tokensPerSecond, 1, TimeUnit.SECONDS);
+    }
 
     /**
-     * tokens
+     * a bucket refilled by {@code limit} tokens per {@code window}, the interval of a token is kept in ns,
+     * so the rate is not rounded to whole tokens per second
+     *
+     * @param capacity capacity
+     * @param limit    the number of tokens refilled per window
+     * @param window   window
+     * @param unit     the time unit of window
      */
-    private final AtomicInteger tokens;
+    public TokenBucketLimiter(int capacity, int limit, long window, TimeUnit unit) {
+        super(capacity, capacity, limit, window, unit);
+    }
 
     /**
-     * the threadPool for add tokens task
+     * the tokens in the bucket
+     *
+     * @return the number of tokens
      */
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-
-    public TokenBucketLimiter(int capacity, int tokensPerSecond) {
-        this.capacity = capacity;
-        this.tokensPerSecond = tokensPerSecond;
-        this.tokens = new AtomicInteger(capacity);
-        startTokenRefillTask();
-    }
-
-    public boolean tryAcquire() {
-        return tokens.getAndDecrement() > 0;
-    }
-
-    private void startTokenRefillTask() {
-        scheduler.scheduleAtFixedRate(() -> {
-            int currentTokens = tokens.get();
-            int newTokens = Math.min(capacity, currentTokens + tokensPerSecond);
-            tokens.compareAndSet(currentTokens, newTokens);
-        }, 0, 1, TimeUnit.SECONDS);
+    public int availablePermits() {
+        long tokensNanos = getIntervalNanos() * getCapacity() - owedNanos();
+        return (int) Math.max(0, tokensNanos / getIntervalNanos());
     }
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.limiter;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.yoga.jarvis.bean.RedisConnectionConfigs;
+import org.yoga.jarvis.constant.RateLimiterType;
+import org.yoga.jarvis.redis.RedisConnectionProvider;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @Description: the Lua scripts and batching of {@link RedisRateLimiter} against an embedded redis server, no docker
+ * nor external redis needed
+ * @Author: yoga
+ * @Date: 2026/10/19 03:40
+ */
+class RedisRateLimiterTests {
+
+    private static RedisServer redis;
+
+    private static RedisConnectionProvider connectionProvider;
+
+    @BeforeAll
+    static void start() throws IOException {
+        int port = freePort();
+        redis = new RedisServer(port);
+        redis.start();
+        connectionProvider = new RedisConnectionProvider("localhost", port);
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        connectionProvider.close();
+        redis.stop();
+    }
+
+    @Test
+    void fixedWindowRollsOver() throws InterruptedException {
+        RedisRateLimiter limiter = limiter(RateLimiterType.Fixed_Window, 5, 1000);
+        sleepToNextWindow(1000);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+        sleepToNextWindow(1000);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void slidingWindowExpiresOldSubWindows() throws InterruptedException {
+        RedisRateLimiter limiter = limiter(RateLimiterType.Sliding_Window, 5, 1000);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+        // one more sub-window is kept for the current one
+        TimeUnit.MILLISECONDS.sleep(1000 + 1000 / 20 + 100);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void gcraRefillsOnePermitPerInterval() throws InterruptedException {
+        RedisRateLimiter limiter = limiter(RateLimiterType.Token_Bucket, 10, 1000);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+        // a permit is refilled every 100 ms
+        TimeUnit.MILLISECONDS.sleep(150);
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    void batchServesAcquiresLocally() {
+        RedisRateLimiter limiter = new RedisRateLimiter(connectionProvider, name(), RateLimiterType.Token_Bucket,
+                1000, 1, TimeUnit.MINUTES, 100, RedisRateLimiter.FAIL_CLOSED);
+        // the first fetch is sized by no rate at all, the second by the rate of the first
+        for (int i = 0; i < 1 + 100; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertEquals(2, limiter.remoteCalls());
+    }
+
+    @Test
+    void lightLoadIsAdmittedAcrossNodes() throws InterruptedException {
+        // 12 nodes of 20 requests per second each, a quarter of the limit, fetching batches of up to 50
+        int nodes = 12;
+        String name = name();
+        List<RedisRateLimiter> limiters = new ArrayList<>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            limiters.add(new RedisRateLimiter(connectionProvider, name, RateLimiterType.Fixed_Window, 1000, 1,
+                    TimeUnit.SECONDS, 50, RedisRateLimiter.FAIL_CLOSED));
+        }
+        LongAdder offered = new LongAdder();
+        LongAdder admitted = new LongAdder();
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(nodes);
+        for (RedisRateLimiter limiter : limiters) {
+            executor.scheduleAtFixedRate(() -> {
+                offered.increment();
+                if (limiter.tryAcquire()) {
+                    admitted.increment();
+                }
+            }, 0, 50, TimeUnit.MILLISECONDS);
+        }
+        TimeUnit.SECONDS.sleep(3);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        // a fixed batch would be dropped by each node at each lease, rejecting most of the requests
+        assertEquals(offered.sum(), admitted.sum());
+    }
+
+    @Test
+    void fallbackAdmitsTheShareOfNode() throws IOException {
+        int port = freePort();
+        RedisServer redis = new RedisServer(port);
+        redis.start();
+        RedisConnectionProvider provider = brokenLater(port);
+        try {
+            RedisRateLimiter limiter = new RedisRateLimiter(provider, name(), RateLimiterType.Token_Bucket, 10,
+                    1, TimeUnit.MINUTES, 2);
+            redis.stop();
+            int admitted = 0;
+            for (int i = 0; i < 20; i++) {
+                admitted += limiter.tryAcquire() ? 1 : 0;
+            }
+            assertTrue(limiter.isDegraded());
+            assertEquals(5, admitted);
+        } finally {
+            provider.close();
+            redis.stop();
+        }
+    }
+
+    @Test
+    void fallbackFailsClosed() throws IOException {
+        int port = freePort();
+        RedisServer redis = new RedisServer(port);
+        redis.start();
+        RedisConnectionProvider provider = brokenLater(port);
+        try {
+            RedisRateLimiter limiter = new RedisRateLimiter(provider, name(), RateLimiterType.Fixed_Window, 10,
+                    1, TimeUnit.MINUTES, 1, RedisRateLimiter.FAIL_CLOSED);
+            redis.stop();
+            assertFalse(limiter.tryAcquire());
+            assertTrue(limiter.isDegraded());
+        } finally {
+            provider.close();
+            redis.stop();
+        }
+    }
+
+    private static RedisRateLimiter limiter(RateLimiterType type, int limit, long windowMillis) {
+        return new RedisRateLimiter(connectionProvider, name(), type, limit, windowMillis, TimeUnit.MILLISECONDS, 1,
+                RedisRateLimiter.FAIL_CLOSED);
+    }
+
+    /**
+     * a provider of short timeout, so the acquires fall back soon after the server stops
+     */
+    private static RedisConnectionProvider brokenLater(int port) {
+        RedisConnectionConfigs configs = new RedisConnectionConfigs();
+        configs.setPoolSize(1);
+        configs.setTimeoutMillis(200);
+        return new RedisConnectionProvider("localhost", port, configs);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * sleep until a little after the next window by the clock of redis, which the scripts read
+     */
+    private static void sleepToNextWindow(long windowMillis) throws InterruptedException {
+        List<byte[]> time = connectionProvider.connection().sync().time();
+        long now = Long.parseLong(new String(time.get(0), StandardCharsets.UTF_8)) * 1000
+                + Long.parseLong(new String(time.get(1), StandardCharsets.UTF_8)) / 1000;
+        TimeUnit.MILLISECONDS.sleep(windowMillis - now % windowMillis + 50);
+    }
+
+    private static String name() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.cache;
+
+import org.yoga.jarvis.CacheHandler;
+import org.yoga.jarvis.GuavaCacheHandler;
+import org.yoga.jarvis.constant.RateLimiterType;
+import org.yoga.jarvis.core.ApplicationRateLimitRule;
+import org.yoga.jarvis.key.CompositeKey;
+import org.yoga.jarvis.limiter.RateLimiter;
+import org.yoga.jarvis.util.CollectionUtils;
+import org.yoga.jarvis.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Description: Application Rate Limit Rule Cache
+ * <p>
+ * The limiters are created on first use and keyed by the fields of rule with the resolved limiter type, so a reload
+ * keeps the limiters of unchanged rules with their state, and drops the others, and a rule without type gets a new
+ * limiter when the default type changes. A reload swaps in a new map of limiters after the rules are replaced,
+ * and a lookup reads the map before the rules, so a lookup racing with a reload never adds a limiter of a removed
+ * rule to the new map.
+ * @Author: yoga
+ * @Date: 2026/10/19 02:10
+ */
+public class ApplicationRateLimitRuleCache {
+
+    private static final CacheHandler<String, List<ApplicationRateLimitRule>> APPLICATION_RATE_LIMIT_RULE_CACHE = new GuavaCacheHandler<>(8, 256, 24 * 60 * 60);
+
+    private static volatile Map<CompositeKey, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
+    /**
+     * add application rate limit rule map to cache
+     *
+     * @param ruleMap application rate limit rule map
+     */
+    public static synchronized void add(Map<String, List<ApplicationRateLimitRule>> ruleMap) {
+        ruleMap.forEach(APPLICATION_RATE_LIMIT_RULE_CACHE::put);
+        APPLICATION_RATE_LIMIT_RULE_CACHE.removeIf(key -> !ruleMap.containsKey(key));
+        Map<CompositeKey, RateLimiter> current = rateLimiters;
+        Map<CompositeKey, RateLimiter> kept = new ConcurrentHashMap<>();
+        ruleMap.values().stream()
+                .flatMap(List::stream)
+                .forEach(rule -> {
+                    // the default type is only known by the lookup, a rule without type keeps its limiter of any type
+                    RateLimiterType[] types = rule.getRateLimiterType() == null
+                            ? RateLimiterType.values() : new RateLimiterType[]{rule.getRateLimiterType()};
+                    for (RateLimiterType type : types) {
+                        CompositeKey key = key(rule, type);
+                        RateLimiter rateLimiter = current.get(key);
+                        if (rateLimiter != null) {
+                            kept.put(key, rateLimiter);
+                        }
+                    }
+                });
+        rateLimiters = kept;
+    }
+
+    /**
+     * get the rate limiters of the rules matching the path, the application rule and the route rules
+     *
+     * @param applicationName application name
+     * @param path            request path without the application name
+     * @param defaultType     the limiter type of rules without type
+     * @return rate limiters, empty if no rule
+     */
+    public static List<RateLimiter> getRateLimiters(String applicationName, String path, RateLimiterType defaultType) {
+        // read before the rules, see the class comment
+        Map<CompositeKey, RateLimiter> limiters = rateLimiters;
+        List<ApplicationRateLimitRule> rules = APPLICATION_RATE_LIMIT_RULE_CACHE.getIfPresent(applicationName);
+        if (CollectionUtils.isEmpty(rules)) {
+            return Collections.emptyList();
+        }
+        List<RateLimiter> matched = new ArrayList<>(rules.size());
+        for (ApplicationRateLimitRule rule : rules) {
+            if (StringUtils.isBlank(rule.getPath()) || matches(path, rule.getPath())) {
+                RateLimiterType type = rule.getRateLimiterType() == null ? defaultType : rule.getRateLimiterType();
+                matched.add(limiters.computeIfAbsent(key(rule, type),
+                        key -> RateLimiter.of(type, rule.getLimit(), rule.getWindow(), TimeUnit.MILLISECONDS)));
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * whether the path is the rule path or under it, "/api" matches "/api" and "/api/users" but not "/apis"
+     *
+     * @param path     request path
+     * @param rulePath rule path
+     * @return true if matches
+     */
+    private static boolean matches(String path, String rulePath) {
+        if (!path.startsWith(rulePath)) {
+            return false;
+        }
+        return path.length() == rulePath.length() || rulePath.endsWith("/") || path.charAt(rulePath.length()) == '/';
+    }
+
+    /**
+     * the key of the limiter of rule
+     *
+     * @param rule rule
+     * @param type the resolved limiter type of rule, the default type if the rule has none
+     * @return key
+     */
+    private static CompositeKey key(ApplicationRateLimitRule rule, RateLimiterType type) {
+        return CompositeKey.of(rule.getApplicationName(), rule.getPath(), type, rule.getLimit(), rule.getWindow());
+    }
+}
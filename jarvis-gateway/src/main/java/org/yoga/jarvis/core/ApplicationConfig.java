@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.core;
+
+import java.util.List;
+
+/**
+ * @Description: Application Config, the nacos app-config
+ * <p>
+ * A plain list of route rules is also accepted as app-config, which has no rate limit rules.
+ * @Author: yoga
+ * @Date: 2026/10/19 02:05
+ */
+public class ApplicationConfig {
+
+    /**
+     * application route rules
+     */
+    private List<ApplicationRouteRule> routeRules;
+
+    /**
+     * application rate limit rules
+     */
+    private List<ApplicationRateLimitRule> rateLimitRules;
+
+    public List<ApplicationRouteRule> getRouteRules() {
+        return routeRules;
+    }
+
+    public void setRouteRules(List<ApplicationRouteRule> routeRules) {
+        this.routeRules = routeRules;
+    }
+
+    public List<ApplicationRateLimitRule> getRateLimitRules() {
+        return rateLimitRules;
+    }
+
+    public void setRateLimitRules(List<ApplicationRateLimitRule> rateLimitRules) {
+        this.rateLimitRules = rateLimitRules;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.core;
+
+import org.yoga.jarvis.constant.RateLimiterType;
+
+/**
+ * @Description: Application Rate Limit Rule
+ * @Author: yoga
+ * @Date: 2026/10/19 02:00
+ */
+public class ApplicationRateLimitRule {
+
+    /**
+     * application name
+     */
+    private String applicationName;
+
+    /**
+     * the path prefix of route, without the application name, blank for the whole application
+     */
+    private String path;
+
+    /**
+     * Limiter Type {@link RateLimiterType}, {@link org.yoga.jarvis.config.ServerConfigs#getRateLimiterType()} if null
+     */
+    private RateLimiterType rateLimiterType;
+
+    /**
+     * the number of requests per window of this gateway node
+     */
+    private int limit;
+
+    /**
+     * window(ms), default 1 second
+     */
+    private long window = 1000L;
+
+    public String getApplicationName() {
+        return applicationName;
+    }
+
+    public void setApplicationName(String applicationName) {
+        this.applicationName = applicationName;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public RateLimiterType getRateLimiterType() {
+        return rateLimiterType;
+    }
+
+    public void setRateLimiterType(RateLimiterType rateLimiterType) {
+        this.rateLimiterType = rateLimiterType;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public long getWindow() {
+        return window;
+    }
+
+    public void setWindow(long window) {
+        this.window = window;
+    }
+}
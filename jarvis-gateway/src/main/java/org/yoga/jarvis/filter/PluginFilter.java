@@ -24,6 +24,7 @@ import org.yoga.jarvis.config.ServerConfigs;
 import org.yoga.jarvis.plugin.Plugin;
 import org.yoga.jarvis.chain.PluginChain;
 import org.yoga.jarvis.plugin.impl.AuthorizationPlugin;
+import org.yoga.jarvis.plugin.impl.RateLimitPlugin;
 import org.yoga.jarvis.plugin.impl.RoutePlugin;
 import reactor.core.publisher.Mono;
 
@@ -53,6 +54,7 @@ public class PluginFilter implements WebFilter {
         String appName = requestPath.value().split("/")[1];
         List<Plugin> plugins = new ArrayList<>();
         plugins.add(new AuthorizationPlugin(serverConfigs));
+        plugins.add(new RateLimitPlugin(serverConfigs));
         plugins.add(new RoutePlugin(serverConfigs));
         PluginChain pluginChain = new PluginChain(appName, plugins);
         return pluginChain.execute(exchange, pluginChain);
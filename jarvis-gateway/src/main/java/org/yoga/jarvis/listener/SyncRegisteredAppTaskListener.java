@@ -28,9 +28,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextRefreshedEvent;
+import org.yoga.jarvis.cache.ApplicationRateLimitRuleCache;
 import org.yoga.jarvis.cache.ApplicationRouteRuleCache;
 import org.yoga.jarvis.config.ServerConfigs;
 import org.yoga.jarvis.constant.CommonConstant;
+import org.yoga.jarvis.core.ApplicationConfig;
+import org.yoga.jarvis.core.ApplicationRateLimitRule;
 import org.yoga.jarvis.core.ApplicationRouteRule;
 import org.yoga.jarvis.exception.JarvisException;
 import org.yoga.jarvis.factory.ThreadFactoryBuilder;
@@ -39,6 +42,7 @@ import org.yoga.jarvis.util.Assert;
 import org.yoga.jarvis.util.CollectionUtils;
 import org.yoga.jarvis.util.JsonUtils;
 import org.yoga.jarvis.util.NetUtils;
+import org.yoga.jarvis.util.StringUtils;
 
 import java.net.InetAddress;
 import java.util.List;
@@ -117,11 +121,49 @@ public class SyncRegisteredAppTaskListener implements ApplicationListener<Contex
      * @param configInfo config info
      */
     private void updateConfig(String configInfo) {
-        List<ApplicationRouteRule> applicationRouteRules = JsonUtils.parseObj(configInfo, new TypeReference<List<ApplicationRouteRule>>() {
-        });
+        ApplicationConfig applicationConfig = parseConfig(configInfo);
+        List<ApplicationRouteRule> applicationRouteRules = applicationConfig.getRouteRules();
         Map<String, List<ApplicationRouteRule>> applicationRouteRuleMap = CollectionUtils.isEmpty(applicationRouteRules)
                 ? Maps.newHashMap() : applicationRouteRules.stream().collect(Collectors.groupingBy(ApplicationRouteRule::getApplicationName));
         ApplicationRouteRuleCache.add(applicationRouteRuleMap);
         logger.info("update application route rule config success");
+        List<ApplicationRateLimitRule> applicationRateLimitRules = applicationConfig.getRateLimitRules();
+        Map<String, List<ApplicationRateLimitRule>> applicationRateLimitRuleMap = CollectionUtils.isEmpty(applicationRateLimitRules)
+                ? Maps.newHashMap() : applicationRateLimitRules.stream()
+                .filter(SyncRegisteredAppTaskListener::isValid)
+                .collect(Collectors.groupingBy(ApplicationRateLimitRule::getApplicationName));
+        ApplicationRateLimitRuleCache.add(applicationRateLimitRuleMap);
+        logger.info("update application rate limit rule config success");
+    }
+
+    /**
+     * parse nacos config, a list of route rules or an application config
+     *
+     * @param configInfo config info
+     * @return application config
+     */
+    private static ApplicationConfig parseConfig(String configInfo) {
+        if (StringUtils.isNotBlank(configInfo) && configInfo.trim().startsWith("{")) {
+            return JsonUtils.parseObj(configInfo, ApplicationConfig.class);
+        }
+        ApplicationConfig applicationConfig = new ApplicationConfig();
+        applicationConfig.setRouteRules(JsonUtils.parseObj(configInfo, new TypeReference<List<ApplicationRouteRule>>() {
+        }));
+        return applicationConfig;
+    }
+
+    /**
+     * check rate limit rule, the invalid rule is ignored
+     *
+     * @param rule rate limit rule
+     * @return true if valid
+     */
+    private static boolean isValid(ApplicationRateLimitRule rule) {
+        if (StringUtils.isBlank(rule.getApplicationName()) || rule.getLimit() <= 0 || rule.getWindow() <= 0) {
+            logger.warn("invalid rate limit rule of [{}] is ignored, limit: {}, window: {}",
+                    rule.getApplicationName(), rule.getLimit(), rule.getWindow());
+            return false;
+        }
+        return true;
     }
 }
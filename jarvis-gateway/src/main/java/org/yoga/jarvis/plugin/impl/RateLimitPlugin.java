@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.plugin.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.yoga.jarvis.cache.ApplicationRateLimitRuleCache;
+import org.yoga.jarvis.chain.PluginChain;
+import org.yoga.jarvis.config.ServerConfigs;
+import org.yoga.jarvis.limiter.RateLimiter;
+import org.yoga.jarvis.plugin.Plugin;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * @Description: Rate Limit Plugin
+ * <p>
+ * Applies the rate limit rules of application and route from app-config, by the limiter of
+ * {@link ServerConfigs#getRateLimiterType()} unless the rule sets its own. The limiters never block, a rejected request
+ * is answered 429 at once on the event loop, and the permits it took from the other limiters are given back.
+ * @Author: yoga
+ * @Date: 2026/10/19 02:20
+ */
+public class RateLimitPlugin implements Plugin {
+
+    protected static final Logger logger = LoggerFactory.getLogger(RateLimitPlugin.class);
+
+    /**
+     * too many requests
+     */
+    private static final byte[] TOO_MANY_REQUESTS_RESULT = "{\"code\":429,\"message\":\"too many requests\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Gateway Server Configs
+     */
+    private final ServerConfigs serverConfigs;
+
+    public RateLimitPlugin(ServerConfigs serverConfigs) {
+        this.serverConfigs = serverConfigs;
+    }
+
+    @Override
+    public Integer order() {
+        return Integer.MIN_VALUE + 1;
+    }
+
+    @Override
+    public String name() {
+        return "RateLimit";
+    }
+
+    @Override
+    public Mono<Void> execute(ServerWebExchange exchange, PluginChain pluginChain) {
+        String appName = pluginChain.getAppName();
+        // request path format: /[appName]/path
+        String path = exchange.getRequest().getPath().value().substring(appName.length() + 1);
+        List<RateLimiter> rateLimiters = ApplicationRateLimitRuleCache.getRateLimiters(appName, path,
+                serverConfigs.getRateLimiterType());
+        for (int i = 0; i < rateLimiters.size(); i++) {
+            if (!rateLimiters.get(i).tryAcquire()) {
+                // give back the permits taken by the earlier limiters, the request is not admitted by them
+                for (int j = 0; j < i; j++) {
+                    rateLimiters.get(j).release();
+                }
+                logger.debug("request of [{}] {} is rate limited", appName, path);
+                return tooManyRequests(exchange.getResponse());
+            }
+        }
+        return pluginChain.execute(exchange, pluginChain);
+    }
+
+    private static Mono<Void> tooManyRequests(ServerHttpResponse response) {
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(TOO_MANY_REQUESTS_RESULT)));
+    }
+}
@@ -94,7 +94,7 @@ public class RoutePlugin implements Plugin {
 
     @Override
     public Integer order() {
-        return Integer.MIN_VALUE + 1;
+        return Integer.MIN_VALUE + 2;
     }
 
     @Override
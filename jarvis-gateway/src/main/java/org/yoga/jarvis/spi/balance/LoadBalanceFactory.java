@@ -19,6 +19,7 @@ package org.yoga.jarvis.spi.balance;
 import org.yoga.jarvis.CacheHandler;
 import org.yoga.jarvis.GuavaCacheHandler;
 import org.yoga.jarvis.exception.JarvisException;
+import org.yoga.jarvis.key.CompositeKey;
 import org.yoga.jarvis.spi.LoadBalance;
 import org.yoga.jarvis.util.Assert;
 
@@ -31,7 +32,7 @@ import java.util.ServiceLoader;
  */
 public class LoadBalanceFactory {
 
-    private static final CacheHandler<String, LoadBalance> LOAD_BALANCE_CACHE = new GuavaCacheHandler<>(8, 32, 24 * 60 * 60);
+    private static final CacheHandler<CompositeKey, LoadBalance> LOAD_BALANCE_CACHE = new GuavaCacheHandler<>(8, 32, 24 * 60 * 60);
 
     private LoadBalanceFactory() {
     }
@@ -45,7 +46,7 @@ public class LoadBalanceFactory {
      * @return the instance of load balance
      */
     public static LoadBalance getInstance(final String name, String appName, String version) {
-        return LOAD_BALANCE_CACHE.get(appName + ":" + version, k -> getLoadBalance(name));
+        return LOAD_BALANCE_CACHE.get(CompositeKey.of(appName, version), k -> getLoadBalance(name));
     }
 
     /**
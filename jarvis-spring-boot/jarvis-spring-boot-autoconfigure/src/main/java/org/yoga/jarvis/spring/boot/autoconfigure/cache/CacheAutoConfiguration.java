@@ -16,15 +16,29 @@
 
 package org.yoga.jarvis.spring.boot.autoconfigure.cache;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.yoga.jarvis.AbstractCacheHandler;
 import org.yoga.jarvis.CacheHandler;
 import org.yoga.jarvis.CaffeineCacheHandler;
 import org.yoga.jarvis.GuavaCacheHandler;
+import org.yoga.jarvis.ShardedRedisCacheHandler;
+import org.yoga.jarvis.TimeWheelCacheHandler;
+import org.yoga.jarvis.bean.CacheConfigs;
+import org.yoga.jarvis.bean.RedisConnectionConfigs;
+import org.yoga.jarvis.codec.StringCacheCodec;
+import org.yoga.jarvis.removal.CacheRemovalListener;
+import org.yoga.jarvis.util.Assert;
+import org.yoga.jarvis.weigher.Weigher;
+
+import java.util.Map;
 
 /**
  * @Description: cache auto configure
@@ -38,8 +52,23 @@ public class CacheAutoConfiguration {
 
 	private final CacheProperties cacheProperties;
 
-	public CacheAutoConfiguration(CacheProperties cacheProperties) {
+	/**
+	 * listener of removed entries, null if there is no CacheRemovalListener bean
+	 */
+	private final CacheRemovalListener<Object, Object> removalListener;
+
+	/**
+	 * weigher of entries, null if there is no Weigher bean
+	 */
+	private final Weigher<Object, Object> weigher;
+
+	@SuppressWarnings("unchecked")
+	public CacheAutoConfiguration(CacheProperties cacheProperties,
+								  ObjectProvider<CacheRemovalListener<?, ?>> removalListenerProvider,
+								  ObjectProvider<Weigher<?, ?>> weigherProvider) {
 		this.cacheProperties = cacheProperties;
+		this.removalListener = (CacheRemovalListener<Object, Object>) removalListenerProvider.getIfAvailable();
+		this.weigher = (Weigher<Object, Object>) weigherProvider.getIfAvailable();
 	}
 
 	/**
@@ -50,18 +79,105 @@ public class CacheAutoConfiguration {
 	@Bean("guavaCacheHandler")
 	@ConditionalOnMissingBean(GuavaCacheHandler.class)
 	GuavaCacheHandler guavaCacheHandler() {
-		return new GuavaCacheHandler(cacheProperties.getInitialCapacity(), cacheProperties.getMaximumSize(), cacheProperties.getExpireIntervalSeconds());
+		return new GuavaCacheHandler<>(trans2CacheConfigs(cacheProperties));
 	}
 
 	/**
-	 * create CaffeineCacheHandler Bean
+	 * create CaffeineCacheHandler Bean, the primary one used by {@code @JarvisCacheable} without a cacheHandler
 	 *
 	 * @return CaffeineCacheHandler {@link org.yoga.jarvis.CaffeineCacheHandler}
 	 */
 	@Bean("caffeineCacheHandler")
+	@Primary
 	@ConditionalOnMissingBean(CaffeineCacheHandler.class)
 	CaffeineCacheHandler caffeineCacheHandler() {
-		return new CaffeineCacheHandler(cacheProperties.getInitialCapacity(), cacheProperties.getMaximumSize(), cacheProperties.getExpireIntervalSeconds());
+		return new CaffeineCacheHandler<>(trans2CacheConfigs(cacheProperties));
+	}
+
+	/**
+	 * create TimeWheelCacheHandler Bean, only when {@code jarvis.cache.time-wheel-enabled=true}
+	 *
+	 * @return TimeWheelCacheHandler {@link org.yoga.jarvis.TimeWheelCacheHandler}
+	 */
+	@Bean("timeWheelCacheHandler")
+	@ConditionalOnMissingBean(TimeWheelCacheHandler.class)
+	@ConditionalOnProperty(prefix = "jarvis.cache", name = "time-wheel-enabled", havingValue = "true")
+	TimeWheelCacheHandler timeWheelCacheHandler() {
+		return new TimeWheelCacheHandler<>(trans2CacheConfigs(cacheProperties));
+	}
+
+	/**
+	 * create ShardedRedisCacheHandler Bean, only when redis nodes are configured
+	 * the values are strings, define a ShardedRedisCacheHandler bean for other codecs
+	 *
+	 * @return ShardedRedisCacheHandler {@link org.yoga.jarvis.ShardedRedisCacheHandler}
+	 */
+	@Bean(name = "shardedRedisCacheHandler", destroyMethod = "close")
+	@ConditionalOnMissingBean(ShardedRedisCacheHandler.class)
+	@ConditionalOnProperty(prefix = "jarvis.cache", name = "redis-nodes")
+	ShardedRedisCacheHandler shardedRedisCacheHandler() {
+		return new ShardedRedisCacheHandler<>(cacheProperties.getRedisNodes(), cacheProperties.getRedisNamespace(),
+				cacheProperties.getExpireIntervalSeconds(), cacheProperties.getNegativeTtlSeconds(), StringCacheCodec.INSTANCE,
+				cacheProperties.getRedisVirtualNodes(), trans2RedisConnectionConfigs(cacheProperties));
+	}
+
+	/**
+	 * CacheProperties to Cache Configs
+	 *
+	 * @param cacheProperties cacheProperties {@link CacheProperties}
+	 * @return cacheConfigs {@link CacheConfigs}
+	 */
+	CacheConfigs<Object, Object> trans2CacheConfigs(CacheProperties cacheProperties) {
+		CacheConfigs<Object, Object> cacheConfigs = new CacheConfigs<>();
+		cacheConfigs.setInitialCapacity(cacheProperties.getInitialCapacity());
+		cacheConfigs.setMaximumSize(cacheProperties.getMaximumSize());
+		cacheConfigs.setMaximumWeight(cacheProperties.getMaximumWeight());
+		Assert.isTrue(cacheProperties.getMaximumWeight() == 0 || weigher != null,
+				"a Weigher bean is required when jarvis.cache.maximum-weight is greater than 0!");
+		if (weigher != null) {
+			cacheConfigs.setWeigher(weigher);
+		}
+		cacheConfigs.setExpireIntervalSeconds(cacheProperties.getExpireIntervalSeconds());
+		cacheConfigs.setRefreshAfterWriteSeconds(cacheProperties.getRefreshAfterWriteSeconds());
+		cacheConfigs.setNegativeTtlSeconds(cacheProperties.getNegativeTtlSeconds());
+		cacheConfigs.setRemovalListener(removalListener);
+		cacheConfigs.setRemovalQueueCapacity(cacheProperties.getRemovalQueueCapacity());
+		cacheConfigs.setRemovalBatchSize(cacheProperties.getRemovalBatchSize());
+		return cacheConfigs;
+	}
+
+	/**
+	 * CacheProperties to Redis Connection Configs
+	 *
+	 * @param cacheProperties cacheProperties {@link CacheProperties}
+	 * @return redisConnectionConfigs {@link RedisConnectionConfigs}
+	 */
+	RedisConnectionConfigs trans2RedisConnectionConfigs(CacheProperties cacheProperties) {
+		RedisConnectionConfigs connectionConfigs = new RedisConnectionConfigs();
+		connectionConfigs.setPoolSize(cacheProperties.getRedisPoolSize());
+		connectionConfigs.setTimeoutMillis(cacheProperties.getRedisTimeoutMillis());
+		connectionConfigs.setHealthCheckIntervalSeconds(cacheProperties.getRedisHealthCheckIntervalSeconds());
+		return connectionConfigs;
+	}
+
+	/**
+	 * cache metrics configure, enabled when micrometer is present
+	 */
+	@Configuration
+	@ConditionalOnClass(MeterBinder.class)
+	static class CacheMetricsConfiguration {
+
+		/**
+		 * create CacheMetricsBinder Bean, binding the stats of all CacheHandler beans
+		 *
+		 * @param cacheHandlers CacheHandler beans, key is bean name
+		 * @return CacheMetricsBinder {@link CacheMetricsBinder}
+		 */
+		@Bean("cacheMetricsBinder")
+		@ConditionalOnMissingBean(CacheMetricsBinder.class)
+		CacheMetricsBinder cacheMetricsBinder(Map<String, CacheHandler<?, ?>> cacheHandlers) {
+			return new CacheMetricsBinder(cacheHandlers);
+		}
 	}
 
 }
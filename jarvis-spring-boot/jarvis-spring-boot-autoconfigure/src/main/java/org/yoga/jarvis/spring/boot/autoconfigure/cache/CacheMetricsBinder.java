@@ -0,0 +1,166 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.spring.boot.autoconfigure.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.yoga.jarvis.CacheHandler;
+import org.yoga.jarvis.stats.CacheStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Description: bind the statistics of cache handlers to micrometer, tagged by the bean name of handler
+ * @Author: yoga
+ * @Date: 2026/10/18 16:58
+ */
+public class CacheMetricsBinder implements MeterBinder {
+
+	/**
+	 * the prefix of meter names
+	 */
+	private static final String PREFIX = "jarvis.cache";
+
+	/**
+	 * how long a snapshot is shared by the meters, ns
+	 */
+	private static final long SNAPSHOT_TTL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * the snapshots of cache handlers, key is bean name
+	 * held here because meters only keep a weak reference to their state
+	 */
+	private final Map<String, Snapshot> snapshots;
+
+	public CacheMetricsBinder(Map<String, CacheHandler<?, ?>> cacheHandlers) {
+		this.snapshots = new LinkedHashMap<>(cacheHandlers.size());
+		cacheHandlers.forEach((name, handler) -> snapshots.put(name, new Snapshot(handler)));
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		snapshots.forEach((name, snapshot) -> bindTo(registry, name, snapshot));
+	}
+
+	private void bindTo(MeterRegistry registry, String name, Snapshot snapshot) {
+		Tags tags = Tags.of("cache", name);
+		FunctionCounter.builder(PREFIX + ".gets", snapshot, h -> h.get().getHitCount())
+				.tags(tags).tag("result", "hit")
+				.description("The number of lookups that returned a cached value")
+				.register(registry);
+		FunctionCounter.builder(PREFIX + ".gets", snapshot, h -> h.get().getMissCount())
+				.tags(tags).tag("result", "miss")
+				.description("The number of lookups that found nothing")
+				.register(registry);
+		FunctionCounter.builder(PREFIX + ".negative.hits", snapshot, h -> h.get().getNegativeHitCount())
+				.tags(tags)
+				.description("The number of hits that returned a cached absence")
+				.register(registry);
+		FunctionCounter.builder(PREFIX + ".loads", snapshot, h -> h.get().getLoadSuccessCount())
+				.tags(tags).tag("result", "success")
+				.description("The number of loads that returned a value")
+				.register(registry);
+		FunctionCounter.builder(PREFIX + ".loads", snapshot, h -> h.get().getLoadFailureCount())
+				.tags(tags).tag("result", "failure")
+				.description("The number of loads that threw an exception or returned nothing")
+				.register(registry);
+		FunctionTimer.builder(PREFIX + ".load.duration", snapshot,
+						h -> {
+							CacheStats stats = h.get();
+							return stats.getLoadSuccessCount() + stats.getLoadFailureCount();
+						},
+						h -> h.get().getTotalLoadTime(), TimeUnit.NANOSECONDS)
+				.tags(tags)
+				.description("The time spent loading")
+				.register(registry);
+		long[] bounds = CacheStats.getLoadLatencyBoundsMillis();
+		for (int i = 0; i <= bounds.length; i++) {
+			int bucket = i;
+			// cumulative, the number of loads not slower than the bound
+			FunctionCounter.builder(PREFIX + ".load.latency", snapshot, h -> {
+						long[] counts = h.get().getLoadLatencyCounts();
+						long count = 0;
+						for (int j = 0; j <= bucket; j++) {
+							count += counts[j];
+						}
+						return count;
+					})
+					.tags(tags).tag("le", i < bounds.length ? String.valueOf(bounds[i]) : "+Inf")
+					.baseUnit("loads")
+					.description("The number of loads by latency upper bound in milliseconds")
+					.register(registry);
+		}
+		FunctionCounter.builder(PREFIX + ".evictions", snapshot, h -> h.get().getEvictionCount())
+				.tags(tags)
+				.description("The number of entries evicted by size or expiration")
+				.register(registry);
+		Gauge.builder(PREFIX + ".size", snapshot, h -> h.get().getSize())
+				.tags(tags)
+				.description("The number of entries")
+				.register(registry);
+		Gauge.builder(PREFIX + ".hit.rate", snapshot, h -> h.get().getHitRate())
+				.tags(tags)
+				.description("The ratio of lookups that returned a cached value")
+				.register(registry);
+	}
+
+	/**
+	 * one statistics snapshot shared by all meters of a handler during a scrape, so a scrape takes one snapshot
+	 * per handler instead of one per meter
+	 */
+	private static final class Snapshot {
+
+		/**
+		 * cache handler
+		 */
+		private final CacheHandler<?, ?> handler;
+
+		/**
+		 * the last snapshot
+		 */
+		private CacheStats stats;
+
+		/**
+		 * the time of the last snapshot, ns
+		 */
+		private long takenAt;
+
+		private Snapshot(CacheHandler<?, ?> handler) {
+			this.handler = handler;
+		}
+
+		/**
+		 * the last snapshot, taken again if it is older than {@link #SNAPSHOT_TTL_NANOS}
+		 *
+		 * @return statistics
+		 */
+		private synchronized CacheStats get() {
+			long now = System.nanoTime();
+			if (stats == null || now - takenAt >= SNAPSHOT_TTL_NANOS) {
+				stats = handler.snapshot();
+				takenAt = now;
+			}
+			return stats;
+		}
+	}
+}
@@ -18,6 +18,8 @@ package org.yoga.jarvis.spring.boot.autoconfigure.cache;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.StringJoiner;
 
 /**
@@ -38,11 +40,74 @@ public class CacheProperties {
 	 */
 	private int maximumSize = 1024;
 
+	/**
+	 * maximum of the total weight of entries, 0 if disabled
+	 * the entries are weighed by the Weigher bean, or by their estimated bytes if there is none
+	 * the cache is bounded by weight instead of maximumSize when it is enabled
+	 */
+	private long maximumWeight;
+
 	/**
 	 * expire interval seconds of cache
 	 */
 	private int expireIntervalSeconds = 24 * 60 * 60;
 
+	/**
+	 * the age in seconds after which a read returns the stale value and triggers an async refresh, 0 if disabled
+	 */
+	private int refreshAfterWriteSeconds;
+
+	/**
+	 * the time to live in seconds of a cached absence, i.e. the loader returned null, 0 if absences are not cached
+	 */
+	private int negativeTtlSeconds;
+
+	/**
+	 * capacity of the queue of removal notifications, only used when a CacheRemovalListener bean exists
+	 */
+	private int removalQueueCapacity = 1024;
+
+	/**
+	 * maximum of removal notifications delivered per batch
+	 */
+	private int removalBatchSize = 64;
+
+	/**
+	 * whether to create the TimeWheelCacheHandler bean, which runs a shared sweeper thread
+	 */
+	private boolean timeWheelEnabled;
+
+	/**
+	 * redis nodes of the sharded redis cache, host:port, comma separated
+	 * the ShardedRedisCacheHandler bean is created only when it is set
+	 */
+	private List<String> redisNodes = new ArrayList<>();
+
+	/**
+	 * the prefix of redis keys
+	 */
+	private String redisNamespace = "jarvis";
+
+	/**
+	 * the number of points per redis node on the consistent hash ring
+	 */
+	private int redisVirtualNodes = 160;
+
+	/**
+	 * the number of connections per redis node
+	 */
+	private int redisPoolSize = 1;
+
+	/**
+	 * the timeout of redis commands, ms
+	 */
+	private long redisTimeoutMillis = 2000;
+
+	/**
+	 * the interval of redis PING health checks, s
+	 */
+	private long redisHealthCheckIntervalSeconds = 10;
+
 	public int getInitialCapacity() {
 		return initialCapacity;
 	}
@@ -61,6 +126,15 @@ public class CacheProperties {
 		return this;
 	}
 
+	public long getMaximumWeight() {
+		return maximumWeight;
+	}
+
+	public CacheProperties setMaximumWeight(long maximumWeight) {
+		this.maximumWeight = maximumWeight;
+		return this;
+	}
+
 	public int getExpireIntervalSeconds() {
 		return expireIntervalSeconds;
 	}
@@ -70,12 +144,123 @@ public class CacheProperties {
 		return this;
 	}
 
+	public int getRefreshAfterWriteSeconds() {
+		return refreshAfterWriteSeconds;
+	}
+
+	public CacheProperties setRefreshAfterWriteSeconds(int refreshAfterWriteSeconds) {
+		this.refreshAfterWriteSeconds = refreshAfterWriteSeconds;
+		return this;
+	}
+
+	public int getNegativeTtlSeconds() {
+		return negativeTtlSeconds;
+	}
+
+	public CacheProperties setNegativeTtlSeconds(int negativeTtlSeconds) {
+		this.negativeTtlSeconds = negativeTtlSeconds;
+		return this;
+	}
+
+	public int getRemovalQueueCapacity() {
+		return removalQueueCapacity;
+	}
+
+	public CacheProperties setRemovalQueueCapacity(int removalQueueCapacity) {
+		this.removalQueueCapacity = removalQueueCapacity;
+		return this;
+	}
+
+	public int getRemovalBatchSize() {
+		return removalBatchSize;
+	}
+
+	public CacheProperties setRemovalBatchSize(int removalBatchSize) {
+		this.removalBatchSize = removalBatchSize;
+		return this;
+	}
+
+	public boolean isTimeWheelEnabled() {
+		return timeWheelEnabled;
+	}
+
+	public CacheProperties setTimeWheelEnabled(boolean timeWheelEnabled) {
+		this.timeWheelEnabled = timeWheelEnabled;
+		return this;
+	}
+
+	public List<String> getRedisNodes() {
+		return redisNodes;
+	}
+
+	public CacheProperties setRedisNodes(List<String> redisNodes) {
+		this.redisNodes = redisNodes;
+		return this;
+	}
+
+	public String getRedisNamespace() {
+		return redisNamespace;
+	}
+
+	public CacheProperties setRedisNamespace(String redisNamespace) {
+		this.redisNamespace = redisNamespace;
+		return this;
+	}
+
+	public int getRedisVirtualNodes() {
+		return redisVirtualNodes;
+	}
+
+	public CacheProperties setRedisVirtualNodes(int redisVirtualNodes) {
+		this.redisVirtualNodes = redisVirtualNodes;
+		return this;
+	}
+
+	public int getRedisPoolSize() {
+		return redisPoolSize;
+	}
+
+	public CacheProperties setRedisPoolSize(int redisPoolSize) {
+		this.redisPoolSize = redisPoolSize;
+		return this;
+	}
+
+	public long getRedisTimeoutMillis() {
+		return redisTimeoutMillis;
+	}
+
+	public CacheProperties setRedisTimeoutMillis(long redisTimeoutMillis) {
+		this.redisTimeoutMillis = redisTimeoutMillis;
+		return this;
+	}
+
+	public long getRedisHealthCheckIntervalSeconds() {
+		return redisHealthCheckIntervalSeconds;
+	}
+
+	public CacheProperties setRedisHealthCheckIntervalSeconds(long redisHealthCheckIntervalSeconds) {
+		this.redisHealthCheckIntervalSeconds = redisHealthCheckIntervalSeconds;
+		return this;
+	}
+
 	@Override
 	public String toString() {
 		return new StringJoiner(", ", CacheProperties.class.getSimpleName() + "[", "]")
 				.add("initialCapacity=" + initialCapacity)
 				.add("maximumSize=" + maximumSize)
+				.add("maximumWeight=" + maximumWeight)
 				.add("expireIntervalSeconds=" + expireIntervalSeconds)
+				.add("refreshAfterWriteSeconds=" + refreshAfterWriteSeconds)
+				.add("negativeTtlSeconds=" + negativeTtlSeconds)
+				.add("removalQueueCapacity=" + removalQueueCapacity)
+				.add("removalBatchSize=" + removalBatchSize)
+				.add("timeWheelEnabled=" + timeWheelEnabled)
+				.add("redisNodes=" + redisNodes)
+				.add("redisNamespace='" + redisNamespace + "'")
+				.add("redisVirtualNodes=" + redisVirtualNodes)
+				.add("redisPoolSize=" + redisPoolSize)
+				.add("redisTimeoutMillis=" + redisTimeoutMillis)
+				.add("redisHealthCheckIntervalSeconds=" + redisHealthCheckIntervalSeconds)
 				.toString();
 	}
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.spring.boot.autoconfigure.cache;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.config.AopConfigUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.type.AnnotationMetadata;
+import org.yoga.jarvis.CacheHandler;
+import org.yoga.jarvis.annotation.JarvisCacheable;
+
+/**
+ * @Description: {@link JarvisCacheable} auto configure
+ * <p>
+ * The annotated methods are proxied by spring aop without aspectj, disabled by
+ * {@code jarvis.cache.cacheable-enabled=false}, and only when there is a CacheHandler bean.
+ * @Author: yoga
+ * @Date: 2026/10/18 23:30
+ */
+@Configuration
+@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+@AutoConfigureAfter(CacheAutoConfiguration.class)
+@ConditionalOnClass({CacheHandler.class, JarvisCacheable.class, MethodInterceptor.class})
+@ConditionalOnBean(CacheHandler.class)
+@ConditionalOnProperty(prefix = "jarvis.cache", name = "cacheable-enabled", havingValue = "true", matchIfMissing = true)
+@Import(CacheableAutoConfiguration.AutoProxyRegistrar.class)
+public class CacheableAutoConfiguration {
+
+	/**
+	 * create JarvisCacheableInterceptor Bean
+	 *
+	 * @return JarvisCacheableInterceptor {@link JarvisCacheableInterceptor}
+	 */
+	@Bean("jarvisCacheableInterceptor")
+	@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+	@ConditionalOnMissingBean(JarvisCacheableInterceptor.class)
+	static JarvisCacheableInterceptor jarvisCacheableInterceptor() {
+		return new JarvisCacheableInterceptor();
+	}
+
+	/**
+	 * create the advisor of the methods annotated by {@link JarvisCacheable}, on the class or its interfaces
+	 *
+	 * @param interceptor JarvisCacheableInterceptor
+	 * @return advisor
+	 */
+	@Bean("jarvisCacheableAdvisor")
+	@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+	static DefaultPointcutAdvisor jarvisCacheableAdvisor(JarvisCacheableInterceptor interceptor) {
+		return new DefaultPointcutAdvisor(new AnnotationMatchingPointcut(null, JarvisCacheable.class, true),
+				interceptor);
+	}
+
+	/**
+	 * register the auto proxy creator of infrastructure advisors if there is none
+	 */
+	static class AutoProxyRegistrar implements ImportBeanDefinitionRegistrar {
+
+		@Override
+		public void registerBeanDefinitions(AnnotationMetadata importingClassMetadata,
+											BeanDefinitionRegistry registry) {
+			AopConfigUtils.registerAutoProxyCreatorIfNecessary(registry);
+		}
+	}
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.spring.boot.autoconfigure.cache;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.yoga.jarvis.AbstractCacheHandler;
+import org.yoga.jarvis.CacheHandler;
+import org.yoga.jarvis.annotation.JarvisCacheable;
+import org.yoga.jarvis.key.CompositeKey;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * @Description: cache the results of the methods annotated by {@link JarvisCacheable}
+ * <p>
+ * A sync method without ttl is loaded by {@link CacheHandler#get(Object, Function)}, the handler runs one load per
+ * key. A method with ttl or returning a future is loaded by this interceptor, one invocation per key at a time, the
+ * concurrent callers share its future.
+ * <p>
+ * The handlers of the annotated methods of the beans are resolved once the singletons are created, a missing handler
+ * or a method with ttl whose handler can not set the ttl per entry fails the startup instead of the first call.
+ * @Author: yoga
+ * @Date: 2026/10/18 23:15
+ */
+public class JarvisCacheableInterceptor implements MethodInterceptor, BeanFactoryAware, SmartInitializingSingleton {
+
+	private final SpelExpressionParser parser = new SpelExpressionParser();
+
+	private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+
+	/**
+	 * the operations of methods, resolved once per method
+	 */
+	private final Map<Method, CacheableOperation> operations = new ConcurrentHashMap<>();
+
+	/**
+	 * the invocations in flight, at most one per handler and key
+	 */
+	private final ConcurrentMap<CompositeKey, CompletableFuture<Object>> loadings = new ConcurrentHashMap<>();
+
+	private BeanFactory beanFactory;
+
+	@Override
+	public void setBeanFactory(BeanFactory beanFactory) {
+		this.beanFactory = beanFactory;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		if (!(beanFactory instanceof ListableBeanFactory)) {
+			return;
+		}
+		ListableBeanFactory listableBeanFactory = (ListableBeanFactory) beanFactory;
+		for (String beanName : listableBeanFactory.getBeanDefinitionNames()) {
+			Class<?> beanType = listableBeanFactory.getType(beanName, false);
+			if (beanType != null) {
+				ReflectionUtils.doWithMethods(ClassUtils.getUserClass(beanType), this::validate);
+			}
+		}
+	}
+
+	/**
+	 * resolve the handler of the annotated method, and validate it if the method sets a ttl
+	 *
+	 * @param method method
+	 */
+	private void validate(Method method) {
+		CacheableOperation operation = operations.computeIfAbsent(method, this::resolve);
+		if (operation == null) {
+			return;
+		}
+		CacheHandler<Object, Object> handler = operation.cacheHandler();
+		if (operation.ttlSeconds <= 0) {
+			return;
+		}
+		if (!(handler instanceof AbstractCacheHandler) || !((AbstractCacheHandler<?, ?>) handler).isTtlSupported()) {
+			throw new IllegalStateException("@JarvisCacheable of " + method + " sets ttlSeconds, but "
+					+ handler.getClass().getSimpleName() + " can not set the ttl per entry!");
+		}
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		Class<?> targetClass = invocation.getThis() == null ? null : AopUtils.getTargetClass(invocation.getThis());
+		Method method = AopUtils.getMostSpecificMethod(invocation.getMethod(), targetClass);
+		CacheableOperation operation = operations.computeIfAbsent(method, this::resolve);
+		if (operation == null) {
+			return invocation.proceed();
+		}
+		Object key = operation.key(method, invocation.getArguments());
+		CacheHandler<Object, Object> cacheHandler = operation.cacheHandler();
+		if (operation.async) {
+			Object cached = cacheHandler.getIfPresent(key);
+			if (cached != null) {
+				return CompletableFuture.completedFuture(cached);
+			}
+			return loadOnce(operation, key, () -> (CompletionStage<?>) invocation.proceed());
+		}
+		if (operation.ttlSeconds <= 0) {
+			try {
+				return cacheHandler.get(key, k -> {
+					try {
+						return invocation.proceed();
+					} catch (Throwable e) {
+						throw new ThrowableWrapper(e);
+					}
+				});
+			} catch (ThrowableWrapper e) {
+				throw e.getCause();
+			}
+		}
+		Object cached = cacheHandler.getIfPresent(key);
+		if (cached != null) {
+			return cached;
+		}
+		try {
+			return loadOnce(operation, key, () -> CompletableFuture.completedFuture(invocation.proceed())).join();
+		} catch (CompletionException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * invoke once per key, the result is put into cache when completed
+	 *
+	 * @param operation operation
+	 * @param key       key
+	 * @param invoker   invoker of method
+	 * @return the future of result, not shared with other callers
+	 * @throws Throwable the exception thrown by invoker synchronously
+	 */
+	private CompletableFuture<Object> loadOnce(CacheableOperation operation, Object key, Invoker invoker)
+			throws Throwable {
+		CompositeKey loadingKey = CompositeKey.of(operation.cacheHandler(), key);
+		CompletableFuture<Object> loading = new CompletableFuture<>();
+		CompletableFuture<Object> existing = loadings.putIfAbsent(loadingKey, loading);
+		if (existing != null) {
+			return existing.thenApply(Function.identity());
+		}
+		CompletionStage<?> stage;
+		try {
+			stage = invoker.invoke();
+		} catch (Throwable e) {
+			loadings.remove(loadingKey, loading);
+			loading.completeExceptionally(e);
+			throw e;
+		}
+		if (stage == null) {
+			loadings.remove(loadingKey, loading);
+			loading.complete(null);
+			return null;
+		}
+		stage.whenComplete((value, e) -> {
+			try {
+				if (e == null && value != null) {
+					operation.put(key, value);
+				}
+			} finally {
+				loadings.remove(loadingKey, loading);
+				if (e != null) {
+					loading.completeExceptionally(e);
+				} else {
+					loading.complete(value);
+				}
+			}
+		});
+		return loading.thenApply(Function.identity());
+	}
+
+	/**
+	 * resolve the operation of method
+	 *
+	 * @param method method
+	 * @return operation, null if not annotated
+	 */
+	private CacheableOperation resolve(Method method) {
+		JarvisCacheable cacheable = AnnotatedElementUtils.findMergedAnnotation(method, JarvisCacheable.class);
+		if (cacheable == null) {
+			return null;
+		}
+		String cacheName = cacheable.cacheName().isEmpty()
+				? method.getDeclaringClass().getName() + "." + method.getName() : cacheable.cacheName();
+		Expression key = cacheable.key().isEmpty() ? null : parser.parseExpression(cacheable.key());
+		boolean async = CompletionStage.class.isAssignableFrom(method.getReturnType());
+		return new CacheableOperation(cacheable.cacheHandler(), cacheName, key, cacheable.ttlSeconds(), async);
+	}
+
+	/**
+	 * Invoker of the intercepted method
+	 */
+	@FunctionalInterface
+	private interface Invoker {
+
+		CompletionStage<?> invoke() throws Throwable;
+	}
+
+	/**
+	 * Carrier of the exception thrown by the intercepted method through {@link CacheHandler#get(Object, Function)}
+	 */
+	private static final class ThrowableWrapper extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private ThrowableWrapper(Throwable cause) {
+			super(cause);
+		}
+	}
+
+	/**
+	 * the cacheable operation of a method
+	 */
+	private final class CacheableOperation {
+
+		/**
+		 * the bean name of handler, empty if the primary or only one
+		 */
+		private final String cacheHandlerName;
+
+		/**
+		 * the first part of keys
+		 */
+		private final String cacheName;
+
+		/**
+		 * key expression, null if all arguments
+		 */
+		private final Expression key;
+
+		/**
+		 * ttl, s, not greater than 0 if the expire interval of handler
+		 */
+		private final long ttlSeconds;
+
+		/**
+		 * whether the method returns a future
+		 */
+		private final boolean async;
+
+		/**
+		 * the handler, resolved on first use
+		 */
+		private volatile CacheHandler<Object, Object> cacheHandler;
+
+		private CacheableOperation(String cacheHandlerName, String cacheName, Expression key, long ttlSeconds,
+								   boolean async) {
+			this.cacheHandlerName = cacheHandlerName;
+			this.cacheName = cacheName;
+			this.key = key;
+			this.ttlSeconds = ttlSeconds;
+			this.async = async;
+		}
+
+		private Object key(Method method, Object[] arguments) {
+			if (key == null) {
+				return CompositeKey.prefixed(cacheName, arguments);
+			}
+			MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(null, method, arguments,
+					parameterNameDiscoverer);
+			return CompositeKey.of(cacheName, key.getValue(context));
+		}
+
+		@SuppressWarnings("unchecked")
+		private CacheHandler<Object, Object> cacheHandler() {
+			CacheHandler<Object, Object> handler = cacheHandler;
+			if (handler == null) {
+				if (cacheHandlerName.isEmpty()) {
+					handler = beanFactory.getBeanProvider(CacheHandler.class).getIfUnique();
+					if (handler == null) {
+						throw new IllegalStateException("there is no primary or only CacheHandler bean for @JarvisCacheable"
+								+ " of cache [" + cacheName + "], mark one @Primary or set cacheHandler of the annotation!");
+					}
+				} else {
+					handler = beanFactory.getBean(cacheHandlerName, CacheHandler.class);
+				}
+				cacheHandler = handler;
+			}
+			return handler;
+		}
+
+		@SuppressWarnings("unchecked")
+		private void put(Object key, Object value) {
+			CacheHandler<Object, Object> handler = cacheHandler();
+			// a handler which can not set the ttl per entry is rejected at startup
+			if (ttlSeconds > 0 && handler instanceof AbstractCacheHandler) {
+				((AbstractCacheHandler<Object, Object>) handler).put(key, value, ttlSeconds, TimeUnit.SECONDS);
+			} else {
+				handler.put(key, value);
+			}
+		}
+	}
+}
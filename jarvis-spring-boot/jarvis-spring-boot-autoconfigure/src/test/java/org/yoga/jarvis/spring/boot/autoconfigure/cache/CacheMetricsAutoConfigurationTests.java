@@ -0,0 +1,67 @@
+/*
+ *  Copyright 2022 yoga
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.yoga.jarvis.spring.boot.autoconfigure.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.io.support.SpringFactoriesLoader;
+import org.yoga.jarvis.CacheHandler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @Description: the micrometer binding of {@link CacheAutoConfiguration}
+ * @Author: yoga
+ * @Date: 2026/10/19 10:20
+ */
+class CacheMetricsAutoConfigurationTests {
+
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+			.withConfiguration(AutoConfigurations.of(MetricsAutoConfiguration.class,
+					SimpleMetricsExportAutoConfiguration.class, CacheAutoConfiguration.class));
+
+	@Test
+	void registeredInSpringFactories() {
+		assertThat(SpringFactoriesLoader.loadFactoryNames(EnableAutoConfiguration.class, getClass().getClassLoader()))
+				.contains(CacheAutoConfiguration.class.getName(), CacheableAutoConfiguration.class.getName());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void bindsMetersOfCacheHandlers() {
+		contextRunner.run(context -> {
+			assertThat(context).hasSingleBean(CacheMetricsBinder.class);
+			CacheHandler<Object, Object> cacheHandler = context.getBean("guavaCacheHandler", CacheHandler.class);
+			cacheHandler.put("k", "v");
+			cacheHandler.getIfPresent("k");
+			cacheHandler.getIfPresent("absent");
+
+			MeterRegistry registry = context.getBean(MeterRegistry.class);
+			assertThat(registry.find("jarvis.cache.gets").tags("cache", "guavaCacheHandler", "result", "hit")
+					.functionCounter()).isNotNull();
+			assertThat(registry.find("jarvis.cache.size").tag("cache", "caffeineCacheHandler").gauge()).isNotNull();
+			assertThat(registry.find("jarvis.cache.size").tag("cache", "guavaCacheHandler").gauge().value())
+					.isEqualTo(1);
+		});
+	}
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.yoga.jarvis.codec.CacheCodec;
+import org.yoga.jarvis.codec.CompressingCacheCodec;
+import org.yoga.jarvis.codec.JsonCacheCodec;
+import org.yoga.jarvis.codec.SerializableCacheCodec;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Description: Benchmark of the encode/decode time and payload size of cache codecs
+ * the payload size of each codec is printed when the trial starts
+ * @Author: yoga
+ * @Date: 2026/10/18 15:52
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheCodecBenchmark {
+
+    /**
+     * the minimum length of bytes to compress
+     */
+    private static final int COMPRESS_THRESHOLD = 512;
+
+    @Param({"json", "java", "json-gzip", "json-lz4", "java-gzip", "java-lz4"})
+    private String codecName;
+
+    /**
+     * the number of items in payload
+     */
+    @Param({"4", "256"})
+    private int items;
+
+    private CacheCodec<Payload> codec;
+
+    private Payload payload;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        codec = codec(codecName);
+        payload = Payload.of(items);
+        bytes = codec.encode(payload);
+        System.out.println(codecName + " payload of " + items + " items: " + bytes.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(payload);
+    }
+
+    @Benchmark
+    public Payload decode() {
+        return codec.decode(bytes);
+    }
+
+    private static CacheCodec<Payload> codec(String name) {
+        switch (name) {
+            case "json":
+                return new JsonCacheCodec<>(Payload.class);
+            case "java":
+                return new SerializableCacheCodec<>();
+            case "json-gzip":
+                return new CompressingCacheCodec<>(new JsonCacheCodec<>(Payload.class),
+                        CompressingCacheCodec.Compression.GZIP, COMPRESS_THRESHOLD);
+            case "json-lz4":
+                return new CompressingCacheCodec<>(new JsonCacheCodec<>(Payload.class),
+                        CompressingCacheCodec.Compression.LZ4, COMPRESS_THRESHOLD);
+            case "java-gzip":
+                return new CompressingCacheCodec<>(new SerializableCacheCodec<>(),
+                        CompressingCacheCodec.Compression.GZIP, COMPRESS_THRESHOLD);
+            case "java-lz4":
+                return new CompressingCacheCodec<>(new SerializableCacheCodec<>(),
+                        CompressingCacheCodec.Compression.LZ4, COMPRESS_THRESHOLD);
+            default:
+                throw new IllegalArgumentException("unknown codec: " + name);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CacheCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * Payload
+     */
+    public static class Payload implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private long id;
+
+        private String name;
+
+        private List<Item> items;
+
+        static Payload of(int size) {
+            Payload payload = new Payload();
+            payload.setId(size);
+            payload.setName("payload-" + size);
+            List<Item> items = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                Item item = new Item();
+                item.setSku("sku-" + i);
+                item.setPrice(i * 100L);
+                item.setQuantity(i % 10);
+                items.add(item);
+            }
+            payload.setItems(items);
+            return payload;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public List<Item> getItems() {
+            return items;
+        }
+
+        public void setItems(List<Item> items) {
+            this.items = items;
+        }
+    }
+
+    /**
+     * Item of payload
+     */
+    public static class Item implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String sku;
+
+        private long price;
+
+        private int quantity;
+
+        public String getSku() {
+            return sku;
+        }
+
+        public void setSku(String sku) {
+            this.sku = sku;
+        }
+
+        public long getPrice() {
+            return price;
+        }
+
+        public void setPrice(long price) {
+            this.price = price;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+    }
+}
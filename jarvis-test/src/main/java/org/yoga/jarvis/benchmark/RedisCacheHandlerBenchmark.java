@@ -0,0 +1,111 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.yoga.jarvis.RedisCacheHandler;
+import org.yoga.jarvis.bean.RedisConnectionConfigs;
+import org.yoga.jarvis.codec.StringCacheCodec;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Description: Benchmark of the throughput of RedisCacheHandler by the number of threads and connections
+ * a redis server is required, set by -Djarvis.redis.host and -Djarvis.redis.port, localhost:6379 by default
+ * the main method runs 1 to 32 threads
+ * @Author: yoga
+ * @Date: 2026/10/18 20:50
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class RedisCacheHandlerBenchmark {
+
+    /**
+     * the number of distinct keys
+     */
+    private static final int KEYS = 10_000;
+
+    /**
+     * the number of connections
+     */
+    @Param({"1", "4", "8"})
+    private int poolSize;
+
+    private RedisCacheHandler<String, String> handler;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        RedisConnectionConfigs connectionConfigs = new RedisConnectionConfigs();
+        connectionConfigs.setPoolSize(poolSize);
+        handler = new RedisCacheHandler<>(System.getProperty("jarvis.redis.host", "localhost"),
+                Integer.getInteger("jarvis.redis.port", 6379), "jarvis-benchmark", 600,
+                StringCacheCodec.INSTANCE, connectionConfigs);
+        for (int i = 0; i < KEYS; i++) {
+            handler.put(key(i), "value-" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        handler.clear();
+        handler.close();
+    }
+
+    @Benchmark
+    public String get() {
+        return handler.getIfPresent(key(ThreadLocalRandom.current().nextInt(KEYS)));
+    }
+
+    @Benchmark
+    public void put() {
+        int i = ThreadLocalRandom.current().nextInt(KEYS);
+        handler.put(key(i), "value-" + i);
+    }
+
+    private static String key(int i) {
+        return "key-" + i;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[]{1, 2, 4, 8, 16, 32}) {
+            new Runner(new OptionsBuilder()
+                    .include(RedisCacheHandlerBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+}
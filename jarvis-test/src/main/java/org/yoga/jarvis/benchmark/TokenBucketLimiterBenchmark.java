@@ -0,0 +1,126 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.yoga.jarvis.limiter.TokenBucketLimiter;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * @Description: Benchmark of the throughput of tryAcquire, the lazy refilled {@link TokenBucketLimiter} against
+ * the former limiter refilled by a scheduler thread once per second
+ * a small rate measures the rejecting path, a huge rate measures the granting path
+ * @Author: yoga
+ * @Date: 2026/10/18 23:50
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class TokenBucketLimiterBenchmark {
+
+    @Param({"scheduled", "lazy"})
+    private String limiterName;
+
+    /**
+     * tokens per second
+     */
+    @Param({"1000", "1000000000"})
+    private int tokensPerSecond;
+
+    private BooleanSupplier limiter;
+
+    private ScheduledTokenBucketLimiter scheduled;
+
+    @Setup
+    public void setup() {
+        if ("scheduled".equals(limiterName)) {
+            scheduled = new ScheduledTokenBucketLimiter(tokensPerSecond, tokensPerSecond);
+            limiter = scheduled::tryAcquire;
+        } else {
+            limiter = new TokenBucketLimiter(tokensPerSecond, tokensPerSecond)::tryAcquire;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (scheduled != null) {
+            scheduled.scheduler.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public boolean tryAcquire() {
+        return limiter.getAsBoolean();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TokenBucketLimiterBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * the former token bucket limiter, refilled by its own scheduler thread once per second
+     */
+    static class ScheduledTokenBucketLimiter {
+
+        private final int capacity;
+
+        private final int tokensPerSecond;
+
+        private final AtomicInteger tokens;
+
+        private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+
+        ScheduledTokenBucketLimiter(int capacity, int tokensPerSecond) {
+            this.capacity = capacity;
+            this.tokensPerSecond = tokensPerSecond;
+            this.tokens = new AtomicInteger(capacity);
+            scheduler.scheduleAtFixedRate(() -> {
+                int currentTokens = tokens.get();
+                int newTokens = Math.min(capacity, currentTokens + tokensPerSecond);
+                tokens.compareAndSet(currentTokens, newTokens);
+            }, 0, 1, TimeUnit.SECONDS);
+        }
+
+        boolean tryAcquire() {
+            return tokens.getAndDecrement() > 0;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.simulation;
+
+import org.yoga.jarvis.CacheHandler;
+import org.yoga.jarvis.SimpleCacheHandler;
+import org.yoga.jarvis.weigher.Weigher;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * @Description: Hit rate of SimpleCacheHandler with and without TinyLFU admission, compared with LRU
+ * <p>
+ * The trace is a text file of keys, one access per line, given by the first argument. Without argument, a synthetic
+ * trace is used: zipf distributed hot keys mixed with bursts of one-off keys, like a crawler scanning unique paths.
+ * Each access is a getIfPresent followed by a put on miss.
+ * @Author: yoga
+ * @Date: 2026/10/18 21:40
+ */
+public class AdmissionHitRate {
+
+    private static final int[] CACHE_SIZES = {1_000, 5_000, 20_000};
+
+    public static void main(String[] args) throws IOException {
+        List<String> trace = args.length > 0
+                ? Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8)
+                : syntheticTrace(2_000_000, 100_000, 0.9, new Random(42));
+        System.out.printf("%-10s %-12s %-12s %-12s%n", "size", "lru", "simple", "simple+tlfu");
+        for (int size : CACHE_SIZES) {
+            double lru = hitRate(trace, new Lru(size)::access);
+            double simple = hitRate(trace, accessor(new SimpleCacheHandler<>(Long.MAX_VALUE / 2, 0, size,
+                    Weigher.singleton(), false)));
+            double tinyLfu = hitRate(trace, accessor(new SimpleCacheHandler<>(Long.MAX_VALUE / 2, 0, size,
+                    Weigher.singleton(), true)));
+            System.out.printf("%-10d %-12.4f %-12.4f %-12.4f%n", size, lru, simple, tinyLfu);
+        }
+    }
+
+    /**
+     * zipf distributed keys, every 100k accesses are followed by a scan of 20k unique keys
+     */
+    static List<String> syntheticTrace(int accesses, int keys, double skew, Random random) {
+        double[] cumulative = new double[keys];
+        double sum = 0;
+        for (int i = 0; i < keys; i++) {
+            sum += 1 / Math.pow(i + 1, skew);
+            cumulative[i] = sum;
+        }
+        List<String> trace = new ArrayList<>(accesses);
+        int scanned = 0;
+        while (trace.size() < accesses) {
+            if (trace.size() % 100_000 == 0 && trace.size() > 0) {
+                for (int i = 0; i < 20_000 && trace.size() < accesses; i++) {
+                    trace.add("scan-" + scanned++);
+                }
+            }
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            trace.add("hot-" + (index < 0 ? -index - 1 : index));
+        }
+        return trace;
+    }
+
+    private static double hitRate(List<String> trace, Predicate<String> access) {
+        long hits = 0;
+        for (String key : trace) {
+            if (access.test(key)) {
+                hits++;
+            }
+        }
+        return (double) hits / trace.size();
+    }
+
+    private static Predicate<String> accessor(CacheHandler<String, String> cacheHandler) {
+        return key -> {
+            if (cacheHandler.getIfPresent(key) != null) {
+                return true;
+            }
+            cacheHandler.put(key, key);
+            return false;
+        };
+    }
+
+    /**
+     * LRU of LinkedHashMap, the reference policy
+     */
+    private static final class Lru extends LinkedHashMap<String, String> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumSize;
+
+        private Lru(int maximumSize) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+        }
+
+        private boolean access(String key) {
+            if (get(key) != null) {
+                return true;
+            }
+            put(key, key);
+            return false;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > maximumSize;
+        }
+    }
+}
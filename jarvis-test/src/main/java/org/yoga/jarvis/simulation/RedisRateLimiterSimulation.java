@@ -0,0 +1,138 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.simulation;
+
+import org.yoga.jarvis.constant.RateLimiterType;
+import org.yoga.jarvis.limiter.RateLimiter;
+import org.yoga.jarvis.limiter.RedisRateLimiter;
+import org.yoga.jarvis.redis.RedisConnectionProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Description: Accuracy and redis round trips of RedisRateLimiter shared by several gateway nodes
+ * <p>
+ * Each node is a limiter of the same name driven by its own threads as fast as possible. For each algorithm and batch
+ * size, the admitted requests per second of all nodes are compared with the limit, with the script calls per admitted
+ * request. Then each node is driven at a light fixed rate, all nodes together below the limit, and the admitted
+ * requests are compared with the offered ones, which should all be admitted whatever the batch size.
+ * A redis server is required, set by -Djarvis.redis.host and -Djarvis.redis.port, localhost:6379 by default.
+ * @Author: yoga
+ * @Date: 2026/10/19 01:40
+ */
+public class RedisRateLimiterSimulation {
+
+    private static final int NODES = 12;
+
+    private static final int THREADS_PER_NODE = 2;
+
+    private static final int LIMIT = 1000;
+
+    private static final long DURATION_SECONDS = 5;
+
+    private static final int[] BATCH_SIZES = {1, 10, 50};
+
+    /**
+     * the requests per second of each node under light load, 12 nodes of them are a quarter and 3/4 of the limit
+     */
+    private static final int[] LIGHT_RATES = {20, 60};
+
+    public static void main(String[] args) throws InterruptedException {
+        try (RedisConnectionProvider connectionProvider = new RedisConnectionProvider(
+                System.getProperty("jarvis.redis.host", "localhost"), Integer.getInteger("jarvis.redis.port", 6379))) {
+            System.out.printf("%d nodes, limit %d per second%n", NODES, LIMIT);
+            System.out.printf("%-16s %-8s %-12s %-12s %-12s%n", "type", "batch", "admitted/s", "vs limit",
+                    "calls/req");
+            for (RateLimiterType type : RateLimiterType.values()) {
+                for (int batchSize : BATCH_SIZES) {
+                    run(connectionProvider, type, batchSize);
+                }
+            }
+            System.out.printf("%nlight load, %d nodes, limit %d per second%n", NODES, LIMIT);
+            System.out.printf("%-16s %-8s %-12s %-12s %-12s%n", "type", "batch", "offered/s", "admitted/s",
+                    "vs offered");
+            for (RateLimiterType type : RateLimiterType.values()) {
+                for (int rate : LIGHT_RATES) {
+                    runLight(connectionProvider, type, BATCH_SIZES[BATCH_SIZES.length - 1], rate);
+                }
+            }
+        }
+    }
+
+    private static void runLight(RedisConnectionProvider connectionProvider, RateLimiterType type, int batchSize,
+                                 int ratePerNode) throws InterruptedException {
+        String name = "simulation-light-" + type + "-" + ratePerNode + "-" + System.nanoTime();
+        LongAdder offered = new LongAdder();
+        LongAdder admitted = new LongAdder();
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(NODES);
+        for (int i = 0; i < NODES; i++) {
+            RedisRateLimiter node = new RedisRateLimiter(connectionProvider, name, type, LIMIT, 1, TimeUnit.SECONDS,
+                    batchSize, RateLimiter.of(type, LIMIT, 1, TimeUnit.SECONDS));
+            executor.scheduleAtFixedRate(() -> {
+                offered.increment();
+                if (node.tryAcquire()) {
+                    admitted.increment();
+                }
+            }, 0, TimeUnit.SECONDS.toNanos(1) / ratePerNode, TimeUnit.NANOSECONDS);
+        }
+        TimeUnit.SECONDS.sleep(DURATION_SECONDS);
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        System.out.printf("%-16s %-8d %-12.1f %-12.1f %-12s%n", type, batchSize,
+                (double) offered.sum() / DURATION_SECONDS, (double) admitted.sum() / DURATION_SECONDS,
+                String.format("%+.2f%%", 100.0 * (admitted.sum() - offered.sum()) / offered.sum()));
+    }
+
+    private static void run(RedisConnectionProvider connectionProvider, RateLimiterType type, int batchSize)
+            throws InterruptedException {
+        String name = "simulation-" + type + "-" + batchSize + "-" + System.nanoTime();
+        List<RedisRateLimiter> nodes = new ArrayList<>(NODES);
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(new RedisRateLimiter(connectionProvider, name, type, LIMIT, 1, TimeUnit.SECONDS, batchSize,
+                    RateLimiter.of(type, LIMIT, 1, TimeUnit.SECONDS)));
+        }
+        LongAdder admitted = new LongAdder();
+        ExecutorService executor = Executors.newFixedThreadPool(NODES * THREADS_PER_NODE);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+        for (RedisRateLimiter node : nodes) {
+            for (int i = 0; i < THREADS_PER_NODE; i++) {
+                executor.execute(() -> {
+                    while (System.nanoTime() - end < 0) {
+                        if (node.tryAcquire()) {
+                            admitted.increment();
+                        }
+                    }
+                });
+            }
+        }
+        executor.shutdown();
+        executor.awaitTermination(DURATION_SECONDS + 10, TimeUnit.SECONDS);
+
+        long calls = nodes.stream().mapToLong(RedisRateLimiter::remoteCalls).sum();
+        // the buckets start full, so they admit one more limit within the duration
+        double perSecond = (double) admitted.sum() / DURATION_SECONDS;
+        System.out.printf("%-16s %-8d %-12.1f %-12s %-12.3f%n", type, batchSize, perSecond,
+                String.format("%+.2f%%", 100 * (perSecond - LIMIT) / LIMIT), (double) calls / admitted.sum());
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.simulation;
+
+import org.yoga.jarvis.limiter.SlidingWindowLimiter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * @Description: Accuracy and memory of the bucketed SlidingWindowLimiter against the former queue of timestamps
+ * <p>
+ * All limiters see the same bursty traffic in real time. The queue limiter is an exact sliding log, so its
+ * admissions are the reference. For each limiter the admitted requests, the maximum admitted within any window
+ * (it should not exceed the limit) and the retained memory at the limit are printed.
+ * @Author: yoga
+ * @Date: 2026/10/19 00:20
+ */
+public class SlidingWindowAccuracy {
+
+    private static final long WINDOW_MILLIS = 1000;
+
+    private static final int LIMIT = 500;
+
+    private static final long DURATION_MILLIS = 8000;
+
+    private static final int[] BUCKETS = {5, 10, 20, 100};
+
+    /**
+     * the retained bytes per timestamp of queue, a boxed Long and a queue node with compressed oops
+     */
+    private static final int QUEUE_BYTES_PER_REQUEST = 16 + 24;
+
+    public static void main(String[] args) {
+        Map<String, BooleanSupplier> limiters = new LinkedHashMap<>();
+        Map<String, Long> memory = new LinkedHashMap<>();
+        limiters.put("queue", new QueueSlidingWindowLimiter(WINDOW_MILLIS, LIMIT)::tryAcquire);
+        memory.put("queue", (long) LIMIT * QUEUE_BYTES_PER_REQUEST);
+        for (int buckets : BUCKETS) {
+            String name = "buckets-" + buckets;
+            limiters.put(name, new SlidingWindowLimiter(WINDOW_MILLIS, LIMIT, buckets)::tryAcquire);
+            // the array header and one long per bucket, plus the bucket of current sub-window
+            memory.put(name, 16 + 8L * (buckets + 1));
+        }
+
+        Map<String, List<Long>> admitted = new LinkedHashMap<>();
+        limiters.keySet().forEach(name -> admitted.put(name, new ArrayList<>()));
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        long offered = 0;
+        for (long tick = 0; tick < DURATION_MILLIS; tick++) {
+            LockSupport.parkNanos(start + TimeUnit.MILLISECONDS.toNanos(tick) - System.nanoTime());
+            // 2 requests per ms in the first 200 ms of every 1300 ms, 0.3 per ms otherwise
+            double rate = tick % 1300 < 200 ? 2 : 0.3;
+            int requests = (int) rate + (random.nextDouble() < rate - (int) rate ? 1 : 0);
+            for (int i = 0; i < requests; i++) {
+                offered++;
+                long now = System.nanoTime();
+                limiters.forEach((name, limiter) -> {
+                    if (limiter.getAsBoolean()) {
+                        admitted.get(name).add(now);
+                    }
+                });
+            }
+        }
+
+        long reference = admitted.get("queue").size();
+        System.out.printf("offered %d requests, limit %d per %d ms%n", offered, LIMIT, WINDOW_MILLIS);
+        System.out.printf("%-12s %-10s %-10s %-14s %-10s%n", "limiter", "admitted", "vs queue", "max/window",
+                "bytes");
+        admitted.forEach((name, timestamps) -> System.out.printf("%-12s %-10d %-10s %-14d %-10d%n", name,
+                timestamps.size(), String.format("%+.2f%%", 100.0 * (timestamps.size() - reference) / reference),
+                maxPerWindow(timestamps), memory.get(name)));
+    }
+
+    /**
+     * the maximum number of timestamps within any window
+     */
+    static int maxPerWindow(List<Long> timestamps) {
+        long[] sorted = timestamps.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        long window = TimeUnit.MILLISECONDS.toNanos(WINDOW_MILLIS);
+        int max = 0;
+        for (int head = 0, tail = 0; head < sorted.length; head++) {
+            while (sorted[head] - sorted[tail] >= window) {
+                tail++;
+            }
+            max = Math.max(max, head - tail + 1);
+        }
+        return max;
+    }
+
+    /**
+     * the former sliding window limiter, one timestamp per admitted request under a global lock
+     */
+    static class QueueSlidingWindowLimiter {
+
+        private final long windowSize;
+
+        private final int maxRequestPerWindow;
+
+        private final Queue<Long> queue = new ConcurrentLinkedQueue<>();
+
+        QueueSlidingWindowLimiter(long windowSize, int maxRequestPerWindow) {
+            this.windowSize = windowSize;
+            this.maxRequestPerWindow = maxRequestPerWindow;
+        }
+
+        synchronized boolean tryAcquire() {
+            long currentTime = System.currentTimeMillis();
+            long windowStart = currentTime - windowSize;
+            while (!queue.isEmpty() && queue.peek() < windowStart) {
+                queue.poll();
+            }
+            if (queue.size() < maxRequestPerWindow) {
+                queue.add(currentTime);
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2022 yoga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.yoga.jarvis.simulation;
+
+import org.yoga.jarvis.CacheHandler;
+import org.yoga.jarvis.CaffeineCacheHandler;
+import org.yoga.jarvis.GuavaCacheHandler;
+import org.yoga.jarvis.SimpleCacheHandler;
+import org.yoga.jarvis.admission.TinyLfuAdmission;
+import org.yoga.jarvis.trace.TraceOp;
+import org.yoga.jarvis.trace.TraceReader;
+import org.yoga.jarvis.trace.TraceRecorder;
+import org.yoga.jarvis.weigher.Weigher;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * @Description: Replay a cache trace against several policies for sizing
+ * <p>
+ * The trace is written by {@link TraceRecorder}, given by the first argument, the sizes to simulate are given by the
+ * second argument, comma separated, default 1% to 50% of the distinct keys. Without argument, the synthetic trace of
+ * {@link AdmissionHitRate} is replayed. A read hits if the key is cached, otherwise the key is put as if loaded.
+ * The hit rates are printed per size for LRU, TinyLFU (LRU with TinyLFU admission) and the Guava, Caffeine and
+ * Simple handlers, followed by the best hit rates reachable with an unbounded cache for a range of TTLs.
+ * @Author: yoga
+ * @Date: 2026/10/18 22:40
+ */
+public class TraceSimulator {
+
+    private static final double[] SIZE_RATIOS = {0.01, 0.02, 0.05, 0.1, 0.2, 0.5};
+
+    private static final long[] TTL_SECONDS = {1, 10, 60, 10 * 60, 60 * 60, 24 * 60 * 60};
+
+    /**
+     * the expire interval of replayed handlers, long enough that nothing expires
+     */
+    private static final long NEVER_EXPIRE_SECONDS = TimeUnit.DAYS.toSeconds(365);
+
+    public static void main(String[] args) {
+        Trace trace = args.length > 0 ? Trace.read(args[0]) : Trace.synthetic();
+        int distinctKeys = trace.distinctKeys();
+        System.out.printf("records: %d, reads: %d, distinct keys: %d%n", trace.size, trace.reads(), distinctKeys);
+        int[] sizes = args.length > 1
+                ? Arrays.stream(args[1].split(",")).mapToInt(size -> Integer.parseInt(size.trim())).toArray()
+                : Arrays.stream(SIZE_RATIOS).mapToInt(ratio -> Math.max(1, (int) (distinctKeys * ratio))).toArray();
+
+        Map<String, IntFunction<Policy>> policies = new LinkedHashMap<>();
+        policies.put("lru", Lru::new);
+        policies.put("tinylfu", TinyLfu::new);
+        policies.put("guava", size -> new HandlerPolicy(new GuavaCacheHandler<>(16, size, NEVER_EXPIRE_SECONDS)));
+        policies.put("caffeine", size -> new HandlerPolicy(new CaffeineCacheHandler<>(16, size, NEVER_EXPIRE_SECONDS)));
+        policies.put("simple", size -> new HandlerPolicy(new SimpleCacheHandler<>(Long.MAX_VALUE / 2, 0, size,
+                Weigher.singleton(), false)));
+        policies.put("simple+tlfu", size -> new HandlerPolicy(new SimpleCacheHandler<>(Long.MAX_VALUE / 2, 0, size,
+                Weigher.singleton(), true)));
+
+        System.out.printf("%n%-10s", "size");
+        policies.keySet().forEach(name -> System.out.printf(" %-12s", name));
+        System.out.println();
+        for (int size : sizes) {
+            System.out.printf("%-10d", size);
+            policies.values().forEach(policy -> System.out.printf(" %-12.4f", trace.replay(policy.apply(size))));
+            System.out.println();
+        }
+
+        System.out.printf("%n%-10s %-12s%n", "ttl(s)", "max hit");
+        for (long ttlSeconds : TTL_SECONDS) {
+            System.out.printf("%-10d %-12.4f%n", ttlSeconds, trace.maxHitRate(TimeUnit.SECONDS.toMillis(ttlSeconds)));
+        }
+    }
+
+    /**
+     * Cache policy replayed
+     */
+    private interface Policy {
+
+        /**
+         * read, the key is put on miss
+         *
+         * @param key key hash
+         * @return true if hit
+         */
+        boolean read(long key);
+
+        void write(long key);
+
+        void remove(long key);
+    }
+
+    /**
+     * Trace in arrays, replayed many times
+     */
+    private static final class Trace {
+
+        private long[] keys = new long[1024];
+
+        private byte[] ops = new byte[1024];
+
+        private long[] times = new long[1024];
+
+        private int size;
+
+        private static Trace read(String file) {
+            Trace trace = new Trace();
+            TraceReader.read(Paths.get(file), trace::add);
+            return trace;
+        }
+
+        private static Trace synthetic() {
+            Trace trace = new Trace();
+            List<String> keys = AdmissionHitRate.syntheticTrace(2_000_000, 100_000, 0.9, new Random(42));
+            for (int i = 0; i < keys.size(); i++) {
+                trace.add(TraceOp.READ, keys.get(i).hashCode(), i);
+            }
+            return trace;
+        }
+
+        private void add(TraceOp op, long key, long time) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                ops = Arrays.copyOf(ops, size * 2);
+                times = Arrays.copyOf(times, size * 2);
+            }
+            keys[size] = key;
+            ops[size] = (byte) op.ordinal();
+            times[size] = time;
+            size++;
+        }
+
+        private int distinctKeys() {
+            return (int) Arrays.stream(keys, 0, size).distinct().count();
+        }
+
+        private long reads() {
+            long reads = 0;
+            for (int i = 0; i < size; i++) {
+                if (ops[i] == TraceOp.READ.ordinal()) {
+                    reads++;
+                }
+            }
+            return reads;
+        }
+
+        private double replay(Policy policy) {
+            long reads = 0;
+            long hits = 0;
+            for (int i = 0; i < size; i++) {
+                switch (TraceOp.of(ops[i])) {
+                    case READ:
+                        reads++;
+                        if (policy.read(keys[i])) {
+                            hits++;
+                        }
+                        break;
+                    case WRITE:
+                        policy.write(keys[i]);
+                        break;
+                    default:
+                        policy.remove(keys[i]);
+                        break;
+                }
+            }
+            return reads == 0 ? 0.0 : (double) hits / reads;
+        }
+
+        /**
+         * the hit rate of an unbounded cache whose entries expire after ttl since written
+         */
+        private double maxHitRate(long ttlMillis) {
+            Map<Long, Long> writeTimes = new HashMap<>();
+            long reads = 0;
+            long hits = 0;
+            for (int i = 0; i < size; i++) {
+                switch (TraceOp.of(ops[i])) {
+                    case READ:
+                        reads++;
+                        Long writeTime = writeTimes.get(keys[i]);
+                        if (writeTime != null && times[i] - writeTime < ttlMillis) {
+                            hits++;
+                        } else {
+                            writeTimes.put(keys[i], times[i]);
+                        }
+                        break;
+                    case WRITE:
+                        writeTimes.put(keys[i], times[i]);
+                        break;
+                    default:
+                        writeTimes.remove(keys[i]);
+                        break;
+                }
+            }
+            return reads == 0 ? 0.0 : (double) hits / reads;
+        }
+    }
+
+    /**
+     * LRU of LinkedHashMap, the reference policy
+     */
+    private static class Lru implements Policy {
+
+        final LinkedHashMap<Long, Boolean> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+        final int maximumSize;
+
+        private Lru(int maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        public boolean read(long key) {
+            if (cache.get(key) != null) {
+                return true;
+            }
+            write(key);
+            return false;
+        }
+
+        @Override
+        public void write(long key) {
+            cache.put(key, Boolean.TRUE);
+            if (cache.size() > maximumSize) {
+                Iterator<Long> eldest = cache.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+
+        @Override
+        public void remove(long key) {
+            cache.remove(key);
+        }
+    }
+
+    /**
+     * LRU with TinyLFU admission, a new key replaces the eldest only if it is more frequent
+     */
+    private static final class TinyLfu extends Lru {
+
+        private final TinyLfuAdmission<Long> admission;
+
+        private TinyLfu(int maximumSize) {
+            super(maximumSize);
+            this.admission = new TinyLfuAdmission<>(maximumSize);
+        }
+
+        @Override
+        public boolean read(long key) {
+            admission.record(key);
+            return super.read(key);
+        }
+
+        @Override
+        public void write(long key) {
+            if (cache.size() < maximumSize || cache.containsKey(key)) {
+                cache.put(key, Boolean.TRUE);
+                return;
+            }
+            Long victim = cache.keySet().iterator().next();
+            if (admission.admit(key, victim)) {
+                cache.remove(victim);
+                cache.put(key, Boolean.TRUE);
+            }
+        }
+    }
+
+    /**
+     * replay against a cache handler
+     */
+    private static final class HandlerPolicy implements Policy {
+
+        private final CacheHandler<Long, Boolean> cacheHandler;
+
+        private HandlerPolicy(CacheHandler<Long, Boolean> cacheHandler) {
+            this.cacheHandler = cacheHandler;
+        }
+
+        @Override
+        public boolean read(long key) {
+            if (cacheHandler.getIfPresent(key) != null) {
+                return true;
+            }
+            cacheHandler.put(key, Boolean.TRUE);
+            return false;
+        }
+
+        @Override
+        public void write(long key) {
+            cacheHandler.put(key, Boolean.TRUE);
+        }
+
+        @Override
+        public void remove(long key) {
+            cacheHandler.remove(key);
+        }
+    }
+}